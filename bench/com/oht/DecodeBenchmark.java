@@ -0,0 +1,105 @@
+package com.oht;
+
+import com.google.gson.stream.JsonReader;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding recorded payloads: entity readers alone, and whole responses through the status envelope
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+    private byte[] projectDetails;
+    private byte[] quote;
+    private byte[] languagePairs;
+    private byte[] comments;
+    private byte[] tags;
+    private byte[] wordCount;
+    private byte[] projectDetailsResponse;
+    private byte[] quoteResponse;
+
+    private OHTAPI api;
+
+    @Setup
+    public void setUp() {
+        projectDetails = Payloads.results(Payloads.PROJECT_DETAILS);
+        quote = Payloads.results(Payloads.QUOTE);
+        languagePairs = Payloads.results(Payloads.LANGUAGE_PAIRS);
+        comments = Payloads.results(Payloads.COMMENTS);
+        tags = Payloads.results(Payloads.TAGS);
+        wordCount = Payloads.results(Payloads.WORD_COUNT);
+        projectDetailsResponse = Payloads.response(Payloads.PROJECT_DETAILS);
+        quoteResponse = Payloads.response(Payloads.QUOTE);
+
+        api = new OHTAPI("2dd1f3a8c1e74b19a5b6e0f27c9d3e41", "pk-3c7e9a0b51d24f6e");
+    }
+
+    @Benchmark
+    public Object projectDetails() throws IOException {
+        return decode(projectDetails, ResultReaders.PROJECT_DETAILS);
+    }
+
+    @Benchmark
+    public Object quote() throws IOException {
+        return decode(quote, ResultReaders.QUOTE);
+    }
+
+    @Benchmark
+    public Object languagePairs() throws IOException {
+        return decode(languagePairs, ResultReaders.LANGUAGE_PAIRS);
+    }
+
+    @Benchmark
+    public Object comments() throws IOException {
+        return decode(comments, ResultReaders.COMMENTS);
+    }
+
+    @Benchmark
+    public Object tags() throws IOException {
+        return decode(tags, ResultReaders.TAGS);
+    }
+
+    @Benchmark
+    public Object wordCount() throws IOException {
+        return decode(wordCount, ResultReaders.WORD_COUNT);
+    }
+
+    @Benchmark
+    public Object projectDetailsResponse() throws Exception {
+        return parse(projectDetailsResponse, ResultReaders.PROJECT_DETAILS);
+    }
+
+    @Benchmark
+    public Object quoteResponse() throws Exception {
+        return parse(quoteResponse, ResultReaders.QUOTE);
+    }
+
+    private static <T> T decode(byte[] payload, ResultReader<T> resultReader) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8"));
+        try {
+            return resultReader.read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private <T> T parse(byte[] payload, ResultReader<T> resultReader) throws Exception {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(payload, ContentType.APPLICATION_JSON));
+        return api.request("/").parse(response, resultReader);
+    }
+}
@@ -0,0 +1,94 @@
+package com.oht;
+
+import com.oht.entities.ProjectDetails;
+import com.oht.entities.Quote;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole calls through the blocking and non-blocking clients against an in-process HTTP server
+ * answering with recorded payloads, so the numbers cover pooling, I/O and decoding but not the network
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    private static final String[] RESOURCES = {"rsc-5a3f0c1e2b7d9", "rsc-5a3f0c1e2b7da", "rsc-5a3f0c1e2b7db"};
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private OHTAPI api;
+    private OHTAsyncAPI asyncApi;
+
+    @Setup
+    public void setUp() throws Exception {
+        final byte[] projectDetails = Payloads.response(Payloads.PROJECT_DETAILS);
+        final byte[] quote = Payloads.response(Payloads.QUOTE);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream input = exchange.getRequestBody();
+                byte[] buffer = new byte[4096];
+                while (input.read(buffer) != -1) {
+                }
+
+                byte[] body = exchange.getRequestURI().getPath().endsWith("/tools/quote") ? quote : projectDetails;
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream output = exchange.getResponseBody();
+                output.write(body);
+                output.close();
+            }
+        });
+        server.start();
+
+        OHTClientConfig config = OHTClientConfig.custom()
+                .setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/api/2")
+                .build();
+        api = new OHTAPI("2dd1f3a8c1e74b19a5b6e0f27c9d3e41", "pk-3c7e9a0b51d24f6e", false, config);
+        asyncApi = new OHTAsyncAPI(api);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        api.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ProjectDetails projectDetails() throws OHTException {
+        return api.getProjectDetails(1453);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Quote quote() throws OHTException {
+        return api.getQuote(RESOURCES, 0, "en-us", "fr-fr", "translation", null, null, "USD");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ProjectDetails projectDetailsAsync() throws Exception {
+        return asyncApi.getProjectDetails(1453).get();
+    }
+}
@@ -0,0 +1,59 @@
+package com.oht;
+
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Recorded API responses used by the benchmarks, from {@code bench/com/oht/payloads}
+ */
+final class Payloads {
+
+    static final String PROJECT_DETAILS = "project_details";
+    static final String QUOTE = "quote";
+    static final String LANGUAGE_PAIRS = "language_pairs";
+    static final String COMMENTS = "comments";
+    static final String TAGS = "tags";
+    static final String WORD_COUNT = "wordcount";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Payloads() {
+    }
+
+    /**
+     * Whole response, status envelope included
+     */
+    static byte[] response(String name) {
+        InputStream input = Payloads.class.getResourceAsStream("payloads/" + name + ".json");
+        if (null == input)
+            throw new IllegalArgumentException("No payload " + name);
+
+        try {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1)
+                result.write(buffer, 0, read);
+            return result.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ex) {
+            }
+        }
+    }
+
+    /**
+     * The {@code results} member of the response only, as entity readers see it
+     */
+    static byte[] results(String name) {
+        String response = new String(response(name), UTF_8);
+        return new JsonParser().parse(response).getAsJsonObject().get("results").toString().getBytes(UTF_8);
+    }
+}
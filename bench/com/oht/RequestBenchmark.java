@@ -0,0 +1,65 @@
+package com.oht;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building requests: parameter collection, query string encoding and form bodies
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+
+    private static final String[] RESOURCES = {"rsc-5a3f0c1e2b7d9", "rsc-5a3f0c1e2b7da", "rsc-5a3f0c1e2b7db"};
+
+    private OHTAPI api;
+
+    @Setup
+    public void setUp() {
+        api = new OHTAPI("2dd1f3a8c1e74b19a5b6e0f27c9d3e41", "pk-3c7e9a0b51d24f6e");
+    }
+
+    @Benchmark
+    public HttpRequestBase projectDetails() throws Exception {
+        return api.request("/projects/1453").build("GET");
+    }
+
+    @Benchmark
+    public HttpRequestBase quote() throws Exception {
+        return api.request("/tools/quote")
+                .param("resources", RESOURCES)
+                .param("wordcount", 0)
+                .param("source_language", "en-us")
+                .param("target_language", "fr-fr")
+                .param("service", "translation")
+                .param("expertise", "marketing-consumer-media")
+                .param("proofreading", "1")
+                .param("currency", "USD")
+                .build("GET");
+    }
+
+    @Benchmark
+    public byte[] createProject() throws Exception {
+        HttpRequestBase request = api.request("/projects/translation")
+                .param("source_language", "en-us")
+                .param("target_language", "fr-fr")
+                .param("sources", RESOURCES)
+                .param("wordcount", 2480)
+                .param("notes", "Keep product names in English & localize the slogan: \"Made for you\"")
+                .param("callback_url", "https://example.com/oht/callback?tenant=42")
+                .param("name", "Autumn campaign landing page")
+                .build("POST");
+
+        HttpEntity entity = ((HttpEntityEnclosingRequestBase) request).getEntity();
+        return EntityUtils.toByteArray(entity);
+    }
+}
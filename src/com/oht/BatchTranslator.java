@@ -0,0 +1,426 @@
+package com.oht;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Machine translation of many short segments, e.g. the strings of a UI.
+ * <ul>
+ * <li>repeated segments are translated once;</li>
+ * <li>translations are kept in a LRU cache by source language, target language and text,
+ * and optionally in a persistent {@link TranslationMemory TranslationMemory};</li>
+ * <li>the remaining segments are packed one per line into requests of up to {@code maxChars} characters,
+ * sent with at most {@code parallelism} requests in flight, per-segment fallback requests included.</li>
+ * </ul>
+ * The MT endpoint takes a single text, so a pack whose translation does not come back with one line per segment
+ * is translated segment by segment instead. Segments containing line breaks are always sent on their own.
+ * <p>
+ * Create it with {@code BatchTranslator.custom(api).setMaxChars(...).build()}.
+ */
+public class BatchTranslator {
+
+    private OHTAsyncAPI api;
+    private int maxChars;
+    private int parallelism;
+    private TranslationMemory memory;
+    private final Map<Key, String> cache;
+
+    private BatchTranslator(Builder builder) {
+        this.api = builder.api;
+        this.maxChars = builder.maxChars;
+        this.parallelism = builder.parallelism;
+        this.memory = null != builder.memory ? builder.memory : builder.api.getTranslationMemory();
+
+        final int cacheSize = builder.cacheSize;
+        this.cache = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to translate with
+     */
+    public static Builder custom(OHTAPI api) {
+        return new Builder(new OHTAsyncAPI(api));
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to translate with
+     */
+    public static Builder custom(OHTAsyncAPI api) {
+        return new Builder(api);
+    }
+
+    /**
+     * Translates all segments and waits for them. Blank segments are returned as they are.
+     * If a request fails, the first failure is thrown once all requests completed;
+     * the translations that succeeded are cached all the same
+     *
+     * @param sourceLanguage source language
+     * @param targetLanguage target language
+     * @param segments       texts to translate
+     * @return translations in the order of {@code segments}
+     */
+    public List<String> translate(String sourceLanguage, String targetLanguage, List<String> segments)
+            throws OHTException, InterruptedException {
+        final String[] result = new String[segments.size()];
+
+        // distinct segments to translate, with their positions
+        final Map<String, List<Integer>> pending = new LinkedHashMap<String, List<Integer>>();
+        synchronized (cache) {
+            for (int i = 0; i < result.length; i++) {
+                String segment = segments.get(i);
+                if (null == segment || segment.trim().isEmpty()) {
+                    result[i] = segment;
+                    continue;
+                }
+
+                String cached = cache.get(new Key(sourceLanguage, targetLanguage, segment));
+                if (null != cached) {
+                    result[i] = cached;
+                    continue;
+                }
+
+                List<Integer> positions = pending.get(segment);
+                if (null == positions) {
+                    positions = new ArrayList<Integer>(1);
+                    pending.put(segment, positions);
+                }
+                positions.add(i);
+            }
+        }
+
+        // the persistent store may have to read from disk, so it is not looked up under the cache lock
+        if (null != memory) {
+            Iterator<Map.Entry<String, List<Integer>>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, List<Integer>> entry = it.next();
+                String stored = stored(sourceLanguage, targetLanguage, entry.getKey());
+                if (null != stored) {
+                    for (int position : entry.getValue())
+                        result[position] = stored;
+                    it.remove();
+                }
+            }
+        }
+
+        if (pending.isEmpty())
+            return Arrays.asList(result);
+
+        Slots slots = new Slots(parallelism);
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        for (final List<String> pack : pack(pending.keySet())) {
+            futures.add(translatePack(sourceLanguage, targetLanguage, pack, slots).handle(new BiFunction<List<String>, Throwable, Void>() {
+                public Void apply(List<String> translations, Throwable error) {
+                    if (null != error)
+                        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+
+                    for (int i = 0; i < pack.size(); i++) {
+                        for (int position : pending.get(pack.get(i)))
+                            result[position] = translations.get(i);
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        OHTException error = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException ex) {
+                if (null == error)
+                    error = OHTException.of(ex);
+            }
+        }
+
+        if (null != memory && !memory.isReadOnly()) {
+            for (Map.Entry<String, List<Integer>> entry : pending.entrySet()) {
+                String translation = result[entry.getValue().get(0)];
+                if (null != translation)
+                    memory.offer(sourceLanguage, targetLanguage, entry.getKey(), translation);
+            }
+        }
+
+        if (null != error)
+            throw error;
+
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Drops all cached translations
+     */
+    public void invalidate() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // groups segments into texts of up to maxChars characters, one segment per line
+    private List<List<String>> pack(Collection<String> segments) {
+        List<List<String>> result = new ArrayList<List<String>>();
+        List<String> pack = new ArrayList<String>();
+        int chars = 0;
+        for (String segment : segments) {
+            if (segment.indexOf('\n') >= 0 || segment.indexOf('\r') >= 0 || segment.length() >= maxChars) {
+                result.add(Collections.singletonList(segment));
+                continue;
+            }
+
+            if (!pack.isEmpty() && chars + 1 + segment.length() > maxChars) {
+                result.add(pack);
+                pack = new ArrayList<String>();
+                chars = 0;
+            }
+
+            chars += (pack.isEmpty() ? 0 : 1) + segment.length();
+            pack.add(segment);
+        }
+
+        if (!pack.isEmpty())
+            result.add(pack);
+
+        return result;
+    }
+
+    // translates a pack and caches its segments, falling back to one request per segment if the lines do not match up
+    private CompletableFuture<List<String>> translatePack(final String sourceLanguage, final String targetLanguage,
+                                                          final List<String> pack, final Slots slots) {
+        StringBuilder text = new StringBuilder();
+        for (String segment : pack) {
+            if (text.length() > 0)
+                text.append('\n');
+            text.append(segment);
+        }
+
+        return request(sourceLanguage, targetLanguage, text.toString(), slots).thenCompose(new Function<String, CompletableFuture<List<String>>>() {
+            public CompletableFuture<List<String>> apply(String translated) {
+                List<String> lines = null != translated ? Arrays.asList(translated.split("\r?\n", -1)) : null;
+                if (null != lines && lines.size() == pack.size()) {
+                    store(sourceLanguage, targetLanguage, pack, lines);
+                    return CompletableFuture.completedFuture(lines);
+                }
+
+                if (pack.size() == 1) {
+                    List<String> single = Collections.singletonList(translated);
+                    store(sourceLanguage, targetLanguage, pack, single);
+                    return CompletableFuture.completedFuture(single);
+                }
+
+                final List<CompletableFuture<List<String>>> singles = new ArrayList<CompletableFuture<List<String>>>();
+                for (String segment : pack)
+                    singles.add(translatePack(sourceLanguage, targetLanguage, Collections.singletonList(segment), slots));
+
+                return CompletableFuture.allOf(singles.toArray(new CompletableFuture<?>[singles.size()]))
+                        .thenApply(new Function<Void, List<String>>() {
+                            public List<String> apply(Void nothing) {
+                                List<String> result = new ArrayList<String>(singles.size());
+                                for (CompletableFuture<List<String>> single : singles)
+                                    result.add(single.join().get(0));
+                                return result;
+                            }
+                        });
+            }
+        });
+    }
+
+    /*
+     * Sends the request once a slot is free, and frees it when the translation arrives. Packs go past the translation
+     * memory of the API instance, which would key them by their joined lines; segments are stored one by one instead.
+     */
+    private CompletableFuture<String> request(final String sourceLanguage, final String targetLanguage, final String text,
+                                              final Slots slots) {
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+        slots.acquire(new Runnable() {
+            public void run() {
+                CompletableFuture<String> translation;
+                try {
+                    translation = api.machineTranslationRequest(sourceLanguage, targetLanguage, text);
+                } catch (RuntimeException ex) {
+                    slots.release();
+                    result.completeExceptionally(ex);
+                    return;
+                }
+
+                translation.whenComplete(new BiConsumer<String, Throwable>() {
+                    public void accept(String translated, Throwable error) {
+                        slots.release();
+                        if (null != error)
+                            result.completeExceptionally(OHTException.of(error));
+                        else
+                            result.complete(translated);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    // translation from the persistent store, also kept in the cache
+    private String stored(String sourceLanguage, String targetLanguage, String segment) {
+        String translation = memory.lookup(sourceLanguage, targetLanguage, segment);
+        if (null != translation)
+            store(sourceLanguage, targetLanguage, Collections.singletonList(segment), Collections.singletonList(translation));
+        return translation;
+    }
+
+    private void store(String sourceLanguage, String targetLanguage, List<String> segments, List<String> translations) {
+        synchronized (cache) {
+            for (int i = 0; i < segments.size(); i++)
+                cache.put(new Key(sourceLanguage, targetLanguage, segments.get(i)), translations.get(i));
+        }
+    }
+
+    /*
+     * Requests of one translate call in flight, at most parallelism. Fallback requests are started from the
+     * completion of their pack, on an I/O thread that must not block, so requests over the limit are queued
+     * and started as others complete instead of waiting for a permit.
+     */
+    private static class Slots {
+        private final int limit;
+        private int inUse = 0;
+        private final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+
+        Slots(int limit) {
+            this.limit = limit;
+        }
+
+        void acquire(Runnable task) {
+            synchronized (this) {
+                if (inUse >= limit) {
+                    waiting.add(task);
+                    return;
+                }
+
+                inUse++;
+            }
+
+            task.run();
+        }
+
+        // hands the slot to the oldest queued request, if any
+        void release() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (null == next) {
+                    inUse--;
+                    return;
+                }
+            }
+
+            // not on the releasing thread, so that a line of requests failing right away does not recurse
+            try {
+                RetryPolicy.scheduler().execute(next);
+            } catch (RejectedExecutionException ex) {
+                next.run();
+            }
+        }
+    }
+
+    private static class Key {
+        final String sourceLanguage;
+        final String targetLanguage;
+        final String text;
+        private final int hash;
+
+        Key(String sourceLanguage, String targetLanguage, String text) {
+            this.sourceLanguage = sourceLanguage;
+            this.targetLanguage = targetLanguage;
+            this.text = text;
+            this.hash = Objects.hash(sourceLanguage, targetLanguage, text);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return hash == key.hash && text.equals(key.text)
+                    && Objects.equals(sourceLanguage, key.sourceLanguage) && Objects.equals(targetLanguage, key.targetLanguage);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Builder of {@link BatchTranslator BatchTranslator}
+     */
+    public static class Builder {
+
+        private OHTAsyncAPI api;
+        private int maxChars = 5000;
+        private int parallelism = 8;
+        private int cacheSize = 50000;
+        private TranslationMemory memory = null;
+
+        private Builder(OHTAsyncAPI api) {
+            this.api = api;
+        }
+
+        /**
+         * Maximum length of the text of one request, in characters (defaults to 5000).
+         * Longer segments are sent on their own
+         */
+        public Builder setMaxChars(int maxChars) {
+            if (maxChars < 1)
+                throw new IllegalArgumentException("maxChars must be positive");
+
+            this.maxChars = maxChars;
+            return this;
+        }
+
+        /**
+         * Maximum number of requests in flight per {@link #translate translate} call, per-segment fallback
+         * requests included (defaults to 8)
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1)
+                throw new IllegalArgumentException("parallelism must be positive");
+
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Persistent store to look segments up in before translating them, and to add new translations to
+         * unless it is read-only (defaults to the {@link OHTAPI#setTranslationMemory(TranslationMemory) translation memory}
+         * of the API instance, if any)
+         */
+        public Builder setTranslationMemory(TranslationMemory memory) {
+            this.memory = memory;
+            return this;
+        }
+
+        /**
+         * Number of translations kept in the cache (defaults to 50000)
+         */
+        public Builder setCacheSize(int cacheSize) {
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public BatchTranslator build() {
+            return new BatchTranslator(this);
+        }
+    }
+}
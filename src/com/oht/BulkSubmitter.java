@@ -0,0 +1,165 @@
+package com.oht;
+
+import com.oht.entities.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+
+/**
+ * Creates many projects with bounded parallelism.
+ * At most {@code parallelism} requests are in flight at a time; the submitting thread waits for a free slot
+ * before pulling the next {@link ProjectSpec ProjectSpec}, so specs may be produced lazily.
+ * A failed item never fails the batch, each one reports its own {@link Result Result}.
+ */
+public class BulkSubmitter {
+
+    /**
+     * Receives results as they complete, in completion order.
+     * Called on the HTTP client's I/O thread, so it should return quickly
+     */
+    public interface Listener {
+        void onResult(Result result);
+    }
+
+    /**
+     * Outcome of a single project submission: either a {@link Project Project} or an {@link OHTException OHTException}
+     */
+    public static class Result {
+
+        private int index;
+        private ProjectSpec spec;
+        private Project project;
+        private OHTException error;
+
+        Result(int index, ProjectSpec spec, Project project, OHTException error) {
+            this.index = index;
+            this.spec = spec;
+            this.project = project;
+            this.error = error;
+        }
+
+        /**
+         * Position of the spec in the submitted batch
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public ProjectSpec getSpec() {
+            return spec;
+        }
+
+        /**
+         * Created project, or {@code null} if the submission failed
+         */
+        public Project getProject() {
+            return project;
+        }
+
+        /**
+         * Failure of the submission, or {@code null} if the project was created
+         */
+        public OHTException getError() {
+            return error;
+        }
+
+        public boolean isSuccess() {
+            return null == error;
+        }
+    }
+
+    private OHTAsyncAPI api;
+    private int parallelism;
+
+    /**
+     * @param api         API instance to create the projects with
+     * @param parallelism maximum number of requests in flight
+     */
+    public BulkSubmitter(OHTAPI api, int parallelism) {
+        this(new OHTAsyncAPI(api), parallelism);
+    }
+
+    /**
+     * @param api         API instance to create the projects with
+     * @param parallelism maximum number of requests in flight
+     */
+    public BulkSubmitter(OHTAsyncAPI api, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.api = api;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates all projects and waits for them to complete
+     *
+     * @param specs projects to create
+     * @return results in the order of {@code specs}
+     */
+    public List<Result> submit(Iterable<ProjectSpec> specs) throws InterruptedException {
+        return submit(specs, null);
+    }
+
+    /**
+     * Creates all projects and waits for them to complete
+     *
+     * @param specs    projects to create
+     * @param listener (optional) notified of every result as soon as it completes
+     * @return results in the order of {@code specs}
+     */
+    public List<Result> submit(Iterable<ProjectSpec> specs, final Listener listener) throws InterruptedException {
+        final Semaphore slots = new Semaphore(parallelism);
+        List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>();
+
+        int index = 0;
+        for (final ProjectSpec spec : specs) {
+            slots.acquire();
+
+            final int itemIndex = index++;
+            futures.add(submit(spec).handle(new BiFunction<Project, Throwable, Result>() {
+                public Result apply(Project project, Throwable error) {
+                    slots.release();
+
+                    Result result = new Result(itemIndex, spec, project, null != error ? asOHTException(error) : null);
+                    if (null != listener) {
+                        try {
+                            listener.onResult(result);
+                        } catch (RuntimeException ex) {
+                            // a failing listener must not lose the result or stall the batch
+                        }
+                    }
+
+                    return result;
+                }
+            }));
+        }
+
+        List<Result> results = new ArrayList<Result>(futures.size());
+        for (CompletableFuture<Result> future : futures)
+            results.add(future.join());
+
+        return results;
+    }
+
+    private CompletableFuture<Project> submit(ProjectSpec spec) {
+        try {
+            return spec.submit(api);
+        } catch (RuntimeException ex) {
+            CompletableFuture<Project> result = new CompletableFuture<Project>();
+            result.completeExceptionally(ex);
+            return result;
+        }
+    }
+
+    private static OHTException asOHTException(Throwable error) {
+        if (error instanceof CompletionException && null != error.getCause())
+            error = error.getCause();
+
+        return error instanceof OHTException ? (OHTException) error : new OHTException(error);
+    }
+}
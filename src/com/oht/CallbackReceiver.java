@@ -0,0 +1,327 @@
+package com.oht;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.oht.entities.CallbackEvent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Embedded HTTP endpoint receiving project callbacks, built on the JDK's {@link HttpServer HttpServer}.
+ * Pass {@link #getCallbackUrl()} as {@code callbackUrl} when creating projects; set {@code publicUrl} when the
+ * service reaches the endpoint through a proxy or another host name.
+ * <p>
+ * The endpoint listens on the loopback interface unless another host is set. With a {@code secret}, the callback URL
+ * carries it as the {@code token} query parameter and callbacks without it are answered with 403.
+ * <p>
+ * Callbacks are decoded into {@link CallbackEvent CallbackEvent}s and handed to the listener on a fixed set of
+ * dispatch threads: events of one project always go to the same thread, so they arrive in order, while
+ * different projects are handled in parallel. Each dispatch thread queues at most {@code queueCapacity} events;
+ * beyond that the callback is answered with 503 so that it is delivered again later.
+ */
+public class CallbackReceiver implements Closeable {
+
+    /**
+     * Receives callback events, see {@link CallbackReceiver CallbackReceiver} for the threading
+     */
+    public interface Listener {
+        void onEvent(CallbackEvent event);
+    }
+
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+    private static final String TOKEN_PARAM = "token";
+
+    private HttpServer server;
+    private String path;
+    private String publicUrl;
+    private String secret;
+    private Listener listener;
+    private ThreadPoolExecutor[] lanes;
+
+    private CallbackReceiver(Builder builder) throws IOException {
+        this.path = builder.path;
+        this.publicUrl = builder.publicUrl;
+        this.secret = builder.secret;
+        this.listener = builder.listener;
+
+        this.lanes = new ThreadPoolExecutor[builder.threads];
+        for (int i = 0; i < lanes.length; i++) {
+            final String name = "oht-callback-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(builder.queueCapacity), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(builder.host, builder.port), builder.backlog);
+        server.createContext(path, new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    exchange.sendResponseHeaders(receive(exchange), -1);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * URL to pass as {@code callbackUrl}: the public URL if set, otherwise the local one,
+     * e.g. {@code http://127.0.0.1:8080/oht/callback}, followed by the token if there is a secret
+     */
+    public String getCallbackUrl() {
+        String base;
+        if (null != publicUrl) {
+            base = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        } else {
+            InetSocketAddress address = server.getAddress();
+            // the wildcard address is not a destination, the endpoint is reachable through loopback as well
+            String host = address.getAddress().isAnyLocalAddress() ? "localhost" : address.getHostString();
+            base = "http://" + (host.indexOf(':') >= 0 ? "[" + host + "]" : host) + ":" + address.getPort();
+        }
+
+        if (null == secret)
+            return base + path;
+
+        try {
+            return base + path + "?" + TOKEN_PARAM + "=" + URLEncoder.encode(secret, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex); // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Port the endpoint listens on, useful when it was built with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting callbacks and lets the queued events finish dispatching
+     */
+    public void close() {
+        server.stop(0);
+        for (ThreadPoolExecutor lane : lanes)
+            lane.shutdown();
+    }
+
+    // decodes and queues one callback, returns the HTTP status to answer with
+    private int receive(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equalsIgnoreCase("POST"))
+            return 405;
+
+        byte[] body = read(exchange.getRequestBody());
+        if (null == body)
+            return 413;
+
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        String query = exchange.getRequestURI().getRawQuery();
+        try {
+            if (null != query)
+                decodeForm(query, params);
+        } catch (IllegalArgumentException ex) {
+            return 400;
+        }
+
+        // the token is checked before the body is looked at, and is not part of the event
+        String token = params.remove(TOKEN_PARAM);
+        if (null != secret && (null == token || !MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))))
+            return 403;
+
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String text = new String(body, StandardCharsets.UTF_8);
+        try {
+            if (null != contentType && contentType.toLowerCase(Locale.ROOT).startsWith("application/json"))
+                decodeJson(text, params);
+            else
+                decodeForm(text, params);
+        } catch (IllegalArgumentException | JsonParseException | IllegalStateException ex) {
+            return 400;
+        }
+
+        final CallbackEvent event = new CallbackEvent(params);
+        try {
+            lanes[(event.getProjectId() & Integer.MAX_VALUE) % lanes.length].execute(new Runnable() {
+                public void run() {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException ex) {
+                        // a failing listener must not stop the dispatch thread
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            return 503;
+        }
+
+        return 200;
+    }
+
+    private static byte[] read(InputStream input) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            if (buffer.size() + read > MAX_BODY_SIZE)
+                return null;
+            buffer.write(chunk, 0, read);
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private static void decodeForm(String form, Map<String, String> params) throws UnsupportedEncodingException {
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty())
+                continue;
+
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+    }
+
+    private static void decodeJson(String json, Map<String, String> params) {
+        for (Map.Entry<String, JsonElement> entry : new JsonParser().parse(json).getAsJsonObject().entrySet()) {
+            JsonElement value = entry.getValue();
+            if (value.isJsonNull())
+                continue;
+
+            params.put(entry.getKey(), value.isJsonPrimitive() ? value.getAsString() : value.toString());
+        }
+    }
+
+    /**
+     * Builder of {@link CallbackReceiver CallbackReceiver}
+     */
+    public static class Builder {
+
+        private String host = "127.0.0.1";
+        private int port = 8080;
+        private int backlog = 64;
+        private String path = "/oht/callback";
+        private String publicUrl = null;
+        private String secret = null;
+        private int threads = 4;
+        private int queueCapacity = 1000;
+        private Listener listener = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Address to listen on (defaults to the loopback interface); {@code 0.0.0.0} listens on all interfaces,
+         * in which case a {@link #setSecret secret} should be set
+         */
+        public Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * Port to listen on, 0 picks a free one (defaults to 8080)
+         */
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Maximum number of pending TCP connections (defaults to 64)
+         */
+        public Builder setBacklog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Path of the endpoint (defaults to {@code /oht/callback})
+         */
+        public Builder setPath(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Base URL the service reaches the endpoint at, e.g. {@code https://example.com} behind a reverse proxy;
+         * used by {@link CallbackReceiver#getCallbackUrl()} (defaults to the local address)
+         */
+        public Builder setPublicUrl(String publicUrl) {
+            this.publicUrl = publicUrl;
+            return this;
+        }
+
+        /**
+         * Shared secret that callbacks must carry as the {@code token} query parameter; it is part of
+         * {@link CallbackReceiver#getCallbackUrl()} (defaults to none, callbacks are not authenticated)
+         */
+        public Builder setSecret(String secret) {
+            this.secret = secret;
+            return this;
+        }
+
+        /**
+         * Number of dispatch threads (defaults to 4)
+         */
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Maximum number of events queued per dispatch thread (defaults to 1000)
+         */
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Receiver of the events (required)
+         */
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Builds the receiver and starts listening
+         *
+         * @throws IOException if the port cannot be bound
+         */
+        public CallbackReceiver build() throws IOException {
+            if (null == listener)
+                throw new IllegalArgumentException("listener is required");
+            if (threads < 1 || queueCapacity < 1)
+                throw new IllegalArgumentException("threads and queueCapacity must be positive");
+
+            return new CallbackReceiver(this);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.oht;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fails calls fast while the service looks unhealthy.
+ * After {@code failureThreshold} consecutive transient failures (see {@link RetryPolicy#isTransient(OHTException)})
+ * the breaker opens and calls fail immediately with status code -1. After {@code openMillis} a single trial call
+ * is let through: if it succeeds the breaker closes, otherwise it stays open for another period.
+ * API errors such as invalid parameters count as successes, the service answered them.
+ * <p>
+ * Set it with {@link OHTAPI#setCircuitBreaker(CircuitBreaker)}; share one instance between the
+ * {@link OHTAPI OHTAPI} instances talking to the same service.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private int failureThreshold;
+    private long openMillis;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0;
+    private boolean trialInFlight = false;
+
+    private CircuitBreaker(Builder builder) {
+        this.failureThreshold = builder.failureThreshold;
+        this.openMillis = builder.openMillis;
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Asks to make a call. Every granted call must be followed by {@link #onSuccess()}, {@link #onFailure()}
+     * or {@link #release()}
+     *
+     * @return false if the call should fail fast
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.CLOSED)
+            return true;
+
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            trialInFlight = false;
+        }
+    }
+
+    // a granted call ended without an answer that tells anything about the service, e.g. it was cancelled;
+    // a trial call gives its place to the next one
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    static OHTException openException() {
+        return new OHTException(-1, "Circuit breaker is open, the service is failing", null);
+    }
+
+    /**
+     * Builder of {@link CircuitBreaker CircuitBreaker}
+     */
+    public static class Builder {
+
+        private int failureThreshold = 5;
+        private long openMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private Builder() {
+        }
+
+        /**
+         * Number of consecutive transient failures that opens the breaker (defaults to 5)
+         */
+        public Builder setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * How long the breaker stays open before a trial call, in milliseconds (defaults to 30 seconds)
+         */
+        public Builder setOpenMillis(long openMillis) {
+            this.openMillis = openMillis;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            if (failureThreshold < 1)
+                throw new IllegalArgumentException("failureThreshold must be positive");
+
+            return new CircuitBreaker(this);
+        }
+    }
+}
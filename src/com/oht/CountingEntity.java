@@ -0,0 +1,52 @@
+package com.oht;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response entity counting the bytes read from its content, for {@link MetricsListener MetricsListener}
+ */
+class CountingEntity extends HttpEntityWrapper {
+
+    private long count = 0;
+
+    CountingEntity(HttpEntity entity) {
+        super(entity);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new FilterInputStream(super.getContent()) {
+            @Override
+            public int read() throws IOException {
+                int result = super.read();
+                if (result != -1)
+                    count++;
+                return result;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int result = super.read(buffer, offset, length);
+                if (result > 0)
+                    count += result;
+                return result;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long result = super.skip(n);
+                count += result;
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,454 @@
+package com.oht;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.oht.entities.Expertise;
+import com.oht.entities.Language;
+import com.oht.entities.LanguagePair;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Cache of the discovery endpoints: supported languages, language pairs and expertises.
+ * <ul>
+ * <li>entries are served from memory until their TTL expires;</li>
+ * <li>once an entry is past the refresh-ahead point of its TTL it is reloaded in the background
+ * while callers keep getting the cached value;</li>
+ * <li>concurrent misses of the same entry cost a single API call;</li>
+ * <li>with a snapshot file, entries survive restarts: snapshot data is served right away
+ * and refreshed in the background, for as long as it is younger than the max-stale bound; older snapshot
+ * data is reloaded like a missing entry, so that a failing reload is thrown instead of hidden.</li>
+ * </ul>
+ * One cache may be shared by several {@link OHTAPI OHTAPI} instances, see {@link OHTAPI#setDiscoveryCache(DiscoveryCache)}.
+ * Cached collections are read-only.
+ */
+public class DiscoveryCache {
+
+    interface Loader<T> {
+        T load() throws OHTException;
+    }
+
+    interface AsyncLoader<T> {
+        CompletableFuture<T> load();
+    }
+
+    private static final String LANGUAGES = "languages";
+    private static final String LANGUAGE_PAIRS = "language_pairs";
+    private static final String EXPERTISE = "expertise";
+
+    // default max-stale bound, in TTLs: a week with the default TTL
+    private static final int MAX_STALE_TTLS = 7;
+
+    private long ttlMillis;
+    private long refreshAheadMillis;
+    private long maxStaleMillis;
+    private File snapshotFile;
+    private Executor executor;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+
+    private DiscoveryCache(Builder builder) {
+        this.ttlMillis = builder.ttlMillis;
+        this.refreshAheadMillis = (long) (builder.ttlMillis * builder.refreshAhead);
+        this.maxStaleMillis = builder.maxStaleMillis > 0 ? builder.maxStaleMillis : MAX_STALE_TTLS * builder.ttlMillis;
+        this.snapshotFile = builder.snapshotFile;
+        this.executor = null != builder.executor ? builder.executor : Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oht-discovery-cache");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        if (null != snapshotFile && snapshotFile.isFile())
+            readSnapshot();
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Drops all cached entries. The snapshot file is rewritten on the next load
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    Collection<Language> languages(Loader<Collection<Language>> loader) throws OHTException {
+        return get(LANGUAGES, loader);
+    }
+
+    Collection<LanguagePair> languagePairs(Loader<Collection<LanguagePair>> loader) throws OHTException {
+        return get(LANGUAGE_PAIRS, loader);
+    }
+
+    Collection<Expertise> expertises(String sourceLanguage, String targetLanguage, Loader<Collection<Expertise>> loader) throws OHTException {
+        return get(EXPERTISE + ":" + sourceLanguage + ":" + targetLanguage, loader);
+    }
+
+    CompletableFuture<Collection<Language>> languages(AsyncLoader<Collection<Language>> loader) {
+        return get(LANGUAGES, loader);
+    }
+
+    CompletableFuture<Collection<LanguagePair>> languagePairs(AsyncLoader<Collection<LanguagePair>> loader) {
+        return get(LANGUAGE_PAIRS, loader);
+    }
+
+    CompletableFuture<Collection<Expertise>> expertises(String sourceLanguage, String targetLanguage,
+                                                        AsyncLoader<Collection<Expertise>> loader) {
+        return get(EXPERTISE + ":" + sourceLanguage + ":" + targetLanguage, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, Loader<T> loader) throws OHTException {
+        Entry entry = entries.get(key);
+        long age = null != entry ? System.currentTimeMillis() - entry.loaded : Long.MAX_VALUE;
+
+        if (null != entry && (age < ttlMillis || entry.restored && age < maxStaleMillis)) {
+            if (age >= refreshAheadMillis || entry.restored)
+                refresh(key, loader);
+
+            return (T) entry.value;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (null != inFlight)
+            return (T) await(inFlight);
+
+        load(key, loader, future);
+        return (T) await(future);
+    }
+
+    // non-blocking counterpart of get(Loader), sharing its entries and in-flight loads
+    private <T> CompletableFuture<T> get(String key, AsyncLoader<T> loader) {
+        Entry entry = entries.get(key);
+        long age = null != entry ? System.currentTimeMillis() - entry.loaded : Long.MAX_VALUE;
+
+        if (null != entry && (age < ttlMillis || entry.restored && age < maxStaleMillis)) {
+            if (age >= refreshAheadMillis || entry.restored) {
+                CompletableFuture<Object> future = new CompletableFuture<Object>();
+                if (null == loading.putIfAbsent(key, future))
+                    load(key, loader, future);
+            }
+
+            return CompletableFuture.completedFuture(this.<T>cast(entry.value));
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (null == inFlight)
+            load(key, loader, future);
+        else
+            future = inFlight;
+
+        // a dependent future, so callers cannot complete the shared one
+        return future.thenApply(new Function<Object, T>() {
+            public T apply(Object value) {
+                return cast(value);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    // reloads an entry on the executor unless a load of it is already in flight
+    private void refresh(final String key, final Loader<?> loader) {
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        if (null != loading.putIfAbsent(key, future))
+            return;
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    load(key, loader, future);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            loading.remove(key, future);
+        }
+    }
+
+    private void load(String key, Loader<?> loader, CompletableFuture<Object> future) {
+        try {
+            future.complete(store(key, loader.load()));
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    // starts a load without waiting for it, the loader's future completes the shared one
+    private void load(final String key, AsyncLoader<?> loader, final CompletableFuture<Object> future) {
+        CompletableFuture<?> value;
+        try {
+            value = loader.load();
+        } catch (RuntimeException ex) {
+            loading.remove(key, future);
+            future.completeExceptionally(ex);
+            return;
+        }
+
+        value.whenComplete(new BiConsumer<Object, Throwable>() {
+            public void accept(Object value, Throwable error) {
+                try {
+                    if (null == error)
+                        future.complete(store(key, value));
+                    else
+                        future.completeExceptionally(error instanceof CompletionException && null != error.getCause() ? error.getCause() : error);
+                } finally {
+                    loading.remove(key, future);
+                }
+            }
+        });
+    }
+
+    private Object store(String key, Object value) {
+        if (value instanceof Collection)
+            value = Collections.unmodifiableCollection((Collection<?>) value);
+
+        entries.put(key, new Entry(value, System.currentTimeMillis(), false));
+        scheduleSnapshot();
+        return value;
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws OHTException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof OHTException)
+                throw (OHTException) ex.getCause();
+            throw new OHTException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OHTException(ex);
+        }
+    }
+
+    //<editor-fold desc="SNAPSHOT">
+
+    // coalesces snapshot writes, so warming up many entries rewrites the file only a few times
+    private void scheduleSnapshot() {
+        if (null == snapshotFile || !snapshotPending.compareAndSet(false, true))
+            return;
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    snapshotPending.set(false);
+                    writeSnapshot();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            snapshotPending.set(false);
+        }
+    }
+
+    private void writeSnapshot() {
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8));
+            try {
+                writer.beginObject();
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    writer.name(e.getKey());
+                    writer.beginObject();
+                    writer.name("loaded").value(e.getValue().loaded);
+                    writer.name("value");
+                    writeValue(writer, e.getKey(), e.getValue().value);
+                    writer.endObject();
+                }
+                writer.endObject();
+            } finally {
+                writer.close();
+            }
+
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // the snapshot is an optimization only, the in-memory cache stays valid
+            tmp.delete();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(JsonWriter writer, String key, Object value) throws IOException {
+        writer.beginArray();
+        if (key.equals(LANGUAGES)) {
+            for (Language language : (Collection<Language>) value)
+                writeLanguage(writer, language, null);
+        } else if (key.equals(LANGUAGE_PAIRS)) {
+            for (LanguagePair pair : (Collection<LanguagePair>) value) {
+                writer.beginObject();
+                writer.name("source");
+                writeLanguage(writer, pair.getSource(), null);
+                writer.name("targets");
+                writer.beginArray();
+                for (Map.Entry<Language, String> target : pair.getTargets().entrySet())
+                    writeLanguage(writer, target.getKey(), target.getValue());
+                writer.endArray();
+                writer.endObject();
+            }
+        } else {
+            for (Expertise expertise : (Collection<Expertise>) value) {
+                writer.beginObject();
+                writer.name("expertise_id").value(expertise.getId());
+                writer.name("name").value(expertise.getName());
+                writer.name("code").value(expertise.getCode());
+                writer.endObject();
+            }
+        }
+        writer.endArray();
+    }
+
+    private static void writeLanguage(JsonWriter writer, Language language, String availability) throws IOException {
+        writer.beginObject();
+        writer.name("name").value(language.getName());
+        writer.name("code").value(language.getCode());
+        if (null != availability)
+            writer.name("availability").value(availability);
+        writer.endObject();
+    }
+
+    private void readSnapshot() {
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(snapshotFile), StandardCharsets.UTF_8));
+            try {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String key = reader.nextName();
+                    long loaded = 0;
+                    Object value = null;
+
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if (name.equals("loaded"))
+                            loaded = reader.nextLong();
+                        else if (name.equals("value") && reader.peek() == JsonToken.BEGIN_ARRAY)
+                            value = readValue(reader, key);
+                        else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+
+                    if (null != value)
+                        entries.put(key, new Entry(value, loaded, true));
+                }
+                reader.endObject();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | RuntimeException ex) {
+            // unreadable snapshot, start cold
+            entries.clear();
+        }
+    }
+
+    private static Object readValue(JsonReader reader, String key) throws IOException {
+        ResultReader<? extends Collection<?>> values;
+        if (key.equals(LANGUAGES))
+            values = ResultReaders.LANGUAGES;
+        else if (key.equals(LANGUAGE_PAIRS))
+            values = ResultReaders.LANGUAGE_PAIRS;
+        else
+            values = ResultReaders.EXPERTISES;
+
+        return Collections.unmodifiableCollection(values.read(reader));
+    }
+
+    //</editor-fold>
+
+    private static class Entry {
+        final Object value;
+        final long loaded;
+        final boolean restored; // read from the snapshot, not yet refreshed in this JVM
+
+        Entry(Object value, long loaded, boolean restored) {
+            this.value = value;
+            this.loaded = loaded;
+            this.restored = restored;
+        }
+    }
+
+    /**
+     * Builder of {@link DiscoveryCache DiscoveryCache}
+     */
+    public static class Builder {
+
+        private long ttlMillis = TimeUnit.HOURS.toMillis(24);
+        private double refreshAhead = 0.8;
+        private long maxStaleMillis = 0;
+        private File snapshotFile = null;
+        private Executor executor = null;
+
+        private Builder() {
+        }
+
+        /**
+         * How long entries are served from memory, in milliseconds (defaults to 24 hours)
+         */
+        public Builder setTtlMillis(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Fraction of the TTL after which an entry is reloaded in the background (defaults to 0.8).
+         * {@code 1} disables refresh-ahead
+         */
+        public Builder setRefreshAhead(double refreshAhead) {
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        /**
+         * Age up to which entries restored from the snapshot are served while they are refreshed, in milliseconds
+         * (defaults to 7 times the TTL). Past it they are reloaded before being served, and a failure is thrown
+         */
+        public Builder setMaxStaleMillis(long maxStaleMillis) {
+            this.maxStaleMillis = maxStaleMillis;
+            return this;
+        }
+
+        /**
+         * File to persist entries to, and to restore them from when the cache is built (defaults to none)
+         */
+        public Builder setSnapshotFile(File snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+
+        /**
+         * Executor running background refreshes and snapshot writes (defaults to a single daemon thread)
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public DiscoveryCache build() {
+            return new DiscoveryCache(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.oht;
+
+import org.apache.http.Consts;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import java.io.*;
+
+/**
+ * {@code application/x-www-form-urlencoded} request body, percent-encoded while it is written to the connection.
+ * Unlike {@link org.apache.http.client.entity.UrlEncodedFormEntity UrlEncodedFormEntity} no encoded copy of
+ * the parameters is built, so large values such as resource texts cost a single UTF-8 copy.
+ */
+class FormEntity extends AbstractHttpEntity {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(Consts.ASCII);
+
+    private final byte[] prefix;
+    private final byte[][] names;
+    private final byte[][] values;
+    private final long length;
+
+    /**
+     * @param prefix already encoded parameters sent first, e.g. the credentials
+     * @param names  parameter names in sending order
+     * @param values parameter values, {@code null} values are skipped
+     * @param size   number of parameters
+     */
+    FormEntity(byte[] prefix, String[] names, Object[] values, int size) {
+        int count = 0;
+        for (int i = 0; i < size; i++)
+            if (null != values[i])
+                count++;
+
+        this.prefix = prefix;
+        this.names = new byte[count][];
+        this.values = new byte[count][];
+
+        int j = 0;
+        long length = prefix.length;
+        for (int i = 0; i < size; i++) {
+            if (null == values[i])
+                continue;
+
+            this.names[j] = names[i].getBytes(Consts.UTF_8);
+            this.values[j] = values[i].toString().getBytes(Consts.UTF_8);
+            length += encodedLength(this.names[j]) + 1 + encodedLength(this.values[j]);
+            if (j > 0 || prefix.length > 0)
+                length++; // separator
+            j++;
+        }
+
+        this.length = length;
+        setContentType(ContentType.create("application/x-www-form-urlencoded", Consts.UTF_8).toString());
+    }
+
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    public long getContentLength() {
+        return length;
+    }
+
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) length);
+        writeTo(buffer);
+        return new ByteArrayInputStream(buffer.toByteArray());
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputStream, 8192);
+        out.write(prefix);
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0 || prefix.length > 0)
+                out.write('&');
+            encode(names[i], out);
+            out.write('=');
+            encode(values[i], out);
+        }
+        out.flush();
+    }
+
+    public boolean isStreaming() {
+        return false;
+    }
+
+    // same rules as URLEncoder: unreserved characters are kept, space becomes '+', everything else %XX
+    private static boolean isUnreserved(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '.' || b == '-' || b == '*' || b == '_';
+    }
+
+    private static long encodedLength(byte[] bytes) {
+        long result = 0;
+        for (byte b : bytes)
+            result += isUnreserved(b) || b == ' ' ? 1 : 3;
+
+        return result;
+    }
+
+    /**
+     * Appends the percent-encoded UTF-8 form of {@code value}, by the same rules as the body, without
+     * an intermediate byte array; an unpaired surrogate is encoded as '?' like {@link java.net.URLEncoder URLEncoder} does
+     */
+    static StringBuilder appendEncoded(StringBuilder out, String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (isUnreserved(c))
+                    out.append(c);
+                else if (c == ' ')
+                    out.append('+');
+                else
+                    appendEscaped(out, c);
+            } else if (c < 0x800) {
+                appendEscaped(out, 0xc0 | (c >> 6));
+                appendEscaped(out, 0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(out, 0xf0 | (codePoint >> 18));
+                appendEscaped(out, 0x80 | ((codePoint >> 12) & 0x3f));
+                appendEscaped(out, 0x80 | ((codePoint >> 6) & 0x3f));
+                appendEscaped(out, 0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                appendEscaped(out, '?');
+            } else {
+                appendEscaped(out, 0xe0 | (c >> 12));
+                appendEscaped(out, 0x80 | ((c >> 6) & 0x3f));
+                appendEscaped(out, 0x80 | (c & 0x3f));
+            }
+        }
+
+        return out;
+    }
+
+    private static void appendEscaped(StringBuilder out, int b) {
+        out.append('%').append((char) HEX[(b >> 4) & 0xf]).append((char) HEX[b & 0xf]);
+    }
+
+    private static void encode(byte[] bytes, OutputStream out) throws IOException {
+        for (byte b : bytes) {
+            if (isUnreserved(b)) {
+                out.write(b);
+            } else if (b == ' ') {
+                out.write('+');
+            } else {
+                out.write('%');
+                out.write(HEX[(b >> 4) & 0xf]);
+                out.write(HEX[b & 0xf]);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.oht;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MetricsListener MetricsListener} keeping per-endpoint statistics in memory:
+ * request counts, errors by {@link OHTException#getStatusCode() status code}, bytes sent and received,
+ * and latency and connection lease wait histograms.
+ * Histograms have logarithmic buckets with four steps per power of two, so percentiles are accurate to about 20%.
+ * <p>
+ * Read it with {@link #snapshot()}, e.g. from a metrics exporter.
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<String, Stats>();
+
+    public void onRequest(String method, String endpoint, long latencyNanos, long leaseWaitNanos,
+                          long requestBytes, long responseBytes, OHTException error) {
+        String key = method + " " + endpoint;
+        Stats entry = stats.get(key);
+        if (null == entry) {
+            Stats created = new Stats();
+            entry = stats.putIfAbsent(key, created);
+            if (null == entry)
+                entry = created;
+        }
+
+        entry.record(latencyNanos, leaseWaitNanos, requestBytes, responseBytes, error);
+    }
+
+    /**
+     * Current statistics by {@code "<method> <endpoint template>"}, e.g. {@code "GET /projects/{id}"}
+     */
+    public SortedMap<String, Snapshot> snapshot() {
+        SortedMap<String, Snapshot> result = new TreeMap<String, Snapshot>();
+        for (Map.Entry<String, Stats> entry : stats.entrySet())
+            result.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+
+        return result;
+    }
+
+    /**
+     * Drops all statistics
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    private static class Stats {
+        private long count = 0;
+        private long requestBytes = 0;
+        private long responseBytes = 0;
+        private final Map<Integer, Long> errors = new TreeMap<Integer, Long>();
+        private final Histogram latency = new Histogram();
+        private final Histogram leaseWait = new Histogram();
+
+        synchronized void record(long latencyNanos, long leaseWaitNanos, long requestBytes, long responseBytes, OHTException error) {
+            count++;
+            if (requestBytes > 0)
+                this.requestBytes += requestBytes;
+            this.responseBytes += responseBytes;
+            latency.record(latencyNanos);
+            if (leaseWaitNanos >= 0)
+                leaseWait.record(leaseWaitNanos);
+
+            if (null != error) {
+                Long errorCount = errors.get(error.getStatusCode());
+                errors.put(error.getStatusCode(), null != errorCount ? errorCount + 1 : 1);
+            }
+        }
+
+        synchronized Snapshot snapshot(String endpoint) {
+            return new Snapshot(endpoint, count, requestBytes, responseBytes, new TreeMap<Integer, Long>(errors),
+                    latency.copy(), leaseWait.copy());
+        }
+    }
+
+    /**
+     * Statistics of one endpoint at the time of {@link #snapshot()}
+     */
+    public static class Snapshot {
+
+        private String endpoint;
+        private long count;
+        private long requestBytes;
+        private long responseBytes;
+        private Map<Integer, Long> errors;
+        private Histogram latency;
+        private Histogram leaseWait;
+
+        Snapshot(String endpoint, long count, long requestBytes, long responseBytes, Map<Integer, Long> errors,
+                 Histogram latency, Histogram leaseWait) {
+            this.endpoint = endpoint;
+            this.count = count;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.errors = Collections.unmodifiableMap(errors);
+            this.latency = latency;
+            this.leaseWait = leaseWait;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * Number of exchanges, failed ones included
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrorCount() {
+            long result = 0;
+            for (long errorCount : errors.values())
+                result += errorCount;
+            return result;
+        }
+
+        /**
+         * Number of failed exchanges by {@link OHTException#getStatusCode() status code}
+         */
+        public Map<Integer, Long> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Request body bytes sent, as far as their size was known up front
+         */
+        public long getRequestBytes() {
+            return requestBytes;
+        }
+
+        public long getResponseBytes() {
+            return responseBytes;
+        }
+
+        /**
+         * Latency percentile in milliseconds, e.g. {@code getLatencyMillis(99)}
+         */
+        public double getLatencyMillis(double percentile) {
+            return latency.percentileMillis(percentile);
+        }
+
+        public double getMeanLatencyMillis() {
+            return latency.meanMillis();
+        }
+
+        public double getMaxLatencyMillis() {
+            return latency.maxMillis();
+        }
+
+        /**
+         * Connection lease wait percentile in milliseconds, over the exchanges where it was measured
+         */
+        public double getLeaseWaitMillis(double percentile) {
+            return leaseWait.percentileMillis(percentile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s count=%d errors=%s p50=%.1fms p99=%.1fms max=%.1fms lease.p99=%.1fms in=%d out=%d",
+                    endpoint, count, errors, getLatencyMillis(50), getLatencyMillis(99), getMaxLatencyMillis(),
+                    getLeaseWaitMillis(99), responseBytes, requestBytes);
+        }
+    }
+
+    // log-linear histogram of microsecond values
+    static class Histogram {
+        private long[] counts = new long[248];
+        private long count = 0;
+        private long sum = 0;
+        private long max = 0;
+
+        void record(long nanos) {
+            long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+            counts[index(micros)]++;
+            count++;
+            sum += micros;
+            max = Math.max(max, micros);
+        }
+
+        Histogram copy() {
+            Histogram result = new Histogram();
+            result.counts = counts.clone();
+            result.count = count;
+            result.sum = sum;
+            result.max = max;
+            return result;
+        }
+
+        double percentileMillis(double percentile) {
+            if (0 == count)
+                return 0;
+
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target)
+                    return Math.min(upperBound(i), max) / 1000.0;
+            }
+
+            return max / 1000.0;
+        }
+
+        double meanMillis() {
+            return 0 == count ? 0 : sum / 1000.0 / count;
+        }
+
+        double maxMillis() {
+            return max / 1000.0;
+        }
+
+        private static int index(long value) {
+            if (value < 4)
+                return (int) value;
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int step = (int) (value >> (exponent - 2)) & 3;
+            return 4 * (exponent - 1) + step;
+        }
+
+        private static long upperBound(int index) {
+            if (index < 4)
+                return index;
+
+            int exponent = index / 4 + 1;
+            int step = index % 4;
+            return ((5L + step) << (exponent - 2)) - 1;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.oht;
+
+import com.oht.entities.Expertise;
+import com.oht.entities.Language;
+import com.oht.entities.LanguagePair;
+
+import java.util.*;
+
+/**
+ * Immutable index of the languages, language pairs and (optionally) expertises supported by OHT,
+ * keyed by code for constant-time lookups.
+ * <p>
+ * Set it on an {@link OHTAPI OHTAPI} with {@link OHTAPI#setLanguageCatalog(LanguageCatalog) setLanguageCatalog}
+ * to reject unsupported languages, pairs and expertises locally instead of paying a round trip.
+ * Build a new catalog to pick up changes on the service side.
+ */
+public class LanguageCatalog {
+
+    private final Map<String, Language> languages;
+    private final Map<String, Map<String, String>> targets; // source code -> target code -> availability
+    private final Map<String, Map<String, Set<String>>> expertises; // source code -> target code -> expertise codes
+
+    private LanguageCatalog(Collection<Language> languages,
+                            Collection<LanguagePair> pairs,
+                            Map<String, Map<String, Set<String>>> expertises) {
+        Map<String, Language> languageIndex = new HashMap<String, Language>();
+        for (Language language : languages)
+            languageIndex.put(language.getCode(), language);
+
+        Map<String, Map<String, String>> targetIndex = new HashMap<String, Map<String, String>>();
+        for (LanguagePair pair : pairs) {
+            Map<String, String> pairTargets = new HashMap<String, String>();
+            for (Map.Entry<Language, String> target : pair.getTargets().entrySet()) {
+                pairTargets.put(target.getKey().getCode(), target.getValue());
+                if (!languageIndex.containsKey(target.getKey().getCode()))
+                    languageIndex.put(target.getKey().getCode(), target.getKey());
+            }
+
+            if (!languageIndex.containsKey(pair.getSource().getCode()))
+                languageIndex.put(pair.getSource().getCode(), pair.getSource());
+
+            targetIndex.put(pair.getSource().getCode(), Collections.unmodifiableMap(pairTargets));
+        }
+
+        this.languages = Collections.unmodifiableMap(languageIndex);
+        this.targets = Collections.unmodifiableMap(targetIndex);
+        this.expertises = expertises;
+    }
+
+    /**
+     * Builds a catalog of languages and language pairs from the discovery endpoints.
+     * Expertise codes are not validated by such a catalog
+     *
+     * @param api API instance to load the data with
+     * @throws OHTException
+     */
+    public static LanguageCatalog load(OHTAPI api) throws OHTException {
+        return load(api, false);
+    }
+
+    /**
+     * Builds a catalog from the discovery endpoints
+     *
+     * @param api                API instance to load the data with
+     * @param includeExpertises  also load the expertises of every language pair; this costs one call per pair
+     *                           unless the API has a {@link DiscoveryCache DiscoveryCache}
+     * @throws OHTException
+     */
+    public static LanguageCatalog load(OHTAPI api, boolean includeExpertises) throws OHTException {
+        Collection<Language> languages = api.getSupportedLanguages();
+        Collection<LanguagePair> pairs = api.getSupportedLanguagePairs();
+
+        Map<String, Map<String, Set<String>>> expertises = null;
+        if (includeExpertises) {
+            expertises = new HashMap<String, Map<String, Set<String>>>();
+            for (LanguagePair pair : pairs) {
+                Map<String, Set<String>> pairExpertises = new HashMap<String, Set<String>>();
+                for (Language target : pair.getTargets().keySet()) {
+                    Set<String> codes = new HashSet<String>();
+                    for (Expertise expertise : api.getSupportedExpertises(pair.getSource().getCode(), target.getCode()))
+                        codes.add(expertise.getCode());
+
+                    pairExpertises.put(target.getCode(), Collections.unmodifiableSet(codes));
+                }
+                expertises.put(pair.getSource().getCode(), Collections.unmodifiableMap(pairExpertises));
+            }
+            expertises = Collections.unmodifiableMap(expertises);
+        }
+
+        return new LanguageCatalog(languages, pairs, expertises);
+    }
+
+    /**
+     * Builds a catalog from already fetched discovery data, without expertises
+     */
+    public static LanguageCatalog of(Collection<Language> languages, Collection<LanguagePair> pairs) {
+        return new LanguageCatalog(languages, pairs, null);
+    }
+
+    /**
+     * Language by its code, or {@code null} if not supported
+     */
+    public Language getLanguage(String code) {
+        return languages.get(code);
+    }
+
+    /**
+     * All supported languages
+     */
+    public Collection<Language> getLanguages() {
+        return languages.values();
+    }
+
+    public boolean isSupportedLanguage(String code) {
+        return languages.containsKey(code);
+    }
+
+    public boolean isSupportedPair(String sourceLanguage, String targetLanguage) {
+        Map<String, String> pairTargets = targets.get(sourceLanguage);
+        return null != pairTargets && pairTargets.containsKey(targetLanguage);
+    }
+
+    /**
+     * Availability of the language pair (high | medium | low), or {@code null} if the pair is not supported
+     */
+    public String getAvailability(String sourceLanguage, String targetLanguage) {
+        Map<String, String> pairTargets = targets.get(sourceLanguage);
+        return null != pairTargets ? pairTargets.get(targetLanguage) : null;
+    }
+
+    /**
+     * Whether the catalog was loaded with expertises, i.e. validates expertise codes
+     */
+    public boolean hasExpertises() {
+        return null != expertises;
+    }
+
+    /**
+     * Whether the expertise is offered for the language pair.
+     * Always {@code true} if the catalog was loaded without expertises
+     */
+    public boolean isSupportedExpertise(String sourceLanguage, String targetLanguage, String expertise) {
+        if (null == expertises)
+            return true;
+
+        Map<String, Set<String>> pairExpertises = expertises.get(sourceLanguage);
+        Set<String> codes = null != pairExpertises ? pairExpertises.get(targetLanguage) : null;
+        return null != codes && codes.contains(expertise);
+    }
+
+    /**
+     * Checks the parameters of a request before it is sent
+     *
+     * @param sourceLanguage source language, checked if not {@code null}
+     * @param targetLanguage (optional) target language
+     * @param expertise      (optional) expertise code
+     * @throws OHTException if the language, pair or expertise is not supported
+     */
+    public void validate(String sourceLanguage, String targetLanguage, String expertise) throws OHTException {
+        if (null == sourceLanguage)
+            return;
+
+        if (!isSupportedLanguage(sourceLanguage))
+            throw new OHTException(-1, "Unsupported language: " + sourceLanguage, null);
+
+        if (null == targetLanguage)
+            return;
+
+        if (!isSupportedPair(sourceLanguage, targetLanguage))
+            throw new OHTException(-1, "Unsupported language pair: " + sourceLanguage + " > " + targetLanguage, null);
+
+        if (null != expertise && !expertise.isEmpty() && !isSupportedExpertise(sourceLanguage, targetLanguage, expertise))
+            throw new OHTException(-1, "Unsupported expertise for " + sourceLanguage + " > " + targetLanguage + ": " + expertise, null);
+    }
+}
@@ -0,0 +1,34 @@
+package com.oht;
+
+/**
+ * Receives measurements of every HTTP exchange made by {@link OHTAPI OHTAPI} and {@link OHTAsyncAPI OHTAsyncAPI};
+ * retries are reported as separate exchanges. Called on the requesting thread (the I/O reactor thread for
+ * async calls), so implementations must be thread-safe and quick.
+ * <p>
+ * Set it with {@link OHTAPI#setMetricsListener(MetricsListener)}; {@link InMemoryMetrics InMemoryMetrics}
+ * is a ready-made recorder. With the default {@link #NONE NONE} nothing is measured at all.
+ */
+public interface MetricsListener {
+
+    /**
+     * Listener that measures nothing
+     */
+    MetricsListener NONE = new MetricsListener() {
+        public void onRequest(String method, String endpoint, long latencyNanos, long leaseWaitNanos,
+                              long requestBytes, long responseBytes, OHTException error) {
+        }
+    };
+
+    /**
+     * @param method         HTTP method
+     * @param endpoint       endpoint template, with IDs replaced by placeholders, e.g. {@code /projects/{id}}
+     * @param latencyNanos   time from sending the request to reading the whole response
+     * @param leaseWaitNanos time spent waiting for a pooled connection, or -1 if not known
+     *                       (async calls and caller-supplied clients)
+     * @param requestBytes   request body size, or -1 if not known up front
+     * @param responseBytes  response body bytes read
+     * @param error          failure of the exchange, or {@code null} on success
+     */
+    void onRequest(String method, String endpoint, long latencyNanos, long leaseWaitNanos,
+                   long requestBytes, long responseBytes, OHTException error);
+}
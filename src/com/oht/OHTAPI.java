@@ -1,28 +1,74 @@
 package com.oht;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import com.oht.entities.*;
+import org.apache.http.*;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.client.methods.ZeroCopyConsumer;
+import org.apache.http.protocol.HttpContext;
 
 import java.io.*;
-import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
-public class OHTAPI {
+public class OHTAPI implements Closeable {
 
     //<editor-fold desc="CONSTRUCTOR / PROPERTIES"
 
-    private static String baseUrl = "https://www.onehourtranslation.com/api/2";
-    private static String baseUrl_sandbox = "https://sandbox.onehourtranslation.com/api/2";
+    private static final String baseUrl = "https://www.onehourtranslation.com/api/2";
+    private static final String baseUrl_sandbox = "https://sandbox.onehourtranslation.com/api/2";
 
-    private String secretKey = "";
-    private String publicKey = "";
-    private boolean useSandbox = false;
-
-    private static JsonParser parser = new JsonParser();
+    /*
+     * Instances are safe for concurrent use: the credentials and transport settings are final, the pluggable
+     * policies are volatile, so a setter takes effect for calls started after it returns, and clients are
+     * created once under a lock.
+     */
+    private final String secretKey;
+    private final String publicKey;
+    private final String credentials; // percent-encoded credential parameters, sent with every request
+    private final byte[] credentialBytes;
+    private final boolean useSandbox;
+
+    private final OHTClientConfig config;
+    private final OHTClientFactory factory; // transport shared with other tenants, or null
+    private final TenantQuota quota; // requests in flight allowed by the factory, or null for no limit
+    private volatile DiscoveryCache discoveryCache = null;
+    private volatile WordCountCache wordCountCache = null;
+    private volatile TranslationMemory translationMemory = null;
+    private volatile LanguageCatalog languageCatalog = null;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private volatile CircuitBreaker circuitBreaker = null;
+    private volatile RateLimiter rateLimiter = null;
+    private volatile MetricsListener metricsListener = MetricsListener.NONE;
+
+    private static volatile RateLimiter defaultRateLimiter = null;
+    private volatile CloseableHttpClient httpClient = null;
+    private volatile CloseableHttpAsyncClient httpAsyncClient = null;
+
+    // holds no state of its own, parse() only reads from the reader it is given
+    private static final JsonParser parser = new JsonParser();
 
     /**
      * Constructs OHT API instance
@@ -42,9 +88,162 @@ public class OHTAPI {
      * @param useSandbox use sandbox environment
      */
     public OHTAPI(String secretKey, String publicKey, boolean useSandbox) {
+        this(secretKey, publicKey, useSandbox, null);
+    }
+
+    /**
+     * Constructs OHT API instance with its own HTTP transport.
+     * Without a config, all instances share one JVM-wide connection pool built from {@link OHTClientConfig#DEFAULT}
+     *
+     * @param secretKey  secret API key
+     * @param publicKey  public API key
+     * @param useSandbox use sandbox environment
+     * @param config     connection pool, timeouts and eviction settings, or caller-owned clients
+     */
+    public OHTAPI(String secretKey, String publicKey, boolean useSandbox, OHTClientConfig config) {
+        this(secretKey, publicKey, useSandbox, config, null, null);
+    }
+
+    // tenant of an OHTClientFactory, using its clients within its quota
+    OHTAPI(String secretKey, String publicKey, boolean useSandbox, OHTClientConfig config,
+           OHTClientFactory factory, TenantQuota quota) {
         this.secretKey = secretKey;
         this.publicKey = publicKey;
         this.useSandbox = useSandbox;
+        this.config = config;
+        this.factory = factory;
+        this.quota = quota;
+
+        StringBuilder encoded = new StringBuilder();
+        if (null != publicKey)
+            FormEntity.appendEncoded(encoded.append("public_key="), publicKey);
+        if (null != secretKey)
+            FormEntity.appendEncoded(encoded.append(encoded.length() > 0 ? "&" : "").append("secret_key="), secretKey);
+        this.credentials = encoded.toString();
+        this.credentialBytes = credentials.getBytes(Consts.ASCII);
+    }
+
+    /**
+     * Serves {@link #getSupportedLanguages() getSupportedLanguages},
+     * {@link #getSupportedLanguagePairs() getSupportedLanguagePairs} and
+     * {@link #getSupportedExpertises(String, String) getSupportedExpertises} from a cache,
+     * also when called through an {@link OHTAsyncAPI OHTAsyncAPI} of this instance
+     *
+     * @param discoveryCache cache to use, or {@code null} to always call the API
+     */
+    public void setDiscoveryCache(DiscoveryCache discoveryCache) {
+        this.discoveryCache = discoveryCache;
+    }
+
+    DiscoveryCache getDiscoveryCache() {
+        return discoveryCache;
+    }
+
+    /**
+     * Serves {@link #getWordCount(String[]) getWordCount} from a cache of counts by resource,
+     * counting only the resources not cached yet, also when called through an {@link OHTAsyncAPI OHTAsyncAPI} of this instance
+     *
+     * @param wordCountCache cache to use, or {@code null} to always call the API
+     */
+    public void setWordCountCache(WordCountCache wordCountCache) {
+        this.wordCountCache = wordCountCache;
+    }
+
+    WordCountCache getWordCountCache() {
+        return wordCountCache;
+    }
+
+    /**
+     * Serves {@link #machineTranslation(String, String, String) machineTranslation}, and its
+     * {@link OHTAsyncAPI#machineTranslation(String, String, String) async counterpart}, from a persistent store
+     * of earlier translations, and adds new ones to it unless it is read-only
+     *
+     * @param translationMemory store to use, or {@code null} to always call the API
+     */
+    public void setTranslationMemory(TranslationMemory translationMemory) {
+        this.translationMemory = translationMemory;
+    }
+
+    TranslationMemory getTranslationMemory() {
+        return translationMemory;
+    }
+
+    /**
+     * Validates languages, language pairs and expertises of project and quote requests locally
+     * before they are sent. Unsupported values fail with an {@link OHTException OHTException}
+     * without a round trip to the service
+     *
+     * @param languageCatalog catalog to validate against, or {@code null} to leave validation to the service
+     */
+    public void setLanguageCatalog(LanguageCatalog languageCatalog) {
+        this.languageCatalog = languageCatalog;
+    }
+
+    /**
+     * Retries idempotent calls that failed transiently
+     *
+     * @param retryPolicy when and how often to retry, or {@code null} to never retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = null != retryPolicy ? retryPolicy : RetryPolicy.NONE;
+    }
+
+    /**
+     * Fails calls fast while the service keeps failing
+     *
+     * @param circuitBreaker breaker to guard calls with, may be shared with other instances, or {@code null} for none
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Throttles the requests of this instance
+     *
+     * @param rateLimiter limiter to take permits from, or {@code null} to use the default one
+     * @see #setDefaultRateLimiter(RateLimiter)
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Throttles the requests of all instances without a limiter of their own
+     *
+     * @param rateLimiter limiter to take permits from, or {@code null} for none
+     */
+    public static void setDefaultRateLimiter(RateLimiter rateLimiter) {
+        defaultRateLimiter = rateLimiter;
+    }
+
+    /**
+     * Reports latency, transferred bytes and errors of every HTTP exchange of this instance
+     *
+     * @param metricsListener listener to report to, e.g. {@link InMemoryMetrics InMemoryMetrics}, or {@code null} for none
+     */
+    public void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = null != metricsListener ? metricsListener : MetricsListener.NONE;
+    }
+
+    /**
+     * Releases the connection pools built for this instance from its {@link OHTClientConfig OHTClientConfig}.
+     * The shared default pool and caller-owned clients are left open
+     */
+    public void close() throws IOException {
+        CloseableHttpClient httpClient;
+        CloseableHttpAsyncClient httpAsyncClient;
+        synchronized (this) {
+            httpClient = this.httpClient;
+            httpAsyncClient = this.httpAsyncClient;
+            this.httpClient = null;
+            this.httpAsyncClient = null;
+        }
+
+        if (null != httpClient && httpClient != config.getHttpClient())
+            httpClient.close();
+
+        if (null != httpAsyncClient && httpAsyncClient != config.getAsyncClient())
+            httpAsyncClient.close();
     }
 
     //</editor-fold>
@@ -58,9 +257,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public AccountDetails getAccountDetails() throws OHTException {
-        JsonElement account = request("/account").get();
-        AccountDetails result = new AccountDetails(account.getAsJsonObject());
-        return result;
+        return accountDetailsRequest().get(ResultReaders.ACCOUNT_DETAILS);
+    }
+
+    Request accountDetailsRequest() {
+        return request("/account");
     }
 
     //</editor-fold>
@@ -79,6 +280,10 @@ public class OHTAPI {
      * @throws OHTException
      */
     public String uploadFileResource(String fileName, String fileMime, String uploadFilePath, String fileContent) throws OHTException {
+        return uploadRequest(fileName, fileMime, uploadFilePath, fileContent).post(ResultReaders.FIRST_STRING);
+    }
+
+    Request uploadRequest(String fileName, String fileMime, String uploadFilePath, String fileContent) {
         Request request
             = request("/resources/file")
                 .param("file_name", fileName)
@@ -88,10 +293,79 @@ public class OHTAPI {
         if (null != uploadFilePath)
             request.param("upload", new File(uploadFilePath));
 
+        return request;
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation, streaming its content from {@code content}
+     *
+     * @param fileName name of the file on One Hour Translation
+     * @param fileMime (optional) mime type of the file
+     * @param content  content of the file, read until its end but not closed
+     * @param listener (optional) upload progress listener
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadFileResource(String fileName, String fileMime, InputStream content, ProgressListener listener) throws OHTException {
+        return uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).post(ResultReaders.FIRST_STRING);
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation, streaming its content from {@code content}
+     *
+     * @param fileName name of the file on One Hour Translation
+     * @param fileMime (optional) mime type of the file
+     * @param content  content of the file, read until its end but not closed
+     * @param listener (optional) upload progress listener
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadFileResource(String fileName, String fileMime, ReadableByteChannel content, ProgressListener listener) throws OHTException {
+        return uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).post(ResultReaders.FIRST_STRING);
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation from the remaining bytes of {@code content}.
+     * The position of {@code content} is not changed
+     *
+     * @param fileName name of the file on One Hour Translation
+     * @param fileMime (optional) mime type of the file
+     * @param content  content of the file
+     * @param listener (optional) upload progress listener
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadFileResource(String fileName, String fileMime, ByteBuffer content, ProgressListener listener) throws OHTException {
+        return uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).post(ResultReaders.FIRST_STRING);
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation
+     *
+     * @param fileName (optional) name of the file on One Hour Translation, defaults to the name of {@code content}
+     * @param fileMime (optional) mime type of the file
+     * @param content  file to upload
+     * @param listener (optional) upload progress listener
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadFileResource(String fileName, String fileMime, Path content, ProgressListener listener) throws OHTException {
+        return uploadRequest(fileName, fileMime, pathBody(fileName, fileMime, content, listener)).post(ResultReaders.FIRST_STRING);
+    }
 
-        JsonArray array = request.post().getAsJsonArray();
+    Request uploadRequest(String fileName, String fileMime, ContentBody content) {
+        return request("/resources/file")
+                .param("file_name", fileName)
+                .param("file_mime", fileMime)
+                .param("upload", content);
+    }
 
-        return array.get(0).getAsString();
+    static ContentBody pathBody(String fileName, String fileMime, Path content, ProgressListener listener) throws OHTException {
+        try {
+            return UploadBody.of(fileName, fileMime, content, listener);
+        } catch (IOException ex) {
+            throw new OHTException(ex);
+        }
     }
 
     /**
@@ -103,13 +377,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public String uploadTextResource(String text) throws OHTException {
-        Request request
-                = request("/resources/text")
-                .param("text", text);
-
-        JsonArray array = request.post().getAsJsonArray();
+        return textResourceRequest(text).post(ResultReaders.FIRST_STRING);
+    }
 
-        return array.get(0).getAsString();
+    Request textResourceRequest(String text) {
+        return request("/resources/text").param("text", text);
     }
 
     /**
@@ -123,8 +395,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Resource getResource(String resourceUuid, Integer projectId, String fetch) throws OHTException {
-        JsonElement json = request("/resources/" + resourceUuid).param("project_id", projectId).param("fetch", fetch).get();
-        return new Resource(json.getAsJsonObject());
+        return resourceRequest(resourceUuid, projectId, fetch).get(ResultReaders.RESOURCE);
+    }
+
+    Request resourceRequest(String resourceUuid, Integer projectId, String fetch) {
+        return request("/resources/" + resourceUuid).param("project_id", projectId).param("fetch", fetch);
     }
 
     /**
@@ -137,10 +412,39 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void downloadResource(String resourceUuid, Integer projectId, String fileToSave) throws OHTException {
-        request("/resources/" + resourceUuid + "/download")
-                .param("project_id", projectId)
-                .param("download", new File(fileToSave))
-                .get();
+        downloadRequest(resourceUuid, projectId).param("download", new File(fileToSave)).get(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID into {@code target}, which is not closed
+     *
+     * @param resourceUuid UUID of resource
+     * @param projectId    (optional) project ID, needed when requesting a resource that was uploaded
+     *                     by another user - e.g. as a project’s
+     * @param target       stream to write the resource to
+     * @throws OHTException
+     */
+    public void downloadResource(String resourceUuid, Integer projectId, OutputStream target) throws OHTException {
+        downloadRequest(resourceUuid, projectId).param("download", target).get(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID into {@code target}, which is not closed.
+     * A {@link java.nio.channels.FileChannel FileChannel} is written from its current position
+     *
+     * @param resourceUuid UUID of resource
+     * @param projectId    (optional) project ID, needed when requesting a resource that was uploaded
+     *                     by another user - e.g. as a project’s
+     * @param target       channel to write the resource to
+     * @throws OHTException
+     */
+    public void downloadResource(String resourceUuid, Integer projectId, WritableByteChannel target) throws OHTException {
+        downloadRequest(resourceUuid, projectId).param("download", target).get(ResultReaders.NOTHING);
+    }
+
+    // the download target is set by the caller
+    Request downloadRequest(String resourceUuid, Integer projectId) {
+        return request("/resources/" + resourceUuid + "/download").param("project_id", projectId);
     }
 
     //</editor-fold>
@@ -171,8 +475,15 @@ public class OHTAPI {
             String proofreading,
             String currency) throws OHTException {
 
-        Request request
-            = request("/tools/quote")
+        return quoteRequest(resources, wordCount, sourceLang, targetLang, service, expertise, proofreading, currency)
+                .get(ResultReaders.QUOTE);
+    }
+
+    Request quoteRequest(String[] resources, int wordCount, String sourceLang, String targetLang, String service,
+                         String expertise, String proofreading, String currency) throws OHTException {
+        validate(sourceLang, targetLang, expertise);
+
+        return request("/tools/quote")
                 .param("resources", resources)
                 .param("wordcount", wordCount)
                 .param("source_language", sourceLang)
@@ -181,10 +492,6 @@ public class OHTAPI {
                 .param("expertise", expertise)
                 .param("proofreading", proofreading)
                 .param("currency", currency);
-
-        JsonElement json = request.get();
-
-        return new Quote(json.getAsJsonObject());
     }
 
     /**
@@ -194,9 +501,20 @@ public class OHTAPI {
      * @return {@link WordCount WordCount} object
      */
     public WordCount getWordCount(String[] resources) throws OHTException {
-        JsonElement json = request("/tools/wordcount").param("resources", resources).get();
+        WordCountCache cache = wordCountCache;
+        if (null != cache && null != resources) {
+            return cache.wordCount(resources, new WordCountCache.Loader() {
+                public WordCount load(String[] missing) throws OHTException {
+                    return wordCountRequest(missing).get(ResultReaders.WORD_COUNT);
+                }
+            });
+        }
+
+        return wordCountRequest(resources).get(ResultReaders.WORD_COUNT);
+    }
 
-        return new WordCount(json.getAsJsonObject());
+    Request wordCountRequest(String[] resources) {
+        return request("/tools/wordcount").param("resources", resources);
     }
 
     //</editor-fold>
@@ -230,6 +548,25 @@ public class OHTAPI {
              String[] reference_resources,
              String[] custom) throws OHTException {
 
+        return translationProjectRequest(sourceLanguage, targetLanguage, resources, wordCount, notes, expertise,
+                callbackUrl, name, reference_resources, custom)
+                .post(ResultReaders.PROJECT);
+    }
+
+    Request translationProjectRequest
+            (String sourceLanguage,
+             String targetLanguage,
+             String[] resources,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) throws OHTException {
+
+        validate(sourceLanguage, targetLanguage, expertise);
+
         Request request
             = request("/projects/translation")
                 .param("source_language", sourceLanguage)
@@ -254,9 +591,7 @@ public class OHTAPI {
             }
         }
 
-        JsonElement json = request.post();
-
-        return new Project(json.getAsJsonObject());
+        return request;
     }
 
     /**
@@ -284,6 +619,24 @@ public class OHTAPI {
              String[] reference_resources,
              String[] custom) throws OHTException {
 
+        return proofreadingProjectRequest(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name,
+                reference_resources, custom)
+                .post(ResultReaders.PROJECT);
+    }
+
+    Request proofreadingProjectRequest
+            (String sourceLanguage,
+             String[] sources,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) throws OHTException {
+
+        validate(sourceLanguage, null, null);
+
         Request request
             = request("/projects/proof-general")
                 .param("source_language", sourceLanguage)
@@ -304,9 +657,7 @@ public class OHTAPI {
             request.param("reference_resources", reference_resources);
         }
 
-        JsonElement json = request.post();
-
-        return new Project(json.getAsJsonObject());
+        return request;
     }
 
     /**
@@ -337,6 +688,26 @@ public class OHTAPI {
              String[] reference_resources,
              String[] custom) throws OHTException {
 
+        return proofTranslatedProjectRequest(sourceLanguage, targetLanguage, sources, translations, wordCount,
+                notes, expertise, callbackUrl, name, reference_resources, custom)
+                .post(ResultReaders.PROJECT);
+    }
+
+    Request proofTranslatedProjectRequest
+            (String sourceLanguage,
+             String targetLanguage,
+             String[] sources,
+             String[] translations,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) throws OHTException {
+
+        validate(sourceLanguage, targetLanguage, expertise);
+
         Request request
             = request("/projects/proof-translated")
                 .param("source_language", sourceLanguage)
@@ -362,8 +733,7 @@ public class OHTAPI {
             request.param("reference_resources", reference_resources);
         }
 
-        JsonElement json = request.post();
-        return new Project(json.getAsJsonObject());
+        return request;
     }
 
     /**
@@ -389,6 +759,24 @@ public class OHTAPI {
              String[] reference_resources,
              String[] custom) throws OHTException {
 
+        return transcriptionProjectRequest(sourceLanguage, sources, length, notes, expertise, callbackUrl, name,
+                reference_resources, custom)
+                .post(ResultReaders.PROJECT);
+    }
+
+    Request transcriptionProjectRequest
+            (String sourceLanguage,
+             String[] sources,
+             Integer length,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) throws OHTException {
+
+        validate(sourceLanguage, null, null);
+
         Request request
             = request("/projects/transcription")
                 .param("source_language", sourceLanguage)
@@ -409,8 +797,7 @@ public class OHTAPI {
             request.param("reference_resources", reference_resources);
         }
 
-        JsonElement json = request.post();
-        return new Project(json.getAsJsonObject());
+        return request;
     }
 
     /**
@@ -440,6 +827,25 @@ public class OHTAPI {
      String[] reference_resources,
      String[] custom) throws OHTException {
 
+        return translationPlusEditingProjectRequest(sourceLanguage, targetLanguage, resources, wordCount, notes,
+                expertise, callbackUrl, name, reference_resources, custom)
+                .post(ResultReaders.PROJECT);
+    }
+
+    Request translationPlusEditingProjectRequest
+    (String sourceLanguage,
+     String targetLanguage,
+     String[] resources,
+     Integer wordCount,
+     String notes,
+     String expertise,
+     String callbackUrl,
+     String name,
+     String[] reference_resources,
+     String[] custom) throws OHTException {
+
+        validate(sourceLanguage, targetLanguage, expertise);
+
         Request request
                 = request("/projects/transproof")
                 .param("source_language", sourceLanguage)
@@ -464,9 +870,7 @@ public class OHTAPI {
             }
         }
 
-        JsonElement json = request.post();
-
-        return new Project(json.getAsJsonObject());
+        return request;
     }
 
     /**
@@ -477,8 +881,12 @@ public class OHTAPI {
      * @throws OHTException
      */
     public ProjectDetails getProjectDetails(int projectId) throws OHTException {
-        JsonElement json = request("/projects/" + Integer.toString(projectId)).get();
-        return new ProjectDetails(json.getAsJsonObject());
+        return projectRequest(projectId).get(ResultReaders.PROJECT_DETAILS);
+    }
+
+    // details when fetched, cancellation when deleted
+    Request projectRequest(int projectId) {
+        return request("/projects/" + projectId);
     }
 
     /**
@@ -488,7 +896,7 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void cancelProject(int projectId) throws OHTException {
-        request("/projects/" + Integer.toString(projectId)).delete();
+        projectRequest(projectId).delete(ResultReaders.NOTHING);
     }
 
     /**
@@ -499,16 +907,12 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Collection<Comment> getProjectComments(int projectId) throws OHTException {
-        JsonElement json = request(String.format("/projects/%d/comments", projectId)).get();
-
-        List<Comment> results = new ArrayList<Comment>();
-        JsonArray array = json.getAsJsonArray();
-        for (JsonElement e : array)
-            results.add(new Comment(e.getAsJsonObject()));
-
-        Collections.sort(results);
+        return commentsRequest(projectId).get(ResultReaders.COMMENTS);
+    }
 
-        return results;
+    // comments when fetched, a new comment when posted with its content
+    Request commentsRequest(int projectId) {
+        return request("/projects/" + projectId + "/comments");
     }
 
     /**
@@ -519,9 +923,7 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void postProjectComment(int projectId, String content) throws OHTException {
-        request(String.format("/projects/%d/comments", projectId))
-                .param("content", content)
-                .post();
+        commentsRequest(projectId).param("content", content).post(ResultReaders.NOTHING);
     }
 
     /**
@@ -532,16 +934,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Collection<Rating> retrieveProjectRatings(int projectId) throws OHTException {
-        JsonElement json = request(String.format("/projects/%d/rating", projectId)).get();
-
-        List<Rating> results = new ArrayList<Rating>();
-        JsonArray array = json.getAsJsonArray();
-        for (JsonElement e : array)
-            results.add(new Rating(e.getAsJsonObject()));
-
-        Collections.sort(results);
+        return ratingsRequest(projectId).get(ResultReaders.RATINGS);
+    }
 
-        return results;
+    Request ratingsRequest(int projectId) {
+        return request("/projects/" + projectId + "/rating");
     }
 
     /**
@@ -578,7 +975,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void postProjectRating(int projectId, String type, int rate, String remarks, int publish, HashMap<String, Integer> additionalRating) throws OHTException {
-        Request request = request(String.format("/projects/%d/rating", projectId))
+        ratingRequest(projectId, type, rate, remarks, publish, additionalRating).post(ResultReaders.NOTHING);
+    }
+
+    Request ratingRequest(int projectId, String type, int rate, String remarks, int publish, Map<String, Integer> additionalRating) {
+        Request request = ratingsRequest(projectId)
                 .param("type", type)
                 .param("rate", rate)
                 .param("remarks", remarks)
@@ -587,7 +988,7 @@ public class OHTAPI {
         for(Map.Entry<String, Integer> e : additionalRating.entrySet()){
             request.param(e.getKey(), e.getValue());
         }
-        request.post();
+        return request;
     }
 
     // </editor-fold>
@@ -604,14 +1005,26 @@ public class OHTAPI {
      * @throws OHTException
      */
     public String machineTranslation(String sourceLanguage, String targetLanguage, String sourceContent) throws OHTException {
-        JsonElement json
-                = request("/mt/translate/text")
+        TranslationMemory memory = translationMemory;
+        if (null != memory && null != sourceContent) {
+            String stored = memory.lookup(sourceLanguage, targetLanguage, sourceContent);
+            if (null != stored)
+                return stored;
+        }
+
+        String result = machineTranslationRequest(sourceLanguage, targetLanguage, sourceContent).post(ResultReaders.TRANSLATED_TEXT);
+
+        if (null != memory && null != sourceContent && null != result)
+            memory.offer(sourceLanguage, targetLanguage, sourceContent, result);
+
+        return result;
+    }
+
+    Request machineTranslationRequest(String sourceLanguage, String targetLanguage, String sourceContent) {
+        return request("/mt/translate/text")
                 .param("source_language", sourceLanguage)
                 .param("target_language", targetLanguage)
-                .param("source_content", sourceContent)
-                .post();
-
-        return json.getAsJsonObject().get("TranslatedText").getAsString();
+                .param("source_content", sourceContent);
     }
 
     /**
@@ -622,9 +1035,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public String detectLanguage(String sourceContent) throws OHTException {
-        JsonElement json = request("/mt/detect/text").param("source_content", sourceContent).post();
+        return detectLanguageRequest(sourceContent).post(ResultReaders.DETECTED_LANGUAGE);
+    }
 
-        return json.getAsJsonObject().get("language").getAsString();
+    Request detectLanguageRequest(String sourceContent) {
+        return request("/mt/detect/text").param("source_content", sourceContent);
     }
 
     //</editor-fold>
@@ -638,14 +1053,20 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Collection<Language> getSupportedLanguages() throws OHTException {
-        JsonElement json = request("/discover/languages").get();
+        DiscoveryCache cache = discoveryCache;
+        if (null != cache) {
+            return cache.languages(new DiscoveryCache.Loader<Collection<Language>>() {
+                public Collection<Language> load() throws OHTException {
+                    return languagesRequest().get(ResultReaders.LANGUAGES);
+                }
+            });
+        }
 
-        List<Language> results = new ArrayList<Language>();
-        JsonArray array = json.getAsJsonArray();
-        for (JsonElement e : array)
-            results.add(new Language(e.getAsJsonObject()));
+        return languagesRequest().get(ResultReaders.LANGUAGES);
+    }
 
-        return results;
+    Request languagesRequest() {
+        return request("/discover/languages");
     }
 
     /**
@@ -655,14 +1076,20 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Collection<LanguagePair> getSupportedLanguagePairs() throws OHTException {
-        JsonElement json = request("/discover/language_pairs").get();
+        DiscoveryCache cache = discoveryCache;
+        if (null != cache) {
+            return cache.languagePairs(new DiscoveryCache.Loader<Collection<LanguagePair>>() {
+                public Collection<LanguagePair> load() throws OHTException {
+                    return languagePairsRequest().get(ResultReaders.LANGUAGE_PAIRS);
+                }
+            });
+        }
 
-        List<LanguagePair> results = new ArrayList<LanguagePair>();
-        JsonArray array = json.getAsJsonArray();
-        for (JsonElement e : array)
-            results.add(new LanguagePair(e.getAsJsonObject()));
+        return languagePairsRequest().get(ResultReaders.LANGUAGE_PAIRS);
+    }
 
-        return results;
+    Request languagePairsRequest() {
+        return request("/discover/language_pairs");
     }
 
     /**
@@ -673,19 +1100,23 @@ public class OHTAPI {
      * @return collection of the {@link Expertise Expertise} objects
      * @throws OHTException
      */
-    public Collection<Expertise> getSupportedExpertises(String sourceLanguage, String targetLanguage) throws OHTException {
-        JsonElement json
-            = request("/discover/expertise")
-                .param("source_language", sourceLanguage)
-                .param("target_language", targetLanguage)
-                .get();
+    public Collection<Expertise> getSupportedExpertises(final String sourceLanguage, final String targetLanguage) throws OHTException {
+        DiscoveryCache cache = discoveryCache;
+        if (null != cache) {
+            return cache.expertises(sourceLanguage, targetLanguage, new DiscoveryCache.Loader<Collection<Expertise>>() {
+                public Collection<Expertise> load() throws OHTException {
+                    return expertisesRequest(sourceLanguage, targetLanguage).get(ResultReaders.EXPERTISES);
+                }
+            });
+        }
 
-        List<Expertise> results = new ArrayList<Expertise>();
-        JsonArray array = json.getAsJsonArray();
-        for (JsonElement e : array)
-            results.add(new Expertise(e.getAsJsonObject()));
+        return expertisesRequest(sourceLanguage, targetLanguage).get(ResultReaders.EXPERTISES);
+    }
 
-        return results;
+    Request expertisesRequest(String sourceLanguage, String targetLanguage) {
+        return request("/discover/expertise")
+                .param("source_language", sourceLanguage)
+                .param("target_language", targetLanguage);
     }
 
     /**
@@ -696,9 +1127,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public Tags getProjectTags(int projectId) throws OHTException {
-        JsonElement json = request(String.format("/project/%d/tag", projectId)).get();
+        return tagsRequest(projectId).get(ResultReaders.TAGS);
+    }
 
-        return new Tags(json.getAsJsonObject());
+    Request tagsRequest(int projectId) {
+        return request("/project/" + projectId + "/tag");
     }
 
     /**
@@ -709,7 +1142,11 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void deleteProjectTag(int projectId, int tagId) throws OHTException {
-        request(String.format("/project/%d/tag/%d", projectId, tagId)).delete();
+        tagRequest(projectId, tagId).delete(ResultReaders.NOTHING);
+    }
+
+    Request tagRequest(int projectId, int tagId) {
+        return request("/project/" + projectId + "/tag/" + tagId);
     }
 
     /**
@@ -720,41 +1157,175 @@ public class OHTAPI {
      * @throws OHTException
      */
     public void addProjectTag(int projectId, String tag) throws OHTException {
-        request(String.format("/project/%d/tag/", projectId)).param("tag_name", tag).post();
+        addTagRequest(projectId, tag).post(ResultReaders.NOTHING);
+    }
+
+    Request addTagRequest(int projectId, String tag) {
+        return request("/project/" + projectId + "/tag/").param("tag_name", tag);
     }
 
     //</editor-fold>
 
     //<editor-fold desc="REQUEST INTERNALS"
 
-    private Request request(String requestUrl) {
-        Request result = new Request(requestUrl);
-        result.param("secret_key", secretKey);
-        result.param("public_key", publicKey);
-        return result;
+    void validate(String sourceLanguage, String targetLanguage, String expertise) throws OHTException {
+        LanguageCatalog catalog = languageCatalog;
+        if (null != catalog)
+            catalog.validate(sourceLanguage, targetLanguage, expertise);
     }
 
-    // singleton instance of HttpClient
-    static CloseableHttpClient client = null;
-    private CloseableHttpClient getClient() {
-        if (null == client)
-            client = HttpClients.createDefault();
+    // large enough to keep the number of write calls low for multi-megabyte resources
+    private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
 
-        return client;
+    private static void transfer(InputStream input, OutputStream output) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1)
+            output.write(buffer, 0, read);
     }
 
-    private class Request {
-        private String requestUrl = null;
-        private SortedMap<String, Object> params = null; // named request parameters
-        private File file = null; // file to upload or download
+    private static void transfer(InputStream input, WritableByteChannel output) throws IOException {
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1)
+            write(ByteBuffer.wrap(buffer, 0, read), output);
+    }
+
+    private static void write(ByteBuffer buffer, WritableByteChannel output) throws IOException {
+        while (buffer.hasRemaining())
+            output.write(buffer);
+    }
+
+    /**
+     * API address requests go to: {@link OHTClientConfig#getBaseUrl()} if set, otherwise the production or sandbox one
+     */
+    public String getBaseUrl() {
+        if (null != config && null != config.getBaseUrl())
+            return config.getBaseUrl();
+
+        return useSandbox ? baseUrl_sandbox : baseUrl;
+    }
+
+    /*
+     * Every operation builds its request in one package-private *Request method, executed by both this class
+     * and OHTAsyncAPI, so the blocking and non-blocking variant of an operation always send the same request.
+     */
+    Request request(String requestUrl) {
+        return new Request(requestUrl);
+    }
+
+    // per-thread buffer for request URLs, so building one allocates little more than the final string
+    private static final ThreadLocal<StringBuilder> urlBuilder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(512);
+        }
+    };
+
+    // shared instance of HttpClient, used when no config is given
+    static volatile CloseableHttpClient client = null;
+
+    // double-checked, so that calls only take a lock until the client exists
+    private CloseableHttpClient getClient() {
+        if (null != factory)
+            return factory.getHttpClient();
+
+        if (null == config) {
+            CloseableHttpClient result = client;
+            if (null != result)
+                return result;
+
+            synchronized (OHTAPI.class) {
+                if (null == client)
+                    client = OHTClientConfig.DEFAULT.createHttpClient();
+
+                return client;
+            }
+        }
+
+        CloseableHttpClient result = httpClient;
+        if (null != result)
+            return result;
+
+        synchronized (this) {
+            if (null == httpClient)
+                httpClient = null != config.getHttpClient() ? config.getHttpClient() : config.createHttpClient();
+
+            return httpClient;
+        }
+    }
+
+    // shared instance of the non-blocking HttpAsyncClient, started on first use
+    static volatile CloseableHttpAsyncClient asyncClient = null;
+    private CloseableHttpAsyncClient getAsyncClient() throws IOException {
+        if (null != factory)
+            return factory.getAsyncClient();
+
+        if (null == config) {
+            CloseableHttpAsyncClient result = asyncClient;
+            if (null != result)
+                return result;
+
+            synchronized (OHTAPI.class) {
+                if (null == asyncClient)
+                    asyncClient = OHTClientConfig.DEFAULT.createAsyncClient();
+
+                return asyncClient;
+            }
+        }
+
+        CloseableHttpAsyncClient result = httpAsyncClient;
+        if (null != result)
+            return result;
+
+        synchronized (this) {
+            if (null == httpAsyncClient) {
+                if (null != config.getAsyncClient()) {
+                    httpAsyncClient = config.getAsyncClient();
+                    if (!httpAsyncClient.isRunning())
+                        httpAsyncClient.start();
+                } else {
+                    httpAsyncClient = config.createAsyncClient();
+                }
+            }
+
+            return httpAsyncClient;
+        }
+    }
+
+    class Request {
+        private String requestUrl = null;
+        private String[] names = new String[8]; // named request parameters, in the order they were set
+        private Object[] values = new Object[8];
+        private int size = 0;
+        private File file = null; // file to upload or download
+        private ContentBody upload = null; // streamed file to upload
+        private OutputStream downloadStream = null; // stream to download to
+        private WritableByteChannel downloadChannel = null; // channel to download to
 
         private Request(String requestUrl) {
             this.requestUrl = requestUrl;
-            this.params = new TreeMap<String, Object>();
+        }
+
+        // sets a parameter, replacing an earlier value of the same name
+        private void set(String name, Object value) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    values[i] = value;
+                    return;
+                }
+            }
+
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            names[size] = name;
+            values[size++] = value;
         }
 
         public Request param(String name, String value) {
-            this.params.put(name, value);
+            set(name, value);
             return this;
         }
 
@@ -769,13 +1340,12 @@ public class OHTAPI {
         }
 
         public Request param(String name, String[] value) {
-            String comaSeparated = joinStrings(value, ",");
-            this.params.put(name, comaSeparated);
+            set(name, joinStrings(value, ","));
             return this;
         }
 
         public Request param(String name, Integer value) {
-            this.params.put(name, value);
+            set(name, value);
             return this;
         }
 
@@ -784,102 +1354,435 @@ public class OHTAPI {
             return this;
         }
 
-        public JsonElement post() throws OHTException {
-            return execute("POST");
+        public Request param(String name, ContentBody value) {
+            upload = value;
+            return this;
+        }
+
+        public Request param(String name, OutputStream value) {
+            downloadStream = value;
+            return this;
         }
 
-        public JsonElement get() throws OHTException {
-            return execute("GET");
+        public Request param(String name, WritableByteChannel value) {
+            downloadChannel = value;
+            return this;
         }
 
-        public JsonElement delete() throws OHTException {
-            return execute("DELETE");
+        private boolean isDownload(String method) {
+            return (null != file || null != downloadStream || null != downloadChannel) && method.equalsIgnoreCase("GET");
         }
 
-        private JsonElement execute(String method) throws OHTException {
-            CloseableHttpClient httpClient = null;
+        public <T> T post(ResultReader<T> reader) throws OHTException {
+            return execute("POST", reader);
+        }
+
+        public <T> T get(ResultReader<T> reader) throws OHTException {
+            return execute("GET", reader);
+        }
+
+        public <T> T delete(ResultReader<T> reader) throws OHTException {
+            return execute("DELETE", reader);
+        }
+
+        public <T> CompletableFuture<T> postAsync(ResultReader<T> reader) {
+            return executeAsync("POST", reader);
+        }
+
+        public <T> CompletableFuture<T> getAsync(ResultReader<T> reader) {
+            return executeAsync("GET", reader);
+        }
+
+        public <T> CompletableFuture<T> deleteAsync(ResultReader<T> reader) {
+            return executeAsync("DELETE", reader);
+        }
+
+        /*
+         * GET and DELETE send the parameters in the query string. POST sends them in the body, form-urlencoded,
+         * or as multipart text parts next to an uploaded file, so large values never end up in the URL.
+         * The credentials are encoded once per OHTAPI instance and copied in front of the other parameters.
+         */
+        HttpRequestBase build(String method) throws IOException, OHTException {
             HttpRequestBase request = null;
+            boolean post = method.equalsIgnoreCase("POST");
+
+            StringBuilder urlString = urlBuilder.get();
+            urlString.setLength(0);
+            urlString.append(getBaseUrl()).append(requestUrl);
+
+            if (!post) {
+                urlString.append('?').append(credentials);
+                for (int i = 0; i < size; i++) {
+                    Object value = values[i];
+                    if (null == value)
+                        continue;
+
+                    urlString.append('&').append(names[i]).append('=');
+                    if (value instanceof Integer)
+                        urlString.append(((Integer) value).intValue());
+                    else
+                        FormEntity.appendEncoded(urlString, value.toString());
+                }
+            }
+
+            String url = urlString.toString();
+            if (urlString.capacity() > 8192)
+                urlBuilder.remove(); // do not pin buffers grown by unusually long URLs
+
+            if (method.equalsIgnoreCase("GET"))
+                request = new HttpGet(url);
+            else if (post)
+                request = new HttpPost(url);
+            else if (method.equalsIgnoreCase("DELETE"))
+                request = new HttpDelete(url);
+
+            if ((null != this.file || null != this.upload) && post) // file upload process
+            {
+                MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+                ContentType text = ContentType.create("text/plain", Consts.UTF_8);
+                if (null != secretKey)
+                    builder.addTextBody("secret_key", secretKey, text);
+                if (null != publicKey)
+                    builder.addTextBody("public_key", publicKey, text);
+                for (int i = 0; i < size; i++) {
+                    if (null != values[i])
+                        builder.addTextBody(names[i], values[i].toString(), text);
+                }
+                if (null != this.upload)
+                    builder.addPart("upload", this.upload);
+                else
+                    builder.addBinaryBody("upload", this.file);
+                ((HttpPost) request).setEntity(builder.build());
+            } else if (post) {
+                ((HttpPost) request).setEntity(new FormEntity(credentialBytes, names, values, size));
+            } else if (null != this.file && !method.equalsIgnoreCase("GET")) {
+                // unreal situation
+                throw new OHTException(-1, "internal error", null);
+            }
+
+            return request;
+        }
+
+        /*
+         * Fetches bytes first..last of a download and writes them at the same offsets of target.
+         * Returns false if the server ignored the range and sent the whole resource, which is then written from offset 0.
+         * The listener gets the number of bytes written by this call so far.
+         * Goes through the circuit breaker and the rate limiter like execute(), but is sent once:
+         * the caller resumes from the bytes written instead.
+         */
+        boolean downloadRange(FileChannel target, long first, long last, ProgressListener listener) throws OHTException {
+            CircuitBreaker breaker = circuitBreaker;
+            admit(breaker);
+            try {
+                boolean partial = downloadRangeOnce(target, first, last, listener);
+                if (null != breaker)
+                    breaker.onSuccess();
+                return partial;
+            } catch (OHTException ex) {
+                if (null != breaker) {
+                    if (retryPolicy.isTransient(ex))
+                        breaker.onFailure();
+                    else
+                        breaker.onSuccess();
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (null != breaker)
+                    breaker.release();
+                throw ex;
+            } finally {
+                if (null != quota)
+                    quota.release();
+            }
+        }
+
+        private boolean downloadRangeOnce(FileChannel target, long first, long last, ProgressListener listener) throws OHTException {
             CloseableHttpResponse response = null;
-            FileOutputStream outputStream = null;
-            JsonElement result = null;
+            Measurement measurement = measure("GET", true);
+            OHTException error = null;
 
             try {
-                httpClient = getClient();
+                HttpRequestBase request = build("GET");
+                request.setHeader(HttpHeaders.RANGE, "bytes=" + first + "-" + last);
+                response = getClient().execute(request);
+                if (null != measurement)
+                    measurement.received(response);
+
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_PARTIAL_CONTENT && status != HttpStatus.SC_OK) {
+                    parse(response, ResultReaders.NOTHING);
+                    throw new OHTException(-1, "Unexpected HTTP status " + status, null);
+                }
 
-                StringBuilder urlString = new StringBuilder(useSandbox ? baseUrl_sandbox : baseUrl);
-                urlString.append(requestUrl);
+                boolean partial = status == HttpStatus.SC_PARTIAL_CONTENT;
+                Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+                if (partial && (null == contentRange || !contentRange.getValue().startsWith("bytes " + first + "-")))
+                    throw new OHTException(-1, "Unexpected content range " + (null != contentRange ? contentRange.getValue() : null), null);
+
+                InputStream input = response.getEntity().getContent();
+                long total = partial ? last - first + 1 : response.getEntity().getContentLength();
+                long position = partial ? first : 0;
+                long transferred = 0;
+                byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining())
+                        position += target.write(chunk, position);
+
+                    transferred += read;
+                    if (null != listener)
+                        listener.onProgress(transferred, total);
+                }
 
-                ArrayList<String> stringParams = new ArrayList<String>();
-                for (Map.Entry<String, Object> entry : params.entrySet()) {
-                    String key = entry.getKey();
-                    Object value = entry.getValue();
-                    if (null == value)
-                        continue;
+                return partial;
+            } catch (OHTException ex) {
+                error = ex;
+                throw ex;
+            } catch (Exception ex) {
+                error = new OHTException(ex);
+                throw error;
+            } finally {
+                if (null != measurement)
+                    measurement.finish(error);
 
-                    stringParams.add(String.format("%s=%s", key, URLEncoder.encode(value.toString(), "UTF-8")));
+                if (null != response) {
+                    try {
+                        response.close();
+                    } catch (IOException ex) {
+                    }
                 }
+            }
+        }
 
-                if (!stringParams.isEmpty()) {
-                    urlString.append("?");
-                    urlString.append(joinStrings(stringParams.toArray(new String[]{}), "&"));
+        /*
+         * Reads the response envelope in a single pass: the status is checked as soon as it is seen and
+         * the results member is decoded straight into the target type, without building a JsonElement tree.
+         * Only if results precede the status is the payload buffered, so that errors are still reported first.
+         */
+        <T> T parse(HttpResponse response, ResultReader<T> resultReader) throws IOException, OHTException {
+            int httpStatus = response.getStatusLine().getStatusCode();
+            try {
+                return read(response, resultReader);
+            } catch (OHTException ex) {
+                ex.setHttpStatus(httpStatus);
+                throw ex;
+            } catch (MalformedJsonException | JsonParseException | IllegalStateException ex) {
+                // not an API response, e.g. an error page of a proxy
+                OHTException error = new OHTException(ex);
+                error.setHttpStatus(httpStatus);
+                throw error;
+            }
+        }
+
+        private <T> T read(HttpResponse response, final ResultReader<T> resultReader) throws IOException, OHTException {
+            Charset charset = ContentType.getOrDefault(response.getEntity()).getCharset();
+            JsonReader reader = new JsonReader(new InputStreamReader(response.getEntity().getContent(),
+                    null != charset ? charset : Consts.UTF_8));
+
+            if (reader.peek() != JsonToken.BEGIN_OBJECT)
+                throw new OHTException(-1, "OneHourTranslation response was malformed.", null);
+
+            Integer statusCode = null;
+            String statusMessage = null;
+            JsonArray errors = null;
+            JsonElement pending = null;
+            T result = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("status")) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String statusName = reader.nextName();
+                        if (statusName.equals("code"))
+                            statusCode = reader.nextInt();
+                        else if (statusName.equals("msg"))
+                            statusMessage = reader.nextString();
+                        else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+                } else if (name.equals("errors")) {
+                    JsonElement element = parser.parse(reader);
+                    if (element.isJsonArray())
+                        errors = element.getAsJsonArray();
+                } else if (name.equals("results") && null == statusCode) {
+                    pending = parser.parse(reader);
+                } else if (name.equals("results") && 0 == statusCode && reader.peek() != JsonToken.NULL) {
+                    result = resultReader.read(reader);
+                } else {
+                    reader.skipValue();
                 }
+            }
+            reader.endObject();
+
+            if (null == statusCode)
+                throw new OHTException(-1, "OneHourTranslation response was malformed.", null);
 
-                if (method.equalsIgnoreCase("GET"))
-                    request = new HttpGet(urlString.toString());
-                else if (method.equalsIgnoreCase("POST"))
-                    request = new HttpPost(urlString.toString());
-                else if (method.equalsIgnoreCase("DELETE"))
-                    request = new HttpDelete(urlString.toString());
+            if (0 != statusCode) {
+                throw new OHTException(statusCode, statusMessage, errors);
+            }
 
-                if (null != this.file) {
+            if (null != pending && !pending.isJsonNull()) {
+                result = new TypeAdapter<T>() {
+                    public T read(JsonReader in) throws IOException {
+                        return resultReader.read(in);
+                    }
 
-                    if (method.equalsIgnoreCase("GET")) // file download process
-                    {
-                        response = httpClient.execute(request);
-                        InputStream inputStream = response.getEntity().getContent();
-                        outputStream = new FileOutputStream(file, false);
+                    public void write(JsonWriter out, T value) {
+                        throw new UnsupportedOperationException();
+                    }
+                }.fromJsonTree(pending);
+            }
 
-                        int read = 0;
-                        byte[] bytes = new byte[1024];
+            return result;
+        }
 
-                        while ((read = inputStream.read(bytes)) != -1) {
-                            outputStream.write(bytes, 0, read);
-                        }
+        // only GETs are retried, unless they write into a caller's stream that cannot be rewound
+        private boolean isRetryable(String method) {
+            return method.equalsIgnoreCase("GET") && null == downloadStream && null == downloadChannel;
+        }
 
-                        return null;
-                    } else if (method.equalsIgnoreCase("POST")) // file upload process)
-                    {
-                        MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-                        builder.addBinaryBody("upload", this.file);
-                        ((HttpPost) request).setEntity(builder.build());
-                    } else {
-                        // unreal situation
-                        throw new OHTException(-1, "internal error", null);
+        /*
+         * Runs the request through the circuit breaker, retrying idempotent requests on transient failures
+         * with exponential backoff.
+         */
+        private <T> T execute(String method, ResultReader<T> reader) throws OHTException {
+            RetryPolicy policy = retryPolicy;
+            CircuitBreaker breaker = circuitBreaker;
+            int maxAttempts = isRetryable(method) ? policy.getMaxAttempts() : 1;
+
+            for (int attempt = 1; ; attempt++) {
+                admit(breaker);
+                try {
+                    T result = executeOnce(method, reader);
+                    if (null != breaker)
+                        breaker.onSuccess();
+                    return result;
+                } catch (OHTException ex) {
+                    boolean transientFailure = policy.isTransient(ex);
+                    if (null != breaker) {
+                        if (transientFailure)
+                            breaker.onFailure();
+                        else
+                            breaker.onSuccess();
                     }
+
+                    if (!transientFailure || attempt >= maxAttempts)
+                        throw ex;
+                } catch (RuntimeException ex) {
+                    if (null != breaker)
+                        breaker.release();
+                    throw ex;
+                } finally {
+                    if (null != quota)
+                        quota.release();
                 }
 
-                response = httpClient.execute(request);
+                sleep(policy.backoffMillis(attempt));
+            }
+        }
+
+        /*
+         * Lets a call through: the circuit breaker is asked first, so that calls fail fast while it is open
+         * without waiting for or spending a rate limiter permit, then the permit and a permit of the tenant quota
+         * are waited for. The caller must release the quota once the call is done. The breaker is released if the
+         * call is not sent after all, so that a local shortage is not recorded as an answer of the service.
+         */
+        private void admit(CircuitBreaker breaker) throws OHTException {
+            if (null != breaker && !breaker.tryAcquire())
+                throw CircuitBreaker.openException();
+
+            try {
+                long delay = throttle();
+                if (delay > 0)
+                    sleep(TimeUnit.NANOSECONDS.toMillis(delay) + 1);
 
-                JsonElement element = parser.parse(new InputStreamReader(response.getEntity().getContent()));
-                if (!element.isJsonObject())
-                    throw new OHTException(-1, "OneHourTranslation response was malformed.", null);
+                if (null != quota)
+                    quota.acquire(config.getConnectionRequestTimeout());
+            } catch (OHTException ex) {
+                if (null != breaker)
+                    breaker.release();
+                throw ex;
+            }
+        }
 
-                JsonObject status = element.getAsJsonObject().get("status").getAsJsonObject();
-                JsonArray errors = element.getAsJsonObject().get("errors").getAsJsonArray();
+        // takes a rate limiter permit, returns nanoseconds to wait for it
+        private long throttle() throws OHTException {
+            RateLimiter limiter = null != rateLimiter ? rateLimiter : defaultRateLimiter;
+            if (null == limiter)
+                return 0;
 
-                int statusCode = status.get("code").getAsInt();
-                String statusMessage = status.get("msg").getAsString();
+            RateLimiter.Group group = RateLimiter.Group.of(requestUrl);
+            long delay = limiter.reserve(publicKey, group);
+            if (delay < 0)
+                throw RateLimiter.rejected(group);
 
-                if (0 != statusCode) {
-                    throw new OHTException(statusCode, statusMessage, errors);
+            return delay;
+        }
+
+        private void sleep(long millis) throws OHTException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new OHTException(ex);
+            }
+        }
+
+        private <T> T executeOnce(String method, ResultReader<T> reader) throws OHTException {
+            CloseableHttpClient httpClient = null;
+            HttpRequestBase request = null;
+            CloseableHttpResponse response = null;
+            FileOutputStream outputStream = null;
+            T result = null;
+            Measurement measurement = measure(method, true);
+            OHTException error = null;
+
+            try {
+                httpClient = getClient();
+                request = build(method);
+                if (null != measurement)
+                    measurement.sent(request);
+
+                if (isDownload(method)) // file download process
+                {
+                    response = httpClient.execute(request);
+                    if (null != measurement)
+                        measurement.received(response);
+                    OHTException failure = downloadFailure(response);
+                    if (null != failure)
+                        throw failure;
+
+                    InputStream inputStream = response.getEntity().getContent();
+
+                    if (null != downloadChannel) {
+                        transfer(inputStream, downloadChannel);
+                    } else if (null != downloadStream) {
+                        transfer(inputStream, downloadStream);
+                    } else {
+                        outputStream = new FileOutputStream(file, false);
+                        transfer(inputStream, outputStream);
+                    }
+
+                    return null;
                 }
 
-                result = element.getAsJsonObject().get("results");
+                response = httpClient.execute(request);
+                if (null != measurement)
+                    measurement.received(response);
+                result = parse(response, reader);
             } catch (OHTException ex) {
+                error = ex;
                 throw ex;
             } catch (Exception ex) {
-                throw new OHTException(ex);
+                error = new OHTException(ex);
+                throw error;
             } finally {
+                if (null != measurement)
+                    measurement.finish(error);
 
                 // close response
                 if (null != response) {
@@ -900,6 +1803,382 @@ public class OHTAPI {
 
             return result;
         }
+
+        /*
+         * Non-blocking counterpart of execute(). The exchange runs on the I/O reactor of the shared
+         * HttpAsyncClient, so no caller thread is parked while the request is in flight.
+         * The returned future fails with an OHTException on both transport and API errors.
+         */
+        private <T> CompletableFuture<T> executeAsync(String method, ResultReader<T> reader) {
+            CompletableFuture<T> result = new CompletableFuture<T>();
+            attemptAsync(method, reader, 1, isRetryable(method) ? retryPolicy.getMaxAttempts() : 1, result);
+            return result;
+        }
+
+        // async counterpart of execute(): rate limit waits and retries are scheduled on a timer instead of sleeping
+        // as in admit(), the circuit breaker is asked before a rate limiter permit is taken
+        private <T> void attemptAsync(final String method, final ResultReader<T> reader,
+                                      final int attempt, final int maxAttempts, final CompletableFuture<T> result) {
+            final CircuitBreaker breaker = circuitBreaker;
+            if (null != breaker && !breaker.tryAcquire()) {
+                result.completeExceptionally(CircuitBreaker.openException());
+                return;
+            }
+
+            long delay;
+            try {
+                delay = throttle();
+            } catch (OHTException ex) {
+                if (null != breaker)
+                    breaker.release();
+                result.completeExceptionally(ex);
+                return;
+            }
+
+            if (0 == delay) {
+                sendAsync(method, reader, attempt, maxAttempts, breaker, result);
+                return;
+            }
+
+            try {
+                RetryPolicy.scheduler().schedule(new Runnable() {
+                    public void run() {
+                        sendAsync(method, reader, attempt, maxAttempts, breaker, result);
+                    }
+                }, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException ex) {
+                if (null != breaker)
+                    breaker.release();
+                result.completeExceptionally(new OHTException(ex));
+            }
+        }
+
+        // the breaker, if any, has granted the call
+        private <T> void sendAsync(final String method, final ResultReader<T> reader, final int attempt, final int maxAttempts,
+                                   final CircuitBreaker breaker, final CompletableFuture<T> result) {
+            final RetryPolicy policy = retryPolicy;
+
+            final BiConsumer<T, Throwable> callback = new BiConsumer<T, Throwable>() {
+                public void accept(T value, Throwable error) {
+                    if (null == error) {
+                        if (null != breaker)
+                            breaker.onSuccess();
+                        result.complete(value);
+                        return;
+                    }
+
+                    if (!(error instanceof OHTException)) {
+                        // cancelled, the service did not answer either way
+                        if (null != breaker)
+                            breaker.release();
+                        result.completeExceptionally(error);
+                        return;
+                    }
+
+                    boolean transientFailure = policy.isTransient((OHTException) error);
+                    if (null != breaker) {
+                        if (transientFailure)
+                            breaker.onFailure();
+                        else
+                            breaker.onSuccess();
+                    }
+
+                    if (!transientFailure || attempt >= maxAttempts) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+
+                    try {
+                        RetryPolicy.scheduler().schedule(new Runnable() {
+                            public void run() {
+                                attemptAsync(method, reader, attempt + 1, maxAttempts, result);
+                            }
+                        }, policy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException ex) {
+                        result.completeExceptionally(error);
+                    }
+                }
+            };
+
+            if (null == quota) {
+                executeAsyncOnce(method, reader).whenComplete(callback);
+                return;
+            }
+
+            // queued without blocking while the tenant has its quota of requests in flight
+            quota.acquire(new Runnable() {
+                public void run() {
+                    executeAsyncOnce(method, reader).whenComplete(new BiConsumer<T, Throwable>() {
+                        public void accept(T value, Throwable error) {
+                            quota.release();
+                            callback.accept(value, error);
+                        }
+                    });
+                }
+            });
+        }
+
+        private <T> CompletableFuture<T> executeAsyncOnce(String method, final ResultReader<T> reader) {
+            final CompletableFuture<T> result = new CompletableFuture<T>();
+            final Measurement measurement = measure(method, false);
+
+            try {
+                HttpRequestBase request = build(method);
+                if (null != measurement)
+                    measurement.sent(request);
+
+                if (isDownload(method) && null == this.file) // stream download process
+                {
+                    getAsyncClient().execute(HttpAsyncMethods.create(request), new AsyncByteConsumer<Void>(TRANSFER_BUFFER_SIZE) {
+                        @Override
+                        protected void onResponseReceived(HttpResponse response) throws IOException {
+                            rejectFailure(response);
+                        }
+
+                        @Override
+                        protected void onByteReceived(ByteBuffer buffer, IOControl ioControl) throws IOException {
+                            if (null != measurement)
+                                measurement.responseBytes += buffer.remaining();
+                            if (null != downloadChannel)
+                                write(buffer, downloadChannel);
+                            else
+                                downloadStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        }
+
+                        @Override
+                        protected Void buildResult(HttpContext context) {
+                            return null;
+                        }
+                    }, new FutureCallback<Void>() {
+                        public void completed(Void nothing) {
+                            complete(result, null, null, measurement);
+                        }
+
+                        public void failed(Exception ex) {
+                            complete(result, null, downloadError(ex), measurement);
+                        }
+
+                        public void cancelled() {
+                            result.cancel(false);
+                        }
+                    });
+
+                    return result;
+                }
+
+                if (isDownload(method)) // file download process
+                {
+                    ZeroCopyConsumer<File> consumer = new ZeroCopyConsumer<File>(file) {
+                        private HttpResponse response = null;
+
+                        @Override
+                        protected void onResponseReceived(HttpResponse response) {
+                            super.onResponseReceived(response);
+                            this.response = response;
+                        }
+
+                        @Override
+                        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+                            // checked before the file is written
+                            rejectFailure(response);
+                            super.onEntityEnclosed(entity, contentType);
+                        }
+
+                        @Override
+                        protected File process(HttpResponse response, File file, ContentType contentType) throws IOException {
+                            rejectFailure(response);
+                            return file;
+                        }
+                    };
+
+                    getAsyncClient().execute(HttpAsyncMethods.create(request), consumer, new FutureCallback<File>() {
+                        public void completed(File file) {
+                            if (null != measurement)
+                                measurement.responseBytes = file.length();
+                            complete(result, null, null, measurement);
+                        }
+
+                        public void failed(Exception ex) {
+                            complete(result, null, downloadError(ex), measurement);
+                        }
+
+                        public void cancelled() {
+                            result.cancel(false);
+                        }
+                    });
+
+                    return result;
+                }
+
+                FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
+                    public void completed(HttpResponse response) {
+                        try {
+                            if (null != measurement)
+                                measurement.received(response);
+                            complete(result, parse(response, reader), null, measurement);
+                        } catch (OHTException ex) {
+                            complete(result, null, ex, measurement);
+                        } catch (Exception ex) {
+                            complete(result, null, new OHTException(ex), measurement);
+                        }
+                    }
+
+                    public void failed(Exception ex) {
+                        complete(result, null, new OHTException(ex), measurement);
+                    }
+
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                };
+
+                // a multipart entity can only be written, so it is streamed by a writer thread instead of buffered
+                HttpEntity entity = request instanceof HttpPost ? ((HttpPost) request).getEntity() : null;
+                if (null != entity && !(entity instanceof FormEntity))
+                    getAsyncClient().execute(new StreamingRequestProducer(request,
+                            (null != config ? config : OHTClientConfig.DEFAULT).getMaxConnections()),
+                            HttpAsyncMethods.createConsumer(), callback);
+                else
+                    getAsyncClient().execute(request, callback);
+            } catch (OHTException ex) {
+                complete(result, null, ex, measurement);
+            } catch (Exception ex) {
+                complete(result, null, new OHTException(ex), measurement);
+            }
+
+            return result;
+        }
+
+        // failure of a download answered with an error status, whose body is an error response and not the resource
+        private OHTException downloadFailure(HttpResponse response) {
+            int httpStatus = response.getStatusLine().getStatusCode();
+            if (httpStatus < 300)
+                return null;
+
+            OHTException failure = new OHTException(-1, "Download failed with HTTP status " + httpStatus, null);
+            failure.setHttpStatus(httpStatus);
+            return failure;
+        }
+
+        // aborts an async download on an error status, before anything is written to its target
+        private void rejectFailure(HttpResponse response) throws IOException {
+            OHTException failure = downloadFailure(response);
+            if (null != failure)
+                throw new DownloadRejected(failure);
+        }
+
+        private OHTException downloadError(Exception ex) {
+            return ex instanceof DownloadRejected ? ((DownloadRejected) ex).failure : new OHTException(ex);
+        }
+
+        private <T> void complete(CompletableFuture<T> result, T value, OHTException error, Measurement measurement) {
+            if (null != measurement)
+                measurement.finish(error);
+
+            if (null != error)
+                result.completeExceptionally(error);
+            else
+                result.complete(value);
+        }
+
+        // starts measuring an exchange, or returns null if nobody listens
+        private Measurement measure(String method, boolean sync) {
+            MetricsListener listener = metricsListener;
+            if (listener == MetricsListener.NONE)
+                return null;
+
+            return new Measurement(listener, method, endpointTemplate(requestUrl), sync);
+        }
+    }
+
+    /*
+     * Endpoint of a request URL with IDs replaced by placeholders, so that metrics of e.g. all
+     * project lookups add up under /projects/{id}.
+     */
+    static String endpointTemplate(String requestUrl) {
+        StringBuilder result = new StringBuilder(requestUrl.length());
+        String previous = "";
+        for (String segment : requestUrl.split("/")) {
+            if (segment.isEmpty())
+                continue;
+
+            result.append('/');
+            if (isNumeric(segment))
+                result.append("{id}");
+            else if (previous.equals("resources") && !segment.equals("file") && !segment.equals("text"))
+                result.append("{uuid}");
+            else
+                result.append(segment);
+            previous = segment;
+        }
+
+        return result.toString();
+    }
+
+    private static boolean isNumeric(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    // carries the failure of a download through the I/O reactor, which only propagates IOExceptions
+    private static class DownloadRejected extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final OHTException failure;
+
+        DownloadRejected(OHTException failure) {
+            super(failure.getMessage());
+            this.failure = failure;
+        }
+    }
+
+    // measurements of one HTTP exchange, reported to the MetricsListener when it ends
+    private static class Measurement {
+        private final MetricsListener listener;
+        private final String method;
+        private final String endpoint;
+        private final boolean sync;
+        private final long start = System.nanoTime();
+        private long requestBytes = 0;
+        private long responseBytes = 0;
+        private CountingEntity responseEntity = null;
+
+        Measurement(MetricsListener listener, String method, String endpoint, boolean sync) {
+            this.listener = listener;
+            this.method = method.toUpperCase(Locale.ROOT);
+            this.endpoint = endpoint;
+            this.sync = sync;
+            if (sync)
+                OHTClientConfig.takeLeaseWaitNanos(); // discard waits of earlier exchanges
+        }
+
+        void sent(HttpRequestBase request) {
+            if (request instanceof HttpEntityEnclosingRequest) {
+                HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+                requestBytes = null != entity ? entity.getContentLength() : 0;
+            }
+        }
+
+        void received(HttpResponse response) {
+            if (null != response.getEntity()) {
+                responseEntity = new CountingEntity(response.getEntity());
+                response.setEntity(responseEntity);
+            }
+        }
+
+        void finish(OHTException error) {
+            long latency = System.nanoTime() - start;
+            long leaseWait = sync ? OHTClientConfig.takeLeaseWaitNanos() : -1;
+            long received = responseBytes + (null != responseEntity ? responseEntity.getCount() : 0);
+            try {
+                listener.onRequest(method, endpoint, latency, leaseWait, requestBytes, received, error);
+            } catch (RuntimeException ex) {
+                // a broken listener must not fail the call
+            }
+        }
     }
 
     //</editor-fold>
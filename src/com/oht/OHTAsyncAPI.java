@@ -0,0 +1,592 @@
+package com.oht;
+
+import com.oht.entities.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link OHTAPI OHTAPI}.
+ * Every operation returns a {@link CompletableFuture CompletableFuture} immediately and runs the HTTP exchange
+ * on a shared non-blocking I/O reactor, so a handful of threads can keep thousands of requests in flight.
+ * Futures complete exceptionally with an {@link OHTException OHTException} on transport or API errors.
+ * <p>
+ * Callbacks attached with the non-{@code Async} {@link CompletableFuture CompletableFuture} methods run on
+ * the I/O reactor thread; use the {@code *Async} variants for anything that may block.
+ */
+public class OHTAsyncAPI {
+
+    //<editor-fold desc="CONSTRUCTOR / PROPERTIES"
+
+    private OHTAPI api;
+
+    /**
+     * Constructs async OHT API instance
+     *
+     * @param secretKey secret API key
+     * @param publicKey public API key
+     */
+    public OHTAsyncAPI(String secretKey, String publicKey) {
+        this(secretKey, publicKey, false);
+    }
+
+    /**
+     * Constructs async OHT API instance
+     *
+     * @param secretKey  secret API key
+     * @param publicKey  public API key
+     * @param useSandbox use sandbox environment
+     */
+    public OHTAsyncAPI(String secretKey, String publicKey, boolean useSandbox) {
+        this(new OHTAPI(secretKey, publicKey, useSandbox));
+    }
+
+    /**
+     * Constructs async OHT API instance sharing credentials and settings with an existing {@link OHTAPI OHTAPI}
+     *
+     * @param api synchronous API instance
+     */
+    public OHTAsyncAPI(OHTAPI api) {
+        this.api = api;
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="ACCOUNTS">
+
+    /**
+     * Fetch basic account details and credits balance
+     *
+     * @return future of {@link AccountDetails AccountDetails} object
+     * @see OHTAPI#getAccountDetails()
+     */
+    public CompletableFuture<AccountDetails> getAccountDetails() {
+        return api.accountDetailsRequest().getAsync(ResultReaders.ACCOUNT_DETAILS);
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="RESOURCES">
+
+    /**
+     * Create a new file entity on One Hour Translation
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadFileResource(String, String, String, String)
+     */
+    public CompletableFuture<String> uploadFileResource(String fileName, String fileMime, String uploadFilePath, String fileContent) {
+        return api.uploadRequest(fileName, fileMime, uploadFilePath, fileContent).postAsync(ResultReaders.FIRST_STRING);
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation, streaming its content from {@code content}.
+     * The content is read on a library thread while the request is sent, and {@code listener} is called on that thread
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadFileResource(String, String, InputStream, ProgressListener)
+     */
+    public CompletableFuture<String> uploadFileResource(String fileName, String fileMime, InputStream content, ProgressListener listener) {
+        try {
+            return api.uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).postAsync(ResultReaders.FIRST_STRING);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation, streaming its content from {@code content}.
+     * The content is read on a library thread while the request is sent, and {@code listener} is called on that thread
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadFileResource(String, String, ReadableByteChannel, ProgressListener)
+     */
+    public CompletableFuture<String> uploadFileResource(String fileName, String fileMime, ReadableByteChannel content, ProgressListener listener) {
+        try {
+            return api.uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).postAsync(ResultReaders.FIRST_STRING);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation from the remaining bytes of {@code content}.
+     * The content is read on a library thread while the request is sent, and {@code listener} is called on that thread
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadFileResource(String, String, ByteBuffer, ProgressListener)
+     */
+    public CompletableFuture<String> uploadFileResource(String fileName, String fileMime, ByteBuffer content, ProgressListener listener) {
+        try {
+            return api.uploadRequest(fileName, fileMime, UploadBody.of(fileName, fileMime, content, listener)).postAsync(ResultReaders.FIRST_STRING);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Create a new file entity on One Hour Translation.
+     * The content is read on a library thread while the request is sent, and {@code listener} is called on that thread
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadFileResource(String, String, Path, ProgressListener)
+     */
+    public CompletableFuture<String> uploadFileResource(String fileName, String fileMime, Path content, ProgressListener listener) {
+        try {
+            return api.uploadRequest(fileName, fileMime, OHTAPI.pathBody(fileName, fileMime, content, listener)).postAsync(ResultReaders.FIRST_STRING);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Create a new text resource on One Hour Translation
+     *
+     * @return future of resource UUID
+     * @see OHTAPI#uploadTextResource(String)
+     */
+    public CompletableFuture<String> uploadTextResource(String text) {
+        return api.textResourceRequest(text).postAsync(ResultReaders.FIRST_STRING);
+    }
+
+    /**
+     * Provides information regarding a specific resource
+     *
+     * @return future of {@link Resource Resource} object
+     * @see OHTAPI#getResource(String, Integer, String)
+     */
+    public CompletableFuture<Resource> getResource(String resourceUuid, Integer projectId, String fetch) {
+        return api.resourceRequest(resourceUuid, projectId, fetch).getAsync(ResultReaders.RESOURCE);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID.
+     * The response body is written straight to disk as it arrives.
+     *
+     * @return future completed once the file is saved
+     * @see OHTAPI#downloadResource(String, Integer, String)
+     */
+    public CompletableFuture<Void> downloadResource(String resourceUuid, Integer projectId, String fileToSave) {
+        return api.downloadRequest(resourceUuid, projectId).param("download", new File(fileToSave)).getAsync(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID into {@code target}, which is not closed.
+     * The target is written on the I/O reactor thread as data arrives, so it should not block for long.
+     *
+     * @return future completed once the resource is written
+     * @see OHTAPI#downloadResource(String, Integer, OutputStream)
+     */
+    public CompletableFuture<Void> downloadResource(String resourceUuid, Integer projectId, OutputStream target) {
+        return api.downloadRequest(resourceUuid, projectId).param("download", target).getAsync(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID into {@code target}, which is not closed.
+     * The target is written on the I/O reactor thread as data arrives, so it should not block for long.
+     *
+     * @return future completed once the resource is written
+     * @see OHTAPI#downloadResource(String, Integer, WritableByteChannel)
+     */
+    public CompletableFuture<Void> downloadResource(String resourceUuid, Integer projectId, WritableByteChannel target) {
+        return api.downloadRequest(resourceUuid, projectId).param("download", target).getAsync(ResultReaders.NOTHING);
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="TOOLS">
+
+    /**
+     * Order summary
+     *
+     * @return future of {@link Quote Quote} object
+     * @see OHTAPI#getQuote(String[], int, String, String, String, String, String, String)
+     */
+    public CompletableFuture<Quote> getQuote
+            (String[] resources,
+            int wordCount,
+            String sourceLang,
+            String targetLang,
+            String service,
+            String expertise,
+            String proofreading,
+            String currency) {
+
+        try {
+            return api.quoteRequest(resources, wordCount, sourceLang, targetLang, service, expertise, proofreading, currency)
+                    .getAsync(ResultReaders.QUOTE);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Returns total word count of provided resources
+     *
+     * @return future of {@link WordCount WordCount} object
+     * @see OHTAPI#getWordCount(String[])
+     */
+    public CompletableFuture<WordCount> getWordCount(String[] resources) {
+        WordCountCache cache = api.getWordCountCache();
+        if (null != cache && null != resources) {
+            return cache.wordCountAsync(resources, new WordCountCache.AsyncLoader() {
+                public CompletableFuture<WordCount> load(String[] missing) {
+                    return api.wordCountRequest(missing).getAsync(ResultReaders.WORD_COUNT);
+                }
+            });
+        }
+
+        return api.wordCountRequest(resources).getAsync(ResultReaders.WORD_COUNT);
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="PROJECT">
+
+    /**
+     * Creates translation project
+     *
+     * @return future of {@link Project Project} object
+     * @see OHTAPI#createTranslationProject(String, String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public CompletableFuture<Project> createTranslationProject
+            (String sourceLanguage,
+             String targetLanguage,
+             String[] resources,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) {
+
+        try {
+            return api.translationProjectRequest(sourceLanguage, targetLanguage, resources, wordCount, notes, expertise,
+                    callbackUrl, name, reference_resources, custom)
+                    .postAsync(ResultReaders.PROJECT);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Creates proofreading project from one - source language
+     *
+     * @return future of {@link Project Project} object
+     * @see OHTAPI#createProofreadingProject(String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public CompletableFuture<Project> createProofreadingProject
+            (String sourceLanguage,
+             String[] sources,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) {
+
+        try {
+            return api.proofreadingProjectRequest(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name,
+                    reference_resources, custom)
+                    .postAsync(ResultReaders.PROJECT);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Creates proofreading project (source and target languages)
+     *
+     * @return future of {@link Project Project} object
+     * @see OHTAPI#createProofTranslatedProject(String, String, String[], String[], Integer, String, String, String, String, String[], String[])
+     */
+    public CompletableFuture<Project> createProofTranslatedProject
+            (String sourceLanguage,
+             String targetLanguage,
+             String[] sources,
+             String[] translations,
+             Integer wordCount,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) {
+
+        try {
+            return api.proofTranslatedProjectRequest(sourceLanguage, targetLanguage, sources, translations, wordCount,
+                    notes, expertise, callbackUrl, name, reference_resources, custom)
+                    .postAsync(ResultReaders.PROJECT);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Creates a transcription project
+     *
+     * @return future of {@link Project Project} object
+     * @see OHTAPI#createTranscriptionProject(String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public CompletableFuture<Project> createTranscriptionProject
+            (String sourceLanguage,
+             String[] sources,
+             Integer length,
+             String notes,
+             String expertise,
+             String callbackUrl,
+             String name,
+             String[] reference_resources,
+             String[] custom) {
+
+        try {
+            return api.transcriptionProjectRequest(sourceLanguage, sources, length, notes, expertise, callbackUrl, name,
+                    reference_resources, custom)
+                    .postAsync(ResultReaders.PROJECT);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Creates translation plus editing project
+     *
+     * @return future of {@link Project Project} object
+     * @see OHTAPI#createTranslationPlusEditingProject(String, String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public CompletableFuture<Project> createTranslationPlusEditingProject
+    (String sourceLanguage,
+     String targetLanguage,
+     String[] resources,
+     Integer wordCount,
+     String notes,
+     String expertise,
+     String callbackUrl,
+     String name,
+     String[] reference_resources,
+     String[] custom) {
+
+        try {
+            return api.translationPlusEditingProjectRequest(sourceLanguage, targetLanguage, resources, wordCount, notes,
+                    expertise, callbackUrl, name, reference_resources, custom)
+                    .postAsync(ResultReaders.PROJECT);
+        } catch (OHTException ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Gets a detailed specification of the project
+     *
+     * @return future of {@link ProjectDetails ProjectDetails} object
+     * @see OHTAPI#getProjectDetails(int)
+     */
+    public CompletableFuture<ProjectDetails> getProjectDetails(int projectId) {
+        return api.projectRequest(projectId).getAsync(ResultReaders.PROJECT_DETAILS);
+    }
+
+    /**
+     * Cancels a project before work begins
+     *
+     * @see OHTAPI#cancelProject(int)
+     */
+    public CompletableFuture<Void> cancelProject(int projectId) {
+        return api.projectRequest(projectId).deleteAsync(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Receive comments posted on the project page
+     *
+     * @return future of collection of {@link Comment Comment} objects
+     * @see OHTAPI#getProjectComments(int)
+     */
+    public CompletableFuture<Collection<Comment>> getProjectComments(int projectId) {
+        return api.commentsRequest(projectId).getAsync(ResultReaders.COMMENTS);
+    }
+
+    /**
+     * Post a new comment to the project page
+     *
+     * @see OHTAPI#postProjectComment(int, String)
+     */
+    public CompletableFuture<Void> postProjectComment(int projectId, String content) {
+        return api.commentsRequest(projectId).param("content", content).postAsync(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Get the rating for the quality of the translation and service
+     *
+     * @return future of collection of {@link Rating Rating} objects
+     * @see OHTAPI#retrieveProjectRatings(int)
+     */
+    public CompletableFuture<Collection<Rating>> retrieveProjectRatings(int projectId) {
+        return api.ratingsRequest(projectId).getAsync(ResultReaders.RATINGS);
+    }
+
+    /**
+     * Posts a rating for the quality of the translation and service
+     *
+     * @see OHTAPI#postProjectRating(int, String, int, String, int, HashMap)
+     */
+    public CompletableFuture<Void> postProjectRating(int projectId, String type, int rate, String remarks, int publish, HashMap<String, Integer> additionalRating) {
+        return api.ratingRequest(projectId, type, rate, remarks, publish, additionalRating).postAsync(ResultReaders.NOTHING);
+    }
+
+    // </editor-fold>
+
+    //<editor-fold desc="MACHINE TRANSLATION">
+
+    /**
+     * Translate via machine translation, served from and added to the
+     * {@link OHTAPI#setTranslationMemory(TranslationMemory) translation memory} like the blocking call
+     *
+     * @return future of translated text
+     * @see OHTAPI#machineTranslation(String, String, String)
+     */
+    public CompletableFuture<String> machineTranslation(final String sourceLanguage, final String targetLanguage, final String sourceContent) {
+        final TranslationMemory memory = api.getTranslationMemory();
+        if (null != memory && null != sourceContent) {
+            String stored = memory.lookup(sourceLanguage, targetLanguage, sourceContent);
+            if (null != stored)
+                return CompletableFuture.completedFuture(stored);
+        }
+
+        CompletableFuture<String> result = machineTranslationRequest(sourceLanguage, targetLanguage, sourceContent);
+        if (null == memory || null == sourceContent || memory.isReadOnly())
+            return result;
+
+        return result.thenApply(new Function<String, String>() {
+            public String apply(String translation) {
+                if (null != translation)
+                    memory.offer(sourceLanguage, targetLanguage, sourceContent, translation);
+
+                return translation;
+            }
+        });
+    }
+
+    TranslationMemory getTranslationMemory() {
+        return api.getTranslationMemory();
+    }
+
+    // past the translation memory, for callers that store translations per segment themselves
+    CompletableFuture<String> machineTranslationRequest(String sourceLanguage, String targetLanguage, String sourceContent) {
+        return api.machineTranslationRequest(sourceLanguage, targetLanguage, sourceContent).postAsync(ResultReaders.TRANSLATED_TEXT);
+    }
+
+    /**
+     * Detects language via machine translation
+     *
+     * @return future of detected language
+     * @see OHTAPI#detectLanguage(String)
+     */
+    public CompletableFuture<String> detectLanguage(String sourceContent) {
+        return api.detectLanguageRequest(sourceContent).postAsync(ResultReaders.DETECTED_LANGUAGE);
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="DISCOVER">
+
+    /**
+     * Gets supported languages
+     *
+     * @return future of collection of {@link Language Language} objects
+     * @see OHTAPI#getSupportedLanguages()
+     */
+    public CompletableFuture<Collection<Language>> getSupportedLanguages() {
+        DiscoveryCache cache = api.getDiscoveryCache();
+        if (null != cache) {
+            return cache.languages(new DiscoveryCache.AsyncLoader<Collection<Language>>() {
+                public CompletableFuture<Collection<Language>> load() {
+                    return api.languagesRequest().getAsync(ResultReaders.LANGUAGES);
+                }
+            });
+        }
+
+        return api.languagesRequest().getAsync(ResultReaders.LANGUAGES);
+    }
+
+    /**
+     * Gets supported language pairs
+     *
+     * @return future of collection of the {@link LanguagePair LanguagePair} objects
+     * @see OHTAPI#getSupportedLanguagePairs()
+     */
+    public CompletableFuture<Collection<LanguagePair>> getSupportedLanguagePairs() {
+        DiscoveryCache cache = api.getDiscoveryCache();
+        if (null != cache) {
+            return cache.languagePairs(new DiscoveryCache.AsyncLoader<Collection<LanguagePair>>() {
+                public CompletableFuture<Collection<LanguagePair>> load() {
+                    return api.languagePairsRequest().getAsync(ResultReaders.LANGUAGE_PAIRS);
+                }
+            });
+        }
+
+        return api.languagePairsRequest().getAsync(ResultReaders.LANGUAGE_PAIRS);
+    }
+
+    /**
+     * Gets supported expertises
+     *
+     * @return future of collection of the {@link Expertise Expertise} objects
+     * @see OHTAPI#getSupportedExpertises(String, String)
+     */
+    public CompletableFuture<Collection<Expertise>> getSupportedExpertises(final String sourceLanguage, final String targetLanguage) {
+        DiscoveryCache cache = api.getDiscoveryCache();
+        if (null != cache) {
+            return cache.expertises(sourceLanguage, targetLanguage, new DiscoveryCache.AsyncLoader<Collection<Expertise>>() {
+                public CompletableFuture<Collection<Expertise>> load() {
+                    return api.expertisesRequest(sourceLanguage, targetLanguage).getAsync(ResultReaders.EXPERTISES);
+                }
+            });
+        }
+
+        return api.expertisesRequest(sourceLanguage, targetLanguage).getAsync(ResultReaders.EXPERTISES);
+    }
+
+    /**
+     * Receive tags added to the project
+     *
+     * @return future of {@link Tags Tags} object
+     * @see OHTAPI#getProjectTags(int)
+     */
+    public CompletableFuture<Tags> getProjectTags(int projectId) {
+        return api.tagsRequest(projectId).getAsync(ResultReaders.TAGS);
+    }
+
+    /**
+     * Delete project tag by tag id
+     *
+     * @see OHTAPI#deleteProjectTag(int, int)
+     */
+    public CompletableFuture<Void> deleteProjectTag(int projectId, int tagId) {
+        return api.tagRequest(projectId, tagId).deleteAsync(ResultReaders.NOTHING);
+    }
+
+    /**
+     * Add a new tag to project
+     *
+     * @see OHTAPI#addProjectTag(int, String)
+     */
+    public CompletableFuture<Void> addProjectTag(int projectId, String tag) {
+        return api.addTagRequest(projectId, tag).postAsync(ResultReaders.NOTHING);
+    }
+
+    //</editor-fold>
+
+    private static <T> CompletableFuture<T> failed(OHTException ex) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        result.completeExceptionally(ex);
+        return result;
+    }
+}
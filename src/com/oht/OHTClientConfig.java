@@ -0,0 +1,429 @@
+package com.oht;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP transport settings of an {@link OHTAPI OHTAPI} instance:
+ * connection pool limits, keep-alive, timeouts and background eviction of idle and expired connections.
+ * Alternatively carries caller-owned client instances to use instead of building new ones.
+ * <p>
+ * Use {@link #custom() custom} to create a builder:
+ * <pre>
+ *     OHTClientConfig config = OHTClientConfig.custom()
+ *         .setMaxConnections(200)
+ *         .setSocketTimeout(30000)
+ *         .build();
+ *     OHTAPI api = new OHTAPI(secretKey, publicKey, false, config);
+ * </pre>
+ */
+public class OHTClientConfig {
+
+    /**
+     * Settings used by {@link OHTAPI OHTAPI} instances created without explicit configuration
+     */
+    public static final OHTClientConfig DEFAULT = custom().build();
+
+    private int maxConnections;
+    private int maxConnectionsPerRoute;
+    private long keepAliveMillis;
+    private ConnectionKeepAliveStrategy keepAliveStrategy;
+    private int connectTimeout;
+    private int socketTimeout;
+    private int connectionRequestTimeout;
+    private long maxIdleMillis;
+    private boolean evictExpiredConnections;
+    private CloseableHttpClient httpClient;
+    private CloseableHttpAsyncClient asyncClient;
+    private String baseUrl;
+
+    private OHTClientConfig(Builder builder) {
+        this.maxConnections = builder.maxConnections;
+        this.maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        this.keepAliveMillis = builder.keepAliveMillis;
+        this.keepAliveStrategy = builder.keepAliveStrategy;
+        this.connectTimeout = builder.connectTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.connectionRequestTimeout = builder.connectionRequestTimeout;
+        this.maxIdleMillis = builder.maxIdleMillis;
+        this.evictExpiredConnections = builder.evictExpiredConnections;
+        this.httpClient = builder.httpClient;
+        this.asyncClient = builder.asyncClient;
+        this.baseUrl = builder.baseUrl;
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Maximum number of pooled connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Maximum number of pooled connections per route (host)
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * How long an idle connection is kept alive when the server does not send a Keep-Alive timeout, in milliseconds
+     */
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * Timeout for establishing a connection, in milliseconds
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Timeout for waiting on data of an open connection, in milliseconds
+     */
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * Timeout for leasing a connection from the pool, in milliseconds
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Idle time after which pooled connections are evicted, in milliseconds. Zero disables idle eviction
+     */
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    /**
+     * Whether connections past their keep-alive are evicted in the background
+     */
+    public boolean isEvictExpiredConnections() {
+        return evictExpiredConnections;
+    }
+
+    /**
+     * Caller-owned blocking client, or {@code null} if one is built from these settings
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Caller-owned non-blocking client, or {@code null} if one is built from these settings
+     */
+    public CloseableHttpAsyncClient getAsyncClient() {
+        return asyncClient;
+    }
+
+    /**
+     * API address to call instead of the production or sandbox one, or {@code null} for those
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    RequestConfig requestConfig() {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+    }
+
+    ConnectionKeepAliveStrategy keepAliveStrategy() {
+        if (null != keepAliveStrategy)
+            return keepAliveStrategy;
+
+        return new ConnectionKeepAliveStrategy() {
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+                while (it.hasNext()) {
+                    HeaderElement element = it.nextElement();
+                    if (null != element.getValue() && element.getName().equalsIgnoreCase("timeout")) {
+                        try {
+                            return Long.parseLong(element.getValue()) * 1000;
+                        } catch (NumberFormatException ex) {
+                        }
+                    }
+                }
+
+                return keepAliveMillis;
+            }
+        };
+    }
+
+    /**
+     * Builds a new blocking client from these settings. The caller owns the returned client.
+     */
+    CloseableHttpClient createHttpClient() {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager() {
+            @Override
+            public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+                return timed(super.requestConnection(route, state));
+            }
+        };
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setDefaultRequestConfig(requestConfig());
+
+        if (evictExpiredConnections)
+            builder.evictExpiredConnections();
+
+        if (maxIdleMillis > 0)
+            builder.evictIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS);
+
+        return builder.build();
+    }
+
+    // time the calling thread spent waiting for pooled connections, for MetricsListener
+    private static final ThreadLocal<long[]> leaseWait = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[]{-1};
+        }
+    };
+
+    private static ConnectionRequest timed(final ConnectionRequest request) {
+        return new ConnectionRequest() {
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, unit);
+                } finally {
+                    long[] wait = leaseWait.get();
+                    wait[0] = Math.max(0, wait[0]) + System.nanoTime() - start;
+                }
+            }
+
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * Returns and clears the time the current thread waited for connections of pools built by
+     * {@link #createHttpClient()} since the last call, in nanoseconds, or -1 if it did not lease any
+     */
+    static long takeLeaseWaitNanos() {
+        long[] wait = leaseWait.get();
+        long result = wait[0];
+        wait[0] = -1;
+        return result;
+    }
+
+    /**
+     * Builds and starts a new non-blocking client from these settings. The caller owns the returned client.
+     */
+    CloseableHttpAsyncClient createAsyncClient() throws IOReactorException {
+        final PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        final CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(manager)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setDefaultRequestConfig(requestConfig())
+                .build();
+        client.start();
+
+        if (evictExpiredConnections || maxIdleMillis > 0) {
+            long period = maxIdleMillis > 0 ? maxIdleMillis : keepAliveMillis;
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    // closing the client shuts its pool down, so stop evicting once it is no longer running
+                    if (!client.isRunning())
+                        throw new IllegalStateException("client closed");
+
+                    if (evictExpiredConnections)
+                        manager.closeExpiredConnections();
+
+                    if (maxIdleMillis > 0)
+                        manager.closeIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS);
+                }
+            }, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        return client;
+    }
+
+    // shared daemon thread evicting connections of every async pool built from a config
+    private static final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "oht-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Builder of {@link OHTClientConfig OHTClientConfig}
+     */
+    public static class Builder {
+
+        private int maxConnections = 64;
+        private int maxConnectionsPerRoute = 64;
+        private long keepAliveMillis = 30000;
+        private ConnectionKeepAliveStrategy keepAliveStrategy = null;
+        private int connectTimeout = 10000;
+        private int socketTimeout = 60000;
+        private int connectionRequestTimeout = 10000;
+        private long maxIdleMillis = 30000;
+        private boolean evictExpiredConnections = true;
+        private CloseableHttpClient httpClient = null;
+        private CloseableHttpAsyncClient asyncClient = null;
+        private String baseUrl = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Maximum number of pooled connections (defaults to 64)
+         */
+        public Builder setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Maximum number of pooled connections per route (defaults to 64).
+         * All API calls go to a single host, so this is usually equal to {@link #setMaxConnections(int)}
+         */
+        public Builder setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * How long an idle connection is kept alive when the server does not send
+         * a Keep-Alive timeout, in milliseconds (defaults to 30 seconds)
+         */
+        public Builder setKeepAliveMillis(long keepAliveMillis) {
+            this.keepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        /**
+         * Custom keep-alive strategy, replaces {@link #setKeepAliveMillis(long)}
+         */
+        public Builder setKeepAliveStrategy(ConnectionKeepAliveStrategy keepAliveStrategy) {
+            this.keepAliveStrategy = keepAliveStrategy;
+            return this;
+        }
+
+        /**
+         * Timeout for establishing a connection, in milliseconds (defaults to 10 seconds)
+         */
+        public Builder setConnectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * Timeout for waiting on data of an open connection, in milliseconds (defaults to 60 seconds)
+         */
+        public Builder setSocketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        /**
+         * Timeout for leasing a connection from the pool, in milliseconds (defaults to 10 seconds)
+         */
+        public Builder setConnectionRequestTimeout(int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        /**
+         * Idle time after which pooled connections are closed in the background,
+         * in milliseconds (defaults to 30 seconds). Zero disables idle eviction
+         */
+        public Builder setMaxIdleMillis(long maxIdleMillis) {
+            this.maxIdleMillis = maxIdleMillis;
+            return this;
+        }
+
+        /**
+         * Whether connections past their keep-alive are closed in the background (defaults to {@code true})
+         */
+        public Builder setEvictExpiredConnections(boolean evictExpiredConnections) {
+            this.evictExpiredConnections = evictExpiredConnections;
+            return this;
+        }
+
+        /**
+         * Blocking client to use instead of building one. It is not closed by {@link OHTAPI#close()}
+         */
+        public Builder setHttpClient(CloseableHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Non-blocking client to use instead of building one. It is started if needed,
+         * but not closed by {@link OHTAPI#close()}
+         */
+        public Builder setAsyncClient(CloseableHttpAsyncClient asyncClient) {
+            this.asyncClient = asyncClient;
+            return this;
+        }
+
+        /**
+         * API address to call instead of the production or sandbox one, without a trailing slash,
+         * e.g. an {@link OHTSimulator OHTSimulator} or a proxy (defaults to {@code null})
+         */
+        public Builder setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public OHTClientConfig build() {
+            return new OHTClientConfig(this);
+        }
+    }
+}
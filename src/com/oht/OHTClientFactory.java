@@ -0,0 +1,243 @@
+package com.oht;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Serves {@link OHTAPI OHTAPI} instances for many API key pairs (tenants) over one shared HTTP transport.
+ * Each tenant gets a quota of requests in flight, so a bulk job of one tenant cannot take all connections
+ * of the pool, and its own {@link InMemoryMetrics InMemoryMetrics}.
+ * <p>
+ * Use {@link #custom() custom} to create a builder:
+ * <pre>
+ *     OHTClientFactory factory = OHTClientFactory.custom()
+ *         .setClientConfig(OHTClientConfig.custom().setMaxConnections(200).setMaxConnectionsPerRoute(200).build())
+ *         .setMaxConcurrentRequests(20)
+ *         .build();
+ *     OHTAPI api = factory.getAPI(secretKey, publicKey);
+ * </pre>
+ * Blocking calls over the quota wait for a permit up to the {@link OHTClientConfig#getConnectionRequestTimeout()
+ * connection request timeout} and then fail with status code -1; async calls are queued.
+ */
+public class OHTClientFactory implements Closeable {
+
+    private final OHTClientConfig config;
+    private final boolean useSandbox;
+    private final int maxConcurrentRequests;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<String, Tenant>();
+
+    private volatile CloseableHttpClient httpClient = null;
+    private volatile CloseableHttpAsyncClient httpAsyncClient = null;
+    private volatile boolean closed = false;
+
+    private OHTClientFactory(Builder builder) {
+        this.config = builder.config;
+        this.useSandbox = builder.useSandbox;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Instance for a tenant, with the default quota of requests in flight.
+     * Calls with the same keys return the same instance
+     *
+     * @param secretKey secret API key
+     * @param publicKey public API key
+     */
+    public OHTAPI getAPI(String secretKey, String publicKey) {
+        return getAPI(secretKey, publicKey, maxConcurrentRequests);
+    }
+
+    /**
+     * Instance for a tenant. Calls with the same keys return the same instance;
+     * a new secret key or quota for a known public key replaces it, keeping the tenant's metrics
+     *
+     * @param secretKey             secret API key
+     * @param publicKey             public API key
+     * @param maxConcurrentRequests requests of the tenant in flight at a time
+     */
+    public OHTAPI getAPI(String secretKey, String publicKey, int maxConcurrentRequests) {
+        if (closed)
+            throw new IllegalStateException("factory is closed");
+
+        Tenant tenant = tenants.get(publicKey);
+        if (null != tenant && tenant.matches(secretKey, maxConcurrentRequests))
+            return tenant.api;
+
+        synchronized (tenants) {
+            tenant = tenants.get(publicKey);
+            if (null != tenant && tenant.matches(secretKey, maxConcurrentRequests))
+                return tenant.api;
+
+            InMemoryMetrics metrics = null != tenant ? tenant.metrics : new InMemoryMetrics();
+            TenantQuota quota = new TenantQuota(publicKey, maxConcurrentRequests);
+            OHTAPI api = new OHTAPI(secretKey, publicKey, useSandbox, config, this, quota);
+            api.setMetricsListener(metrics);
+
+            tenants.put(publicKey, new Tenant(secretKey, api, metrics, quota));
+            return api;
+        }
+    }
+
+    /**
+     * Metrics of a tenant, or {@code null} if the factory has no instance for {@code publicKey}
+     */
+    public InMemoryMetrics getMetrics(String publicKey) {
+        Tenant tenant = tenants.get(publicKey);
+        return null != tenant ? tenant.metrics : null;
+    }
+
+    /**
+     * Public keys of the tenants served
+     */
+    public Set<String> getTenants() {
+        return Collections.unmodifiableSet(new TreeSet<String>(tenants.keySet()));
+    }
+
+    /**
+     * Forgets a tenant. Its instance keeps working until the factory is closed
+     */
+    public void remove(String publicKey) {
+        tenants.remove(publicKey);
+    }
+
+    /**
+     * Releases the shared connection pools. Caller-owned clients of the {@link OHTClientConfig OHTClientConfig}
+     * are left open. Instances of the factory can not be used afterwards
+     */
+    public void close() throws IOException {
+        CloseableHttpClient httpClient;
+        CloseableHttpAsyncClient httpAsyncClient;
+        synchronized (this) {
+            closed = true;
+            httpClient = this.httpClient;
+            httpAsyncClient = this.httpAsyncClient;
+            this.httpClient = null;
+            this.httpAsyncClient = null;
+        }
+
+        tenants.clear();
+
+        if (null != httpClient && httpClient != config.getHttpClient())
+            httpClient.close();
+
+        if (null != httpAsyncClient && httpAsyncClient != config.getAsyncClient())
+            httpAsyncClient.close();
+    }
+
+    CloseableHttpClient getHttpClient() {
+        CloseableHttpClient result = httpClient;
+        if (null != result)
+            return result;
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("factory is closed");
+
+            if (null == httpClient)
+                httpClient = null != config.getHttpClient() ? config.getHttpClient() : config.createHttpClient();
+
+            return httpClient;
+        }
+    }
+
+    CloseableHttpAsyncClient getAsyncClient() throws IOException {
+        CloseableHttpAsyncClient result = httpAsyncClient;
+        if (null != result)
+            return result;
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("factory is closed");
+
+            if (null == httpAsyncClient) {
+                if (null != config.getAsyncClient()) {
+                    httpAsyncClient = config.getAsyncClient();
+                    if (!httpAsyncClient.isRunning())
+                        httpAsyncClient.start();
+                } else {
+                    httpAsyncClient = config.createAsyncClient();
+                }
+            }
+
+            return httpAsyncClient;
+        }
+    }
+
+    private static class Tenant {
+        private final String secretKey;
+        private final OHTAPI api;
+        private final InMemoryMetrics metrics;
+        private final TenantQuota quota;
+
+        Tenant(String secretKey, OHTAPI api, InMemoryMetrics metrics, TenantQuota quota) {
+            this.secretKey = secretKey;
+            this.api = api;
+            this.metrics = metrics;
+            this.quota = quota;
+        }
+
+        boolean matches(String secretKey, int maxConcurrentRequests) {
+            return (null != secretKey ? secretKey.equals(this.secretKey) : null == this.secretKey)
+                    && quota.getLimit() == maxConcurrentRequests;
+        }
+    }
+
+    /**
+     * Builder of {@link OHTClientFactory OHTClientFactory}
+     */
+    public static class Builder {
+
+        private OHTClientConfig config = OHTClientConfig.DEFAULT;
+        private boolean useSandbox = false;
+        private int maxConcurrentRequests = 8;
+
+        private Builder() {
+        }
+
+        /**
+         * Transport shared by all tenants (defaults to {@link OHTClientConfig#DEFAULT}, in a pool of the factory's own).
+         * All calls go to one host, so allow about as many connections per route as in total
+         */
+        public Builder setClientConfig(OHTClientConfig config) {
+            this.config = null != config ? config : OHTClientConfig.DEFAULT;
+            return this;
+        }
+
+        /**
+         * Use the sandbox environment (defaults to {@code false})
+         */
+        public Builder setUseSandbox(boolean useSandbox) {
+            this.useSandbox = useSandbox;
+            return this;
+        }
+
+        /**
+         * Default number of requests a tenant has in flight at a time (defaults to 8).
+         * Keep it below the size of the pool, so other tenants always find a connection
+         */
+        public Builder setMaxConcurrentRequests(int maxConcurrentRequests) {
+            if (maxConcurrentRequests < 1)
+                throw new IllegalArgumentException("maxConcurrentRequests must be at least 1");
+
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public OHTClientFactory build() {
+            return new OHTClientFactory(this);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.oht;
 
 import com.google.gson.JsonArray;
 
+import java.util.concurrent.CompletionException;
+
 public class OHTException extends Exception
 {
 
@@ -23,6 +25,7 @@ public class OHTException extends Exception
     private int statusCode;
     private String statusMessage;
     private JsonArray errors;
+    private int httpStatus = 0;
 
     public int getStatusCode() {
         return statusCode;
@@ -35,4 +38,23 @@ public class OHTException extends Exception
     public JsonArray getErrors() {
         return errors;
     }
+
+    /**
+     * HTTP status of the response that caused the error, or 0 if no response was received
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    void setHttpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    // failure of a future as an OHTException, unwrapped from the CompletionException of a dependent future
+    static OHTException of(Throwable error) {
+        if (error instanceof CompletionException && null != error.getCause())
+            error = error.getCause();
+
+        return error instanceof OHTException ? (OHTException) error : new OHTException(error);
+    }
 }
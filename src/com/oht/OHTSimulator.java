@@ -0,0 +1,1140 @@
+package com.oht;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the OHT API, for load and latency testing without touching the real service.
+ * It serves every endpoint {@link OHTAPI OHTAPI} calls from memory, built on the JDK's {@link HttpServer HttpServer}:
+ * <pre>
+ *     OHTSimulator simulator = OHTSimulator.custom()
+ *         .setLatency(OHTSimulator.Latency.logNormal(80, 0.5))
+ *         .setErrorRate(0.01)
+ *         .build();
+ *     OHTAPI api = new OHTAPI(secretKey, publicKey, false,
+ *         OHTClientConfig.custom().setBaseUrl(simulator.getBaseUrl()).build());
+ * </pre>
+ * Projects move from {@code pending} through {@code in_progress} and {@code submitted} to {@code completed},
+ * one stage every {@code stageMillis}; a completed project gets a translation resource, and its
+ * {@code callbackUrl} is called on every status change. Only pending projects can be cancelled.
+ * <p>
+ * Responses are delayed by the configured {@link Latency Latency} without holding a server thread.
+ * A share of requests ({@code errorRate}) fails with HTTP 500. With a throttling {@link RateLimiter RateLimiter}
+ * requests over its limits, per public key and endpoint group, are answered with HTTP 429 (or delayed,
+ * if it allows waiting). API errors come back with status code 101 (missing parameter), 102 (invalid parameter)
+ * or 404 (unknown endpoint, project or resource).
+ */
+public class OHTSimulator implements Closeable {
+
+    /**
+     * Distribution of the simulated response time
+     */
+    public static abstract class Latency {
+
+        /**
+         * Next response time in milliseconds
+         */
+        public abstract long nextMillis(Random random);
+
+        public static Latency fixed(final long millis) {
+            return new Latency() {
+                public long nextMillis(Random random) {
+                    return millis;
+                }
+            };
+        }
+
+        public static Latency uniform(final long minMillis, final long maxMillis) {
+            return new Latency() {
+                public long nextMillis(Random random) {
+                    return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+                }
+            };
+        }
+
+        /**
+         * Long-tailed response times, as seen from real services
+         *
+         * @param medianMillis median response time
+         * @param sigma        spread, e.g. 0.5 puts the 99th percentile at about three times the median
+         */
+        public static Latency logNormal(final double medianMillis, final double sigma) {
+            return new Latency() {
+                public long nextMillis(Random random) {
+                    return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+                }
+            };
+        }
+    }
+
+    private static final String BASE_PATH = "/api/2";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern PART_NAME = Pattern.compile("\\bname=\"([^\"]*)\"");
+    private static final Pattern PART_FILE_NAME = Pattern.compile("\\bfilename=\"([^\"]*)\"");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final double CREDITS_PER_WORD = 0.075;
+
+    private static final String[][] LANGUAGES = {
+            {"en-us", "English (USA)"}, {"fr-fr", "French (France)"}, {"de-de", "German"}, {"es-es", "Spanish (Spain)"},
+            {"it-it", "Italian"}, {"ja-jp", "Japanese"}, {"he-il", "Hebrew"}, {"pl-pl", "Polish"}};
+    private static final String[][] EXPERTISES = {
+            {"1", "automotive-aerospace", "Automotive / Aerospace"}, {"7", "legal-patent", "Legal: Patent"},
+            {"12", "marketing-consumer-media", "Marketing / Consumer / Media"}, {"19", "it-technical", "IT / Technical"}};
+    private static final String[] STAGES = {"pending", "in_progress", "submitted", "completed"};
+
+    private HttpServer server;
+    private ScheduledExecutorService executor;
+    private Latency latency;
+    private Map<RateLimiter.Group, Latency> groupLatencies;
+    private double errorRate;
+    private RateLimiter throttle;
+    private long stageMillis;
+    private double credits;
+    private Random random;
+
+    private final ConcurrentMap<String, StoredResource> resources = new ConcurrentHashMap<String, StoredResource>();
+    private final ConcurrentMap<Integer, SimulatedProject> projects = new ConcurrentHashMap<Integer, SimulatedProject>();
+    private final AtomicInteger nextProjectId = new AtomicInteger(1000);
+    private final AtomicLong nextResourceId = new AtomicLong(0x5a3f0c1e2b7d0L);
+    private final AtomicInteger nextCommentId = new AtomicInteger(1);
+    private final AtomicInteger nextTagId = new AtomicInteger(1);
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    private OHTSimulator(Builder builder) throws IOException {
+        this.latency = builder.latency;
+        this.groupLatencies = new EnumMap<RateLimiter.Group, Latency>(builder.groupLatencies);
+        this.errorRate = builder.errorRate;
+        this.throttle = builder.throttle;
+        this.stageMillis = builder.stageMillis;
+        this.credits = builder.credits;
+        this.random = null != builder.seed ? new Random(builder.seed) : null;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(builder.threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oht-simulator-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        this.server = HttpServer.create(new InetSocketAddress(builder.host, builder.port), builder.backlog);
+        server.setExecutor(executor);
+        server.createContext(BASE_PATH, new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                receive(exchange);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Address to pass to {@link OHTClientConfig.Builder#setBaseUrl(String)}, e.g. {@code http://127.0.0.1:50123/api/2}
+     */
+    public String getBaseUrl() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + BASE_PATH;
+    }
+
+    /**
+     * Number of requests received
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Number of requests failed on purpose with HTTP 500
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Number of requests answered with HTTP 429
+     */
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * Stops the server; responses still being delayed are dropped
+     */
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    //<editor-fold desc="REQUEST HANDLING">
+
+    private void receive(final HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+
+        Response response;
+        long delayMillis = 0;
+        try {
+            String path = exchange.getRequestURI().getPath().substring(BASE_PATH.length());
+            RateLimiter.Group group = RateLimiter.Group.of(path);
+            Latency groupLatency = groupLatencies.get(group);
+            delayMillis = Math.max(0, (null != groupLatency ? groupLatency : latency).nextMillis(random()));
+
+            SimulatedRequest request = new SimulatedRequest(exchange);
+            long wait = null != throttle ? throttle.reserve(request.param("public_key"), group) : 0;
+            if (wait < 0) {
+                throttledCount.incrementAndGet();
+                response = Response.json(429, envelope(429, "Too many requests", null));
+            } else if (errorRate > 0 && random().nextDouble() < errorRate) {
+                failedCount.incrementAndGet();
+                response = new Response(500, "text/html", "<html><body>Internal Server Error</body></html>".getBytes(StandardCharsets.UTF_8));
+            } else {
+                delayMillis += TimeUnit.NANOSECONDS.toMillis(wait);
+                response = dispatch(request, segments(path));
+            }
+        } catch (ApiError ex) {
+            response = Response.json(200, envelope(ex.code, ex.getMessage(), null));
+        } catch (RuntimeException ex) {
+            response = Response.json(500, envelope(500, String.valueOf(ex), null));
+        }
+
+        final Response result = response;
+        Runnable send = new Runnable() {
+            public void run() {
+                send(exchange, result);
+            }
+        };
+
+        if (delayMillis > 0)
+            executor.schedule(send, delayMillis, TimeUnit.MILLISECONDS);
+        else
+            send.run();
+    }
+
+    private static void send(HttpExchange exchange, Response response) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            for (Map.Entry<String, String> header : response.headers.entrySet())
+                exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+            exchange.sendResponseHeaders(response.status, response.body.length > 0 ? response.body.length : -1);
+            if (response.body.length > 0) {
+                OutputStream output = exchange.getResponseBody();
+                output.write(response.body);
+                output.close();
+            }
+        } catch (IOException ex) {
+            // the client went away
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Response dispatch(SimulatedRequest request, List<String> segments) throws ApiError {
+        if (request.param("secret_key").isEmpty() || request.param("public_key").isEmpty())
+            throw new ApiError(101, "Missing credentials");
+
+        String method = request.method;
+        String first = segments.isEmpty() ? "" : segments.get(0);
+        int size = segments.size();
+
+        if (first.equals("account") && size == 1 && method.equals("GET"))
+            return ok(account());
+
+        if (first.equals("resources")) {
+            if (size == 2 && method.equals("POST") && segments.get(1).equals("file"))
+                return ok(uploadFile(request));
+            if (size == 2 && method.equals("POST") && segments.get(1).equals("text"))
+                return ok(uploadText(request));
+            if (size == 2 && method.equals("GET"))
+                return ok(resource(segments.get(1), request));
+            if (size == 3 && method.equals("GET") && segments.get(2).equals("download"))
+                return download(segments.get(1), request.header("Range"));
+        }
+
+        if (first.equals("tools") && size == 2 && method.equals("GET")) {
+            if (segments.get(1).equals("quote"))
+                return ok(quote(request));
+            if (segments.get(1).equals("wordcount"))
+                return ok(wordCount(request));
+        }
+
+        if (first.equals("projects") && size >= 2) {
+            if (size == 2 && method.equals("POST") && !isNumber(segments.get(1)))
+                return ok(createProject(segments.get(1), request));
+
+            SimulatedProject project = project(segments.get(1));
+            if (size == 2 && method.equals("GET"))
+                return ok(projectDetails(project));
+            if (size == 2 && method.equals("DELETE"))
+                return ok(cancelProject(project));
+            if (size == 3 && segments.get(2).equals("comments"))
+                return ok(method.equals("POST") ? addComment(project, request) : list(project, project.comments));
+            if (size == 3 && segments.get(2).equals("rating"))
+                return ok(method.equals("POST") ? addRating(project, request) : list(project, project.ratings));
+        }
+
+        if (first.equals("project") && size >= 3 && segments.get(2).equals("tag")) {
+            SimulatedProject project = project(segments.get(1));
+            if (size == 3 && method.equals("GET"))
+                return ok(tags(project));
+            if (size == 3 && method.equals("POST"))
+                return ok(addTag(project, request));
+            if (size == 4 && method.equals("DELETE"))
+                return ok(deleteTag(project, segments.get(3)));
+        }
+
+        if (first.equals("mt") && size == 3 && method.equals("POST") && segments.get(2).equals("text")) {
+            if (segments.get(1).equals("translate"))
+                return ok(machineTranslation(request));
+            if (segments.get(1).equals("detect"))
+                return ok(detectLanguage(request));
+        }
+
+        if (first.equals("discover") && size == 2 && method.equals("GET")) {
+            if (segments.get(1).equals("languages"))
+                return ok(languages());
+            if (segments.get(1).equals("language_pairs"))
+                return ok(languagePairs());
+            if (segments.get(1).equals("expertise"))
+                return ok(expertises(request));
+        }
+
+        throw new ApiError(404, "Unknown endpoint " + method + " " + segments);
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="ENDPOINTS">
+
+    private JsonElement account() {
+        JsonObject result = new JsonObject();
+        result.addProperty("account_id", 1);
+        result.addProperty("account_username", "simulator");
+        result.addProperty("credits", credits);
+        result.addProperty("role", "customer");
+        return result;
+    }
+
+    private JsonElement uploadFile(SimulatedRequest request) throws ApiError {
+        byte[] content = request.upload;
+        String fileName = request.param("file_name");
+        if (null == content) {
+            if (request.param("file_content").isEmpty())
+                throw new ApiError(101, "Missing upload");
+            content = request.param("file_content").getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (fileName.isEmpty())
+            fileName = null != request.uploadName ? request.uploadName : "file";
+        String fileMime = request.param("file_mime");
+        return uuidArray(store(new StoredResource("file", fileName, fileMime.isEmpty() ? "application/octet-stream" : fileMime, content)));
+    }
+
+    private JsonElement uploadText(SimulatedRequest request) throws ApiError {
+        String text = request.required("text");
+        return uuidArray(store(new StoredResource("text", null, "text/plain", text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private JsonElement resource(String uuid, SimulatedRequest request) throws ApiError {
+        StoredResource resource = resource(uuid);
+        JsonObject result = new JsonObject();
+        result.addProperty("type", resource.type);
+        result.addProperty("length", resource.content.length);
+        if (null != resource.fileName)
+            result.addProperty("file_name", resource.fileName);
+        result.addProperty("file_mime", resource.fileMime);
+        result.addProperty("download_url", getBaseUrl() + "/resources/" + resource.uuid + "/download");
+        if (request.param("fetch").equals("base64"))
+            result.addProperty("content", Base64.getEncoder().encodeToString(resource.content));
+        return result;
+    }
+
+    // honors single byte ranges, so resumable and parallel downloads can be tested
+    private Response download(String uuid, String range) throws ApiError {
+        StoredResource resource = resource(uuid);
+        byte[] content = resource.content;
+
+        Matcher matcher = null != range ? RANGE.matcher(range) : null;
+        if (null == matcher || !matcher.matches())
+            return new Response(200, resource.fileMime, content);
+
+        long first = Long.parseLong(matcher.group(1));
+        long last = matcher.group(2).isEmpty() ? content.length - 1 : Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+        if (first > last) {
+            Response response = new Response(416, resource.fileMime, new byte[0]);
+            response.headers.put("Content-Range", "bytes */" + content.length);
+            return response;
+        }
+
+        Response response = new Response(206, resource.fileMime, Arrays.copyOfRange(content, (int) first, (int) last + 1));
+        response.headers.put("Content-Range", "bytes " + first + "-" + last + "/" + content.length);
+        return response;
+    }
+
+    private JsonElement quote(SimulatedRequest request) throws ApiError {
+        checkLanguages(request.required("source_language"), request.required("target_language"));
+
+        JsonArray resourceQuotes = new JsonArray();
+        int total = 0;
+        for (String uuid : request.list("resources")) {
+            int words = wordCount(resource(uuid).content);
+            JsonObject resourceQuote = new JsonObject();
+            resourceQuote.addProperty("resource", uuid);
+            resourceQuote.addProperty("wordcount", words);
+            resourceQuote.addProperty("credits", words * CREDITS_PER_WORD);
+            resourceQuote.addProperty("price", words * CREDITS_PER_WORD);
+            resourceQuotes.add(resourceQuote);
+            total += words;
+        }
+        if (resourceQuotes.size() == 0)
+            total = request.number("wordcount");
+
+        double net = total * CREDITS_PER_WORD;
+        double fee = Math.round(net * 3) / 100.0;
+        JsonObject totals = new JsonObject();
+        totals.addProperty("wordcount", total);
+        totals.addProperty("credits", net);
+        totals.addProperty("net_price", net);
+        totals.addProperty("transaction_fee", fee);
+        totals.addProperty("price", net + fee);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("currency", request.param("currency").isEmpty() ? "USD" : request.param("currency"));
+        result.add("total", totals);
+        result.add("resources", resourceQuotes);
+        return result;
+    }
+
+    private JsonElement wordCount(SimulatedRequest request) throws ApiError {
+        JsonArray counts = new JsonArray();
+        int total = 0;
+        for (String uuid : request.list("resources")) {
+            int words = wordCount(resource(uuid).content);
+            JsonObject count = new JsonObject();
+            count.addProperty("resource", uuid);
+            count.addProperty("wordcount", words);
+            counts.add(count);
+            total += words;
+        }
+
+        JsonObject totals = new JsonObject();
+        totals.addProperty("wordcount", total);
+        JsonObject result = new JsonObject();
+        result.add("total", totals);
+        result.add("resources", counts);
+        return result;
+    }
+
+    private JsonElement createProject(String type, SimulatedRequest request) throws ApiError {
+        if (!Arrays.asList("translation", "proof-general", "proof-translated", "transcription", "transproof").contains(type))
+            throw new ApiError(404, "Unknown project type " + type);
+
+        String source = request.required("source_language");
+        String target = type.equals("proof-general") || type.equals("transcription") ? source : request.required("target_language");
+        checkLanguages(source, target);
+
+        List<String> sources = request.list("sources");
+        if (sources.isEmpty())
+            throw new ApiError(101, "Missing parameter sources");
+
+        int words = 0;
+        for (String uuid : sources)
+            words += wordCount(resource(uuid).content);
+        if (!request.param("wordcount").isEmpty())
+            words = request.number("wordcount");
+
+        final SimulatedProject project = new SimulatedProject(nextProjectId.getAndIncrement(), type, source, target, sources, words);
+        project.tags.put(nextTagId.getAndIncrement(), "simulated");
+        projects.put(project.id, project);
+
+        final String callbackUrl = request.param("callback_url");
+        if (!callbackUrl.isEmpty()) {
+            for (int stage = 1; stage < STAGES.length; stage++) {
+                final String status = STAGES[stage];
+                executor.schedule(new Runnable() {
+                    public void run() {
+                        if (!project.canceled)
+                            callback(callbackUrl, project.id, status);
+                    }
+                }, stage * stageMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("project_id", project.id);
+        result.addProperty("wordcount", words);
+        result.addProperty("credits", words * CREDITS_PER_WORD);
+        return result;
+    }
+
+    private JsonElement projectDetails(SimulatedProject project) {
+        String status = status(project);
+        String translation = status.equals("completed") ? translation(project) : null;
+
+        JsonObject resourceLists = new JsonObject();
+        resourceLists.add("sources", uuidArray(project.sources.toArray(new String[0])));
+        resourceLists.add("translations", null != translation ? uuidArray(translation) : new JsonArray());
+        resourceLists.add("proofs", new JsonArray());
+        resourceLists.add("transcriptions", new JsonArray());
+        resourceLists.add("results", null != translation ? uuidArray(translation) : new JsonArray());
+        resourceLists.add("reference", new JsonArray());
+
+        JsonObject result = new JsonObject();
+        result.addProperty("project_id", project.id);
+        result.addProperty("project_type", project.type);
+        result.addProperty("project_status", status);
+        result.addProperty("project_status_code", status);
+        result.addProperty("source_language", project.source);
+        result.addProperty("target_language", project.target);
+        result.add("resources", resourceLists);
+        result.addProperty("wordcount", project.wordCount);
+        result.addProperty("length", 0);
+        result.add("custom", new JsonObject());
+        result.add("resource_binding", new JsonObject());
+        if (!status.equals("pending"))
+            result.addProperty("linguist_uuid", "lng-" + Integer.toHexString(project.id * 7919));
+        synchronized (project) {
+            result.add("tags", uuidArray(project.tags.values().toArray(new String[0])));
+        }
+        return result;
+    }
+
+    private JsonElement cancelProject(SimulatedProject project) throws ApiError {
+        synchronized (project) {
+            if (!status(project).equals("pending"))
+                throw new ApiError(102, "Only pending projects can be cancelled");
+            project.canceled = true;
+        }
+        return null;
+    }
+
+    private JsonElement addComment(SimulatedProject project, SimulatedRequest request) throws ApiError {
+        JsonObject comment = new JsonObject();
+        comment.addProperty("id", nextCommentId.getAndIncrement());
+        comment.addProperty("commenter_name", "simulator");
+        comment.addProperty("commenter_role", "customer");
+        comment.addProperty("comment_content", request.required("content"));
+        comment.addProperty("date", LocalDateTime.now().format(DATE_FORMAT));
+        synchronized (project) {
+            project.comments.add(comment);
+        }
+        return null;
+    }
+
+    private JsonElement addRating(SimulatedProject project, SimulatedRequest request) throws ApiError {
+        JsonObject rating = new JsonObject();
+        rating.addProperty("type", request.required("type"));
+        rating.addProperty("rate", request.number("rate"));
+        rating.addProperty("remarks", request.param("remarks"));
+        rating.addProperty("date", LocalDateTime.now().format(DATE_FORMAT));
+        synchronized (project) {
+            project.ratings.add(rating);
+        }
+        return null;
+    }
+
+    private static JsonElement list(SimulatedProject project, List<JsonObject> elements) {
+        JsonArray result = new JsonArray();
+        synchronized (project) {
+            for (JsonObject element : elements)
+                result.add(element);
+        }
+        return result;
+    }
+
+    private JsonElement tags(SimulatedProject project) {
+        JsonObject result = new JsonObject();
+        synchronized (project) {
+            for (Map.Entry<Integer, String> tag : project.tags.entrySet())
+                result.addProperty(tag.getKey().toString(), tag.getValue());
+        }
+        return result;
+    }
+
+    private JsonElement addTag(SimulatedProject project, SimulatedRequest request) throws ApiError {
+        String name = request.required("tag_name");
+        synchronized (project) {
+            project.tags.put(nextTagId.getAndIncrement(), name);
+        }
+        return null;
+    }
+
+    private JsonElement deleteTag(SimulatedProject project, String tagId) throws ApiError {
+        synchronized (project) {
+            if (!isNumber(tagId) || null == project.tags.remove(Integer.valueOf(tagId)))
+                throw new ApiError(404, "Unknown tag " + tagId);
+        }
+        return null;
+    }
+
+    private JsonElement machineTranslation(SimulatedRequest request) throws ApiError {
+        String target = request.required("target_language");
+        checkLanguages(request.required("source_language"), target);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("TranslatedText", "[" + target + "] " + request.required("source_content"));
+        return result;
+    }
+
+    private JsonElement detectLanguage(SimulatedRequest request) throws ApiError {
+        request.required("source_content");
+        JsonObject result = new JsonObject();
+        result.addProperty("language", "en-us");
+        return result;
+    }
+
+    private static JsonElement languages() {
+        JsonArray result = new JsonArray();
+        for (String[] language : LANGUAGES)
+            result.add(language(language));
+        return result;
+    }
+
+    // English to and from every other language
+    private static JsonElement languagePairs() {
+        JsonArray result = new JsonArray();
+        for (String[] source : LANGUAGES) {
+            JsonArray targets = new JsonArray();
+            for (String[] target : LANGUAGES) {
+                if (source == target || (source != LANGUAGES[0] && target != LANGUAGES[0]))
+                    continue;
+
+                JsonObject pair = language(target);
+                pair.addProperty("availability", target == LANGUAGES[0] || source == LANGUAGES[0] ? "high" : "low");
+                targets.add(pair);
+            }
+
+            JsonObject pair = new JsonObject();
+            pair.add("source", language(source));
+            pair.add("targets", targets);
+            result.add(pair);
+        }
+        return result;
+    }
+
+    private static JsonElement expertises(SimulatedRequest request) throws ApiError {
+        checkLanguages(request.param("source_language"), request.param("target_language"));
+
+        JsonArray result = new JsonArray();
+        for (String[] expertise : EXPERTISES) {
+            JsonObject element = new JsonObject();
+            element.addProperty("expertise_id", Integer.parseInt(expertise[0]));
+            element.addProperty("code", expertise[1]);
+            element.addProperty("name", expertise[2]);
+            result.add(element);
+        }
+        return result;
+    }
+
+    //</editor-fold>
+
+    //<editor-fold desc="STATE">
+
+    private String store(StoredResource resource) {
+        resources.put(resource.uuid, resource);
+        return resource.uuid;
+    }
+
+    private StoredResource resource(String uuid) throws ApiError {
+        StoredResource resource = resources.get(uuid);
+        if (null == resource)
+            throw new ApiError(404, "Unknown resource " + uuid);
+        return resource;
+    }
+
+    private SimulatedProject project(String id) throws ApiError {
+        SimulatedProject project = isNumber(id) ? projects.get(Integer.valueOf(id)) : null;
+        if (null == project)
+            throw new ApiError(404, "Unknown project " + id);
+        return project;
+    }
+
+    private String status(SimulatedProject project) {
+        if (project.canceled)
+            return "canceled";
+
+        long stage = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - project.created) / Math.max(1, stageMillis);
+        return STAGES[(int) Math.min(stage, STAGES.length - 1)];
+    }
+
+    // the translation of a completed project is the source text tagged with the target language
+    private String translation(SimulatedProject project) {
+        synchronized (project) {
+            if (null == project.translation) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] prefix = ("[" + project.target + "] ").getBytes(StandardCharsets.UTF_8);
+                content.write(prefix, 0, prefix.length);
+                for (String uuid : project.sources) {
+                    StoredResource source = resources.get(uuid);
+                    if (null != source) {
+                        content.write(source.content, 0, source.content.length);
+                        content.write('\n');
+                    }
+                }
+
+                project.translation = store(new StoredResource("file", "translation-" + project.id + ".txt", "text/plain", content.toByteArray()));
+            }
+            return project.translation;
+        }
+    }
+
+    private void callback(String callbackUrl, int projectId, String status) {
+        try {
+            byte[] body = ("event=project.status.update&project_id=" + projectId
+                    + "&project_status_code=" + URLEncoder.encode(status, "UTF-8")).getBytes(StandardCharsets.UTF_8);
+            HttpURLConnection connection = (HttpURLConnection) new URL(callbackUrl).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(5000);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            OutputStream output = connection.getOutputStream();
+            output.write(body);
+            output.close();
+            connection.getResponseCode();
+            connection.disconnect();
+        } catch (IOException ex) {
+            // the real service does not retry failed callbacks either
+        }
+    }
+
+    private Random random() {
+        return null != random ? random : ThreadLocalRandom.current();
+    }
+
+    private String newUuid() {
+        return "rsc-" + Long.toHexString(nextResourceId.getAndIncrement());
+    }
+
+    private static void checkLanguages(String... codes) throws ApiError {
+        for (String code : codes) {
+            boolean known = code.isEmpty();
+            for (String[] language : LANGUAGES)
+                known |= language[0].equals(code);
+            if (!known)
+                throw new ApiError(102, "Unsupported language " + code);
+        }
+    }
+
+    private static int wordCount(byte[] content) {
+        int words = 0;
+        boolean inWord = false;
+        for (char c : new String(content, StandardCharsets.UTF_8).toCharArray()) {
+            boolean letter = !Character.isWhitespace(c);
+            if (letter && !inWord)
+                words++;
+            inWord = letter;
+        }
+        return words;
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty())
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> result = new ArrayList<String>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty())
+                result.add(segment);
+        }
+        return result;
+    }
+
+    private static JsonObject language(String[] language) {
+        JsonObject result = new JsonObject();
+        result.addProperty("code", language[0]);
+        result.addProperty("name", language[1]);
+        return result;
+    }
+
+    private static JsonArray uuidArray(String... uuids) {
+        JsonArray result = new JsonArray();
+        for (String uuid : uuids)
+            result.add(new JsonPrimitive(uuid));
+        return result;
+    }
+
+    private static Response ok(JsonElement results) {
+        return Response.json(200, envelope(0, "ok", results));
+    }
+
+    private static JsonObject envelope(int code, String message, JsonElement results) {
+        JsonObject status = new JsonObject();
+        status.addProperty("code", code);
+        status.addProperty("msg", message);
+
+        JsonObject result = new JsonObject();
+        result.add("status", status);
+        result.add("errors", new JsonArray());
+        if (null != results)
+            result.add("results", results);
+        return result;
+    }
+
+    private class StoredResource {
+        final String uuid = newUuid();
+        final String type;
+        final String fileName;
+        final String fileMime;
+        final byte[] content;
+
+        StoredResource(String type, String fileName, String fileMime, byte[] content) {
+            this.type = type;
+            this.fileName = fileName;
+            this.fileMime = fileMime;
+            this.content = content;
+        }
+    }
+
+    private static class SimulatedProject {
+        final int id;
+        final String type;
+        final String source;
+        final String target;
+        final List<String> sources;
+        final int wordCount;
+        final long created = System.nanoTime();
+        final List<JsonObject> comments = new ArrayList<JsonObject>();
+        final List<JsonObject> ratings = new ArrayList<JsonObject>();
+        final Map<Integer, String> tags = new LinkedHashMap<Integer, String>();
+        volatile boolean canceled = false;
+        String translation = null;
+
+        SimulatedProject(int id, String type, String source, String target, List<String> sources, int wordCount) {
+            this.id = id;
+            this.type = type;
+            this.source = source;
+            this.target = target;
+            this.sources = sources;
+            this.wordCount = wordCount;
+        }
+    }
+
+    private static class ApiError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int code;
+
+        ApiError(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String contentType;
+        final byte[] body;
+        final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+        Response(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response json(int status, JsonObject body) {
+            return new Response(status, "application/json", body.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // parameters from the query string, a form body or the text parts of a multipart body
+    private static class SimulatedRequest {
+        final String method;
+        final Map<String, String> params = new HashMap<String, String>();
+        final Map<String, String> headers = new HashMap<String, String>();
+        byte[] upload = null;
+        String uploadName = null;
+
+        SimulatedRequest(HttpExchange exchange) throws IOException, ApiError {
+            this.method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                if (!header.getValue().isEmpty())
+                    headers.put(header.getKey().toLowerCase(Locale.ROOT), header.getValue().get(0));
+            }
+
+            String query = exchange.getRequestURI().getRawQuery();
+            if (null != query)
+                decodeForm(query);
+
+            byte[] body = read(exchange.getRequestBody());
+            String contentType = header("Content-Type");
+            if (null == contentType || body.length == 0)
+                return;
+
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("application/x-www-form-urlencoded"))
+                decodeForm(new String(body, StandardCharsets.UTF_8));
+            else if (type.startsWith("multipart/form-data"))
+                decodeMultipart(body, contentType);
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        String param(String name) {
+            String value = params.get(name);
+            return null != value ? value : "";
+        }
+
+        String required(String name) throws ApiError {
+            String value = param(name);
+            if (value.isEmpty())
+                throw new ApiError(101, "Missing parameter " + name);
+            return value;
+        }
+
+        int number(String name) throws ApiError {
+            String value = param(name);
+            if (!isNumber(value))
+                throw new ApiError(102, "Invalid parameter " + name);
+            return Integer.parseInt(value);
+        }
+
+        List<String> list(String name) {
+            List<String> result = new ArrayList<String>();
+            for (String element : param(name).split(",")) {
+                if (!element.trim().isEmpty())
+                    result.add(element.trim());
+            }
+            return result;
+        }
+
+        private void decodeForm(String form) throws ApiError {
+            try {
+                for (String pair : form.split("&")) {
+                    if (pair.isEmpty())
+                        continue;
+
+                    int equals = pair.indexOf('=');
+                    String name = equals < 0 ? pair : pair.substring(0, equals);
+                    String value = equals < 0 ? "" : pair.substring(equals + 1);
+                    params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+                }
+            } catch (IllegalArgumentException | UnsupportedEncodingException ex) {
+                throw new ApiError(102, "Malformed parameters");
+            }
+        }
+
+        private void decodeMultipart(byte[] body, String contentType) throws ApiError {
+            int boundaryStart = contentType.indexOf("boundary=");
+            if (boundaryStart < 0)
+                throw new ApiError(102, "Malformed multipart body");
+            String boundary = contentType.substring(boundaryStart + "boundary=".length()).split(";")[0].trim().replace("\"", "");
+
+            byte[] delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+            byte[] headerEnd = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+            // the first delimiter has no leading line break
+            int position = indexOf(body, Arrays.copyOfRange(delimiter, 2, delimiter.length), 0);
+            if (position < 0)
+                throw new ApiError(102, "Malformed multipart body");
+            position += delimiter.length - 2;
+
+            while (position + 2 <= body.length && !(body[position] == '-' && body[position + 1] == '-')) {
+                int headersStart = position + 2;
+                int headersEnd = indexOf(body, headerEnd, headersStart);
+                int contentEnd = headersEnd < 0 ? -1 : indexOf(body, delimiter, headersEnd + headerEnd.length);
+                if (contentEnd < 0)
+                    throw new ApiError(102, "Malformed multipart body");
+
+                String partHeaders = new String(body, headersStart, headersEnd - headersStart, StandardCharsets.UTF_8);
+                byte[] content = Arrays.copyOfRange(body, headersEnd + headerEnd.length, contentEnd);
+                Matcher name = PART_NAME.matcher(partHeaders);
+                Matcher fileName = PART_FILE_NAME.matcher(partHeaders);
+                if (fileName.find()) {
+                    upload = content;
+                    uploadName = fileName.group(1);
+                } else if (name.find()) {
+                    params.put(name.group(1), new String(content, StandardCharsets.UTF_8));
+                }
+
+                position = contentEnd + delimiter.length;
+            }
+        }
+
+        private static int indexOf(byte[] data, byte[] pattern, int from) {
+            outer:
+            for (int i = from; i <= data.length - pattern.length; i++) {
+                for (int j = 0; j < pattern.length; j++) {
+                    if (data[i + j] != pattern[j])
+                        continue outer;
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        private static byte[] read(InputStream input) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = input.read(chunk)) != -1)
+                buffer.write(chunk, 0, read);
+            return buffer.toByteArray();
+        }
+    }
+
+    //</editor-fold>
+
+    /**
+     * Builder of {@link OHTSimulator OHTSimulator}
+     */
+    public static class Builder {
+
+        private String host = "127.0.0.1";
+        private int port = 0;
+        private int backlog = 256;
+        private int threads = 8;
+        private Latency latency = Latency.fixed(0);
+        private Map<RateLimiter.Group, Latency> groupLatencies = new EnumMap<RateLimiter.Group, Latency>(RateLimiter.Group.class);
+        private double errorRate = 0;
+        private RateLimiter throttle = null;
+        private long stageMillis = 5000;
+        private double credits = 10000;
+        private Long seed = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Address to listen on (defaults to the loopback address)
+         */
+        public Builder setHost(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * Port to listen on (defaults to 0, a free one)
+         */
+        public Builder setPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Maximum number of pending TCP connections (defaults to 256)
+         */
+        public Builder setBacklog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Number of threads handling and answering requests (defaults to 8); delayed responses do not hold one
+         */
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Response time of all endpoints without a latency of their own (defaults to none)
+         */
+        public Builder setLatency(Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Response time of one endpoint group
+         */
+        public Builder setLatency(RateLimiter.Group group, Latency latency) {
+            this.groupLatencies.put(group, latency);
+            return this;
+        }
+
+        /**
+         * Share of requests failing with HTTP 500, between 0 and 1 (defaults to 0)
+         */
+        public Builder setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Server-side limits; requests it rejects are answered with HTTP 429 (defaults to none)
+         */
+        public Builder setThrottle(RateLimiter throttle) {
+            this.throttle = throttle;
+            return this;
+        }
+
+        /**
+         * Time a project spends in each status before moving to the next, in milliseconds (defaults to 5000)
+         */
+        public Builder setStageMillis(long stageMillis) {
+            this.stageMillis = stageMillis;
+            return this;
+        }
+
+        /**
+         * Credits reported by the account endpoint (defaults to 10000)
+         */
+        public Builder setCredits(double credits) {
+            this.credits = credits;
+            return this;
+        }
+
+        /**
+         * Seed of the latency and error sampling, for repeatable runs (defaults to none)
+         */
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Builds the simulator and starts listening
+         *
+         * @throws IOException if the port cannot be bound
+         */
+        public OHTSimulator build() throws IOException {
+            if (threads < 1)
+                throw new IllegalArgumentException("threads must be positive");
+            if (errorRate < 0 || errorRate > 1)
+                throw new IllegalArgumentException("errorRate must be between 0 and 1");
+            if (null == latency)
+                throw new IllegalArgumentException("latency is required");
+
+            return new OHTSimulator(this);
+        }
+    }
+}
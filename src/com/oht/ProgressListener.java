@@ -0,0 +1,14 @@
+package com.oht;
+
+/**
+ * Receives transfer progress of resource uploads and downloads.
+ * Called on the transferring thread after every chunk, so it should return quickly
+ */
+public interface ProgressListener {
+
+    /**
+     * @param transferred bytes transferred so far
+     * @param total       total bytes, or {@code -1} if unknown
+     */
+    void onProgress(long transferred, long total);
+}
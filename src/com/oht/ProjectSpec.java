@@ -0,0 +1,223 @@
+package com.oht;
+
+import com.oht.entities.Project;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Description of a project to create, used for bulk submission with {@link BulkSubmitter BulkSubmitter}.
+ * Create it with one of the static factories and set the optional fields:
+ * <pre>
+ *     ProjectSpec.translation("en-us", "fr-fr", resources).setExpertise("legal").setName("Contract");
+ * </pre>
+ */
+public class ProjectSpec {
+
+    /**
+     * Kind of project, matching the {@code create*Project} methods of {@link OHTAPI OHTAPI}
+     */
+    public enum Type {
+        TRANSLATION,
+        TRANSLATION_PLUS_EDITING,
+        PROOFREADING,
+        PROOF_TRANSLATED,
+        TRANSCRIPTION
+    }
+
+    private Type type;
+    private String sourceLanguage;
+    private String targetLanguage;
+    private String[] sources;
+    private String[] translations;
+    private Integer wordCount;
+    private String notes;
+    private String expertise;
+    private String callbackUrl;
+    private String name;
+    private String[] referenceResources;
+    private String[] custom;
+
+    private ProjectSpec(Type type, String sourceLanguage, String targetLanguage, String[] sources) {
+        this.type = type;
+        this.sourceLanguage = sourceLanguage;
+        this.targetLanguage = targetLanguage;
+        this.sources = sources;
+    }
+
+    /**
+     * @see OHTAPI#createTranslationProject(String, String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public static ProjectSpec translation(String sourceLanguage, String targetLanguage, String[] resources) {
+        return new ProjectSpec(Type.TRANSLATION, sourceLanguage, targetLanguage, resources);
+    }
+
+    /**
+     * @see OHTAPI#createTranslationPlusEditingProject(String, String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public static ProjectSpec translationPlusEditing(String sourceLanguage, String targetLanguage, String[] resources) {
+        return new ProjectSpec(Type.TRANSLATION_PLUS_EDITING, sourceLanguage, targetLanguage, resources);
+    }
+
+    /**
+     * @see OHTAPI#createProofreadingProject(String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public static ProjectSpec proofreading(String sourceLanguage, String[] sources) {
+        return new ProjectSpec(Type.PROOFREADING, sourceLanguage, null, sources);
+    }
+
+    /**
+     * @see OHTAPI#createProofTranslatedProject(String, String, String[], String[], Integer, String, String, String, String, String[], String[])
+     */
+    public static ProjectSpec proofTranslated(String sourceLanguage, String targetLanguage, String[] sources, String[] translations) {
+        ProjectSpec result = new ProjectSpec(Type.PROOF_TRANSLATED, sourceLanguage, targetLanguage, sources);
+        result.translations = translations;
+        return result;
+    }
+
+    /**
+     * @see OHTAPI#createTranscriptionProject(String, String[], Integer, String, String, String, String, String[], String[])
+     */
+    public static ProjectSpec transcription(String sourceLanguage, String[] sources) {
+        return new ProjectSpec(Type.TRANSCRIPTION, sourceLanguage, null, sources);
+    }
+
+    /**
+     * (optional) word count, or length in seconds for transcription projects. If empty use automatic counting
+     */
+    public ProjectSpec setWordCount(Integer wordCount) {
+        this.wordCount = wordCount;
+        return this;
+    }
+
+    /**
+     * (optional) text note that will be shown to translator regarding the newly project
+     */
+    public ProjectSpec setNotes(String notes) {
+        this.notes = notes;
+        return this;
+    }
+
+    /**
+     * (optional) expertise code
+     */
+    public ProjectSpec setExpertise(String expertise) {
+        this.expertise = expertise;
+        return this;
+    }
+
+    /**
+     * (optional) callback URL
+     */
+    public ProjectSpec setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+        return this;
+    }
+
+    /**
+     * (optional) project name. If empty, the project will be named automatically
+     */
+    public ProjectSpec setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * (optional) array of reference resource UUIDs
+     */
+    public ProjectSpec setReferenceResources(String[] referenceResources) {
+        this.referenceResources = referenceResources;
+        return this;
+    }
+
+    /**
+     * (optional) array of custom fields
+     */
+    public ProjectSpec setCustom(String[] custom) {
+        this.custom = custom;
+        return this;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSourceLanguage() {
+        return sourceLanguage;
+    }
+
+    public String getTargetLanguage() {
+        return targetLanguage;
+    }
+
+    public String[] getSources() {
+        return sources;
+    }
+
+    public String[] getTranslations() {
+        return translations;
+    }
+
+    public Integer getWordCount() {
+        return wordCount;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public String getExpertise() {
+        return expertise;
+    }
+
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getReferenceResources() {
+        return referenceResources;
+    }
+
+    public String[] getCustom() {
+        return custom;
+    }
+
+    /**
+     * Creates the project through the matching {@link OHTAPI OHTAPI} method
+     */
+    public Project submit(OHTAPI api) throws OHTException {
+        switch (type) {
+            case TRANSLATION:
+                return api.createTranslationProject(sourceLanguage, targetLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case TRANSLATION_PLUS_EDITING:
+                return api.createTranslationPlusEditingProject(sourceLanguage, targetLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case PROOFREADING:
+                return api.createProofreadingProject(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case PROOF_TRANSLATED:
+                return api.createProofTranslatedProject(sourceLanguage, targetLanguage, sources, translations, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            default:
+                return api.createTranscriptionProject(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+        }
+    }
+
+    /**
+     * Creates the project through the matching {@link OHTAsyncAPI OHTAsyncAPI} method
+     */
+    public CompletableFuture<Project> submit(OHTAsyncAPI api) {
+        switch (type) {
+            case TRANSLATION:
+                return api.createTranslationProject(sourceLanguage, targetLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case TRANSLATION_PLUS_EDITING:
+                return api.createTranslationPlusEditingProject(sourceLanguage, targetLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case PROOFREADING:
+                return api.createProofreadingProject(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            case PROOF_TRANSLATED:
+                return api.createProofTranslatedProject(sourceLanguage, targetLanguage, sources, translations, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+            default:
+                return api.createTranscriptionProject(sourceLanguage, sources, wordCount, notes, expertise, callbackUrl, name, referenceResources, custom);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.oht;
+
+import com.oht.entities.ProjectDetails;
+
+import java.io.Closeable;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Polls the status of many projects and reports status changes.
+ * <ul>
+ * <li>all projects share one scheduler thread, which starts at most {@code maxRequestsPerSecond} polls a second,
+ * however many projects are watched; when more polls are due the oldest go first;</li>
+ * <li>each project is polled again after an interval that depends on its status and doubles while the status
+ * stays the same, up to {@code maxIntervalMillis};</li>
+ * <li>intervals are jittered so that projects submitted together do not stay in step;</li>
+ * <li>completed and canceled projects are reported once more and then dropped.</li>
+ * </ul>
+ * Create it with {@code ProjectWatcher.custom(api).setListener(...).build()}.
+ */
+public class ProjectWatcher implements Closeable {
+
+    /**
+     * Receives status changes and poll failures.
+     * Called on the HTTP client's I/O thread, so it should return quickly
+     */
+    public interface Listener {
+
+        /**
+         * @param details        current project details
+         * @param previousStatus status code seen by the previous poll, {@code null} on the first poll
+         */
+        void onStatusChange(ProjectDetails details, String previousStatus);
+
+        /**
+         * A poll failed; the project stays watched and is polled again later
+         */
+        void onError(int projectId, OHTException error);
+    }
+
+    private OHTAsyncAPI api;
+    private Listener listener;
+    private long minIntervalMillis;
+    private long maxIntervalMillis;
+    private double jitter;
+    private ScheduledExecutorService scheduler;
+    private double requestsPerNano;
+    private double maxBudget;
+    private double budget = 0; // polls that may be started, only touched by the scheduler thread
+    private long lastTick;
+
+    private final ConcurrentMap<Integer, Watch> watches = new ConcurrentHashMap<Integer, Watch>();
+    private final PriorityQueue<Watch> due = new PriorityQueue<Watch>();
+
+    private ProjectWatcher(Builder builder) {
+        this.api = builder.api;
+        this.listener = builder.listener;
+        this.minIntervalMillis = builder.minIntervalMillis;
+        this.maxIntervalMillis = builder.maxIntervalMillis;
+        this.jitter = builder.jitter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oht-project-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // ticks at most every 10 ms; a budget refilled at maxRequestsPerSecond and capped at two ticks'
+        // worth keeps the rate flat, without catch-up bursts after a stall
+        this.requestsPerNano = builder.maxRequestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        long tick = Math.max(TimeUnit.MILLISECONDS.toNanos(10), (long) (1 / requestsPerNano));
+        this.maxBudget = Math.max(1, 2 * tick * requestsPerNano);
+        this.lastTick = System.nanoTime();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                tick();
+            }
+        }, tick, tick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to poll with
+     */
+    public static Builder custom(OHTAPI api) {
+        return new Builder(new OHTAsyncAPI(api));
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to poll with
+     */
+    public static Builder custom(OHTAsyncAPI api) {
+        return new Builder(api);
+    }
+
+    /**
+     * Starts watching a project, typically right after it was created.
+     * The first poll happens after the minimum interval. Watching a project twice has no effect
+     */
+    public void watch(int projectId) {
+        Watch watch = new Watch(projectId);
+        if (null != watches.putIfAbsent(projectId, watch))
+            return;
+
+        schedule(watch, minIntervalMillis);
+    }
+
+    /**
+     * Stops watching a project
+     */
+    public void unwatch(int projectId) {
+        Watch watch = watches.remove(projectId);
+        if (null != watch)
+            watch.cancelled = true;
+    }
+
+    /**
+     * Number of projects being watched
+     */
+    public int size() {
+        return watches.size();
+    }
+
+    /**
+     * Stops polling. Polls already in flight still report their result
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        watches.clear();
+        synchronized (due) {
+            due.clear();
+        }
+    }
+
+    private void schedule(Watch watch, long intervalMillis) {
+        long jittered = (long) (intervalMillis * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1)));
+        watch.nextPoll = System.currentTimeMillis() + Math.max(0, jittered);
+        synchronized (due) {
+            due.add(watch);
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        budget = Math.min(maxBudget, budget + (now - lastTick) * requestsPerNano);
+        lastTick = now;
+
+        while (budget >= 1 && pollNext())
+            budget--;
+    }
+
+    // starts the poll of the project that has been due the longest, returns false if none is due
+    private boolean pollNext() {
+        final Watch watch;
+        synchronized (due) {
+            Watch head = due.peek();
+            while (null != head && head.cancelled) {
+                due.poll();
+                head = due.peek();
+            }
+
+            if (null == head || head.nextPoll > System.currentTimeMillis())
+                return false;
+
+            watch = due.poll();
+        }
+
+        CompletableFuture<ProjectDetails> details;
+        try {
+            details = api.getProjectDetails(watch.projectId);
+        } catch (RuntimeException ex) {
+            // an exception escaping the tick would cancel all further polling
+            onError(watch, ex);
+            return true;
+        }
+
+        details.whenComplete(new BiConsumer<ProjectDetails, Throwable>() {
+            public void accept(ProjectDetails details, Throwable error) {
+                if (watch.cancelled)
+                    return;
+
+                if (null != error)
+                    onError(watch, error instanceof CompletionException && null != error.getCause() ? error.getCause() : error);
+                else
+                    onDetails(watch, details);
+            }
+        });
+
+        return true;
+    }
+
+    private void onDetails(Watch watch, ProjectDetails details) {
+        String status = details.getStatusCode();
+        String previous = watch.status;
+        boolean changed = null == previous ? null != status : !previous.equals(status);
+
+        watch.status = status;
+        watch.unchangedPolls = changed ? 0 : watch.unchangedPolls + 1;
+
+        if (isFinal(status))
+            unwatch(watch.projectId);
+        else
+            schedule(watch, interval(status, watch.unchangedPolls));
+
+        if (changed) {
+            try {
+                listener.onStatusChange(details, previous);
+            } catch (RuntimeException ex) {
+                // a failing listener must not cancel the polling, which it would when called from the tick
+            }
+        }
+    }
+
+    private void onError(Watch watch, Throwable error) {
+        watch.unchangedPolls++;
+        schedule(watch, interval(watch.status, watch.unchangedPolls));
+        try {
+            listener.onError(watch.projectId, error instanceof OHTException ? (OHTException) error : new OHTException(error));
+        } catch (RuntimeException ex) {
+            // a failing listener must not cancel the polling, which it would when called from the tick
+        }
+    }
+
+    private static boolean isFinal(String status) {
+        return "completed".equals(status) || "canceled".equals(status) || "cancelled".equals(status);
+    }
+
+    /*
+     * Pending projects may be picked up any moment, so they are polled the most often; a worker rarely
+     * finishes soon after starting, so in-progress projects start slower. Every poll without a change
+     * doubles the interval up to the maximum.
+     */
+    private long interval(String status, int unchangedPolls) {
+        long base = minIntervalMillis;
+        if ("in_progress".equals(status))
+            base = 4 * minIntervalMillis;
+        else if ("submitted".equals(status) || "signed".equals(status))
+            base = 2 * minIntervalMillis;
+
+        return Math.min(maxIntervalMillis, base << Math.min(unchangedPolls, 20));
+    }
+
+    private static class Watch implements Comparable<Watch> {
+        final int projectId;
+        volatile boolean cancelled = false;
+        String status = null;
+        int unchangedPolls = 0;
+        long nextPoll;
+
+        Watch(int projectId) {
+            this.projectId = projectId;
+        }
+
+        public int compareTo(Watch other) {
+            return Long.compare(nextPoll, other.nextPoll);
+        }
+    }
+
+    /**
+     * Builder of {@link ProjectWatcher ProjectWatcher}
+     */
+    public static class Builder {
+
+        private OHTAsyncAPI api;
+        private Listener listener = null;
+        private long minIntervalMillis = TimeUnit.SECONDS.toMillis(30);
+        private long maxIntervalMillis = TimeUnit.MINUTES.toMillis(30);
+        private double maxRequestsPerSecond = 5;
+        private double jitter = 0.2;
+
+        private Builder(OHTAsyncAPI api) {
+            this.api = api;
+        }
+
+        /**
+         * Receiver of status changes (required)
+         */
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Interval between polls of a pending project, in milliseconds (defaults to 30 seconds)
+         */
+        public Builder setMinIntervalMillis(long minIntervalMillis) {
+            this.minIntervalMillis = minIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Longest interval between polls of a project, in milliseconds (defaults to 30 minutes)
+         */
+        public Builder setMaxIntervalMillis(long maxIntervalMillis) {
+            this.maxIntervalMillis = maxIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Maximum number of polls started per second across all projects (defaults to 5)
+         */
+        public Builder setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Random spread of every interval, as a fraction of it (defaults to 0.2, i.e. &plusmn;20%)
+         */
+        public Builder setJitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        public ProjectWatcher build() {
+            if (null == listener)
+                throw new IllegalArgumentException("listener is required");
+            if (maxRequestsPerSecond <= 0 || minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis)
+                throw new IllegalArgumentException("invalid polling settings");
+
+            return new ProjectWatcher(this);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.oht;
+
+import com.oht.entities.Quote;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Prices every combination of target language, service, expertise and currency at once.
+ * The quotes are requested concurrently, at most {@code parallelism} at a time, so a whole table
+ * takes about one round trip instead of one per cell.
+ * <p>
+ * Quotes are memoized by all their parameters for {@code ttlMillis}; a cell that is already being
+ * requested, e.g. by another pricing screen, is not requested again. Failed quotes are not memoized, and the
+ * least recently used quotes are dropped beyond {@code maxEntries}.
+ * <p>
+ * Create it with {@code QuoteMatrix.custom(api).setTtlMillis(...).build()}.
+ */
+public class QuoteMatrix {
+
+    private OHTAsyncAPI api;
+    private long ttlMillis;
+    private int parallelism;
+
+    private final Map<Key, Entry> entries;
+
+    private QuoteMatrix(Builder builder) {
+        this.api = builder.api;
+        this.ttlMillis = builder.ttlMillis;
+        this.parallelism = builder.parallelism;
+
+        final int maxEntries = builder.maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to request quotes with
+     */
+    public static Builder custom(OHTAPI api) {
+        return new Builder(new OHTAsyncAPI(api));
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param api API instance to request quotes with
+     */
+    public static Builder custom(OHTAsyncAPI api) {
+        return new Builder(api);
+    }
+
+    /**
+     * Requests the quotes of all combinations and waits for them.
+     * A failed cell does not fail the table, see {@link Table#getError(String, String, String, String)}
+     *
+     * @param resources       array of Resource UUIDs
+     * @param wordCount       word count
+     * @param sourceLanguage  source language
+     * @param targetLanguages target languages
+     * @param services        (optional) services, {@code null} for the default one
+     * @param expertises      (optional) expertises, {@code null} for none
+     * @param proofreading    (optional) "0" or "1"
+     * @param currencies      (optional) currencies, {@code null} for the account's one
+     * @return quotes of all combinations
+     */
+    public Table price(String[] resources, int wordCount, String sourceLanguage, Collection<String> targetLanguages,
+                       Collection<String> services, Collection<String> expertises, String proofreading,
+                       Collection<String> currencies) throws InterruptedException {
+        Table table = new Table(values(targetLanguages), values(services), values(expertises), values(currencies));
+        String[] resourceList = null != resources ? resources.clone() : null;
+        long now = System.currentTimeMillis();
+
+        final Semaphore slots = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        int cell = 0;
+        for (String targetLanguage : table.targetLanguages) {
+            for (String service : table.services) {
+                for (String expertise : table.expertises) {
+                    for (String currency : table.currencies) {
+                        Key key = new Key(resourceList, wordCount, sourceLanguage, targetLanguage, service,
+                                expertise, proofreading, currency);
+                        futures.add(fill(table, cell++, quote(key, now, slots)));
+                    }
+                }
+            }
+        }
+
+        for (CompletableFuture<Void> future : futures)
+            future.join();
+
+        return table;
+    }
+
+    /**
+     * Drops all memoized quotes
+     */
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    // memoized quote of key, requested if missing or expired; waits for a free slot before requesting
+    private CompletableFuture<Quote> quote(final Key key, final long now, final Semaphore slots) throws InterruptedException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (null != entry && now - entry.created < ttlMillis)
+            return entry.quote;
+
+        slots.acquire();
+        final CompletableFuture<Quote> future = new CompletableFuture<Quote>();
+        final Entry created = new Entry(future, now);
+        Entry winner;
+        synchronized (entries) {
+            winner = entries.get(key);
+            if (null == winner || now - winner.created >= ttlMillis) {
+                entries.put(key, created);
+                winner = created;
+            }
+        }
+        if (winner != created) {
+            // requested by another call meanwhile
+            slots.release();
+            return winner.quote;
+        }
+
+        CompletableFuture<Quote> request;
+        try {
+            request = api.getQuote(key.resources, key.wordCount, key.sourceLanguage, key.targetLanguage,
+                    key.service, key.expertise, key.proofreading, key.currency);
+        } catch (RuntimeException ex) {
+            request = new CompletableFuture<Quote>();
+            request.completeExceptionally(ex);
+        }
+
+        request.handle(new BiFunction<Quote, Throwable, Void>() {
+            public Void apply(Quote quote, Throwable error) {
+                slots.release();
+                if (null == error) {
+                    future.complete(quote);
+                } else {
+                    synchronized (entries) {
+                        entries.remove(key, created);
+                    }
+                    future.completeExceptionally(error);
+                }
+                return null;
+            }
+        });
+
+        return future;
+    }
+
+    private static CompletableFuture<Void> fill(final Table table, final int cell, CompletableFuture<Quote> quote) {
+        return quote.handle(new BiFunction<Quote, Throwable, Void>() {
+            public Void apply(Quote quote, Throwable error) {
+                if (null == error)
+                    table.quotes[cell] = quote;
+                else
+                    table.errors[cell] = OHTException.of(error);
+                return null;
+            }
+        });
+    }
+
+    private static List<String> values(Collection<String> values) {
+        if (null == values || values.isEmpty())
+            return Collections.singletonList(null);
+
+        return Collections.unmodifiableList(new ArrayList<String>(new LinkedHashSet<String>(values)));
+    }
+
+    /**
+     * Quotes of a {@link #price price} call, by target language, service, expertise and currency.
+     * Dimensions that were not given have the single value {@code null}
+     */
+    public static class Table {
+
+        private final List<String> targetLanguages;
+        private final List<String> services;
+        private final List<String> expertises;
+        private final List<String> currencies;
+        private final Quote[] quotes;
+        private final OHTException[] errors;
+
+        Table(List<String> targetLanguages, List<String> services, List<String> expertises, List<String> currencies) {
+            this.targetLanguages = targetLanguages;
+            this.services = services;
+            this.expertises = expertises;
+            this.currencies = currencies;
+
+            int size = targetLanguages.size() * services.size() * expertises.size() * currencies.size();
+            this.quotes = new Quote[size];
+            this.errors = new OHTException[size];
+        }
+
+        public List<String> getTargetLanguages() {
+            return targetLanguages;
+        }
+
+        public List<String> getServices() {
+            return services;
+        }
+
+        public List<String> getExpertises() {
+            return expertises;
+        }
+
+        public List<String> getCurrencies() {
+            return currencies;
+        }
+
+        /**
+         * Quote of a combination, or {@code null} if it failed or is not part of the table
+         */
+        public Quote get(String targetLanguage, String service, String expertise, String currency) {
+            int cell = cell(targetLanguage, service, expertise, currency);
+            return cell >= 0 ? quotes[cell] : null;
+        }
+
+        /**
+         * Failure of a combination, or {@code null} if it was priced or is not part of the table
+         */
+        public OHTException getError(String targetLanguage, String service, String expertise, String currency) {
+            int cell = cell(targetLanguage, service, expertise, currency);
+            return cell >= 0 ? errors[cell] : null;
+        }
+
+        /**
+         * Number of combinations that could not be priced
+         */
+        public int getErrorCount() {
+            int result = 0;
+            for (OHTException error : errors) {
+                if (null != error)
+                    result++;
+            }
+            return result;
+        }
+
+        private int cell(String targetLanguage, String service, String expertise, String currency) {
+            int t = targetLanguages.indexOf(targetLanguage);
+            int s = services.indexOf(service);
+            int e = expertises.indexOf(expertise);
+            int c = currencies.indexOf(currency);
+            if (t < 0 || s < 0 || e < 0 || c < 0)
+                return -1;
+
+            return ((t * services.size() + s) * expertises.size() + e) * currencies.size() + c;
+        }
+    }
+
+    private static class Key {
+        final String[] resources;
+        final int wordCount;
+        final String sourceLanguage;
+        final String targetLanguage;
+        final String service;
+        final String expertise;
+        final String proofreading;
+        final String currency;
+        private final int hash;
+
+        Key(String[] resources, int wordCount, String sourceLanguage, String targetLanguage, String service,
+            String expertise, String proofreading, String currency) {
+            this.resources = resources;
+            this.wordCount = wordCount;
+            this.sourceLanguage = sourceLanguage;
+            this.targetLanguage = targetLanguage;
+            this.service = service;
+            this.expertise = expertise;
+            this.proofreading = proofreading;
+            this.currency = currency;
+            this.hash = 31 * Arrays.hashCode(resources) + Arrays.hashCode(new Object[]{wordCount, sourceLanguage,
+                    targetLanguage, service, expertise, proofreading, currency});
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+
+            Key key = (Key) o;
+            return hash == key.hash && wordCount == key.wordCount && Arrays.equals(resources, key.resources)
+                    && Objects.equals(sourceLanguage, key.sourceLanguage) && Objects.equals(targetLanguage, key.targetLanguage)
+                    && Objects.equals(service, key.service) && Objects.equals(expertise, key.expertise)
+                    && Objects.equals(proofreading, key.proofreading) && Objects.equals(currency, key.currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+        final CompletableFuture<Quote> quote;
+        final long created;
+
+        Entry(CompletableFuture<Quote> quote, long created) {
+            this.quote = quote;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Builder of {@link QuoteMatrix QuoteMatrix}
+     */
+    public static class Builder {
+
+        private OHTAsyncAPI api;
+        private long ttlMillis = TimeUnit.MINUTES.toMillis(10);
+        private int parallelism = 16;
+        private int maxEntries = 10000;
+
+        private Builder(OHTAsyncAPI api) {
+            this.api = api;
+        }
+
+        /**
+         * How long quotes are memoized, in milliseconds (defaults to 10 minutes)
+         */
+        public Builder setTtlMillis(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Maximum number of quote requests in flight per {@link #price price} call (defaults to 16)
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1)
+                throw new IllegalArgumentException("parallelism must be positive");
+
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Maximum number of memoized quotes, the least recently used ones are dropped beyond it (defaults to 10000)
+         */
+        public Builder setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public QuoteMatrix build() {
+            return new QuoteMatrix(this);
+        }
+    }
+}
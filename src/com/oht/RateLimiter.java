@@ -0,0 +1,169 @@
+package com.oht;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side token-bucket rate limiter.
+ * Each endpoint {@link Group Group} gets its own rate and burst size, and buckets are kept per public key,
+ * so every {@link OHTAPI OHTAPI} instance using the same key draws from the same budget.
+ * A request that finds its bucket empty waits for a permit, up to {@code maxWaitMillis};
+ * if the wait would be longer it fails right away with status code -1, without a round trip.
+ * Async requests wait on a timer, not on the calling thread.
+ * <p>
+ * Set it with {@link OHTAPI#setRateLimiter(RateLimiter)}, or for all instances of the JVM with
+ * {@link OHTAPI#setDefaultRateLimiter(RateLimiter)}.
+ */
+public class RateLimiter {
+
+    /**
+     * Endpoint groups, by the first segment of the request path
+     */
+    public enum Group {
+        ACCOUNT,
+        PROJECTS,
+        RESOURCES,
+        TOOLS,
+        MT,
+        DISCOVER;
+
+        static Group of(String requestUrl) {
+            int start = requestUrl.startsWith("/") ? 1 : 0;
+            int end = requestUrl.indexOf('/', start);
+            String segment = requestUrl.substring(start, end < 0 ? requestUrl.length() : end).toLowerCase(Locale.ROOT);
+
+            if (segment.equals("project") || segment.equals("projects"))
+                return PROJECTS;
+            if (segment.equals("resources"))
+                return RESOURCES;
+            if (segment.equals("tools"))
+                return TOOLS;
+            if (segment.equals("mt"))
+                return MT;
+            if (segment.equals("discover"))
+                return DISCOVER;
+            return ACCOUNT;
+        }
+    }
+
+    private Map<Group, double[]> limits; // group -> {permits per second, burst}
+    private long maxWaitNanos;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    private RateLimiter(Builder builder) {
+        this.limits = new EnumMap<Group, double[]>(builder.limits);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(builder.maxWaitMillis);
+    }
+
+    /**
+     * Creates a builder without any limits
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Takes a permit for a request
+     *
+     * @return nanoseconds to wait before sending the request, or -1 if it has to be rejected
+     */
+    long reserve(String publicKey, Group group) {
+        double[] limit = limits.get(group);
+        if (null == limit)
+            return 0;
+
+        String key = publicKey + ' ' + group;
+        Bucket bucket = buckets.get(key);
+        if (null == bucket) {
+            Bucket created = new Bucket(limit[0], limit[1]);
+            bucket = buckets.putIfAbsent(key, created);
+            if (null == bucket)
+                bucket = created;
+        }
+
+        return bucket.reserve(maxWaitNanos);
+    }
+
+    static OHTException rejected(Group group) {
+        return new OHTException(-1, "Rate limit of " + group + " requests exceeded", null);
+    }
+
+    private static class Bucket {
+        private final double permitsPerNano;
+        private final double burst;
+        private double tokens;
+        private long refilled;
+
+        Bucket(double permitsPerSecond, double burst) {
+            this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.tokens = burst;
+            this.refilled = System.nanoTime();
+        }
+
+        /*
+         * Tokens may go negative: a waiting request reserves its permit up front, so callers queue
+         * in order instead of racing for each refill.
+         */
+        synchronized long reserve(long maxWaitNanos) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilled) * permitsPerNano);
+            refilled = now;
+
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+
+            long wait = (long) Math.ceil((1 - tokens) / permitsPerNano);
+            if (wait > maxWaitNanos)
+                return -1;
+
+            tokens--;
+            return wait;
+        }
+    }
+
+    /**
+     * Builder of {@link RateLimiter RateLimiter}
+     */
+    public static class Builder {
+
+        private Map<Group, double[]> limits = new EnumMap<Group, double[]>(Group.class);
+        private long maxWaitMillis = TimeUnit.SECONDS.toMillis(30);
+
+        private Builder() {
+        }
+
+        /**
+         * Limits a group of endpoints. Groups without a limit are not throttled
+         *
+         * @param group            endpoint group
+         * @param permitsPerSecond sustained number of requests per second
+         * @param burst            number of requests that may be sent at once after a quiet period
+         */
+        public Builder setLimit(Group group, double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst < 1)
+                throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+
+            limits.put(group, new double[]{permitsPerSecond, burst});
+            return this;
+        }
+
+        /**
+         * Longest time a request waits for a permit, in milliseconds; 0 rejects instead of waiting (defaults to 30 seconds)
+         */
+        public Builder setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+            return this;
+        }
+
+        public RateLimiter build() {
+            return new RateLimiter(this);
+        }
+    }
+}
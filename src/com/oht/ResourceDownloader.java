@@ -0,0 +1,294 @@
+package com.oht;
+
+import com.oht.entities.Resource;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads large resources in parts, using HTTP range requests.
+ * <ul>
+ * <li>parts are fetched in parallel into a file preallocated to the length reported by
+ * {@link OHTAPI#getResource(String, Integer, String) getResource};</li>
+ * <li>a part interrupted by a connection error is resumed from the last byte written;</li>
+ * <li>data goes to {@code <target>.part} and finished parts are recorded in {@code <target>.part.state},
+ * so a failed download called again skips the parts it already has;</li>
+ * <li>the target is only replaced once every part has arrived and the size matches the resource length.</li>
+ * </ul>
+ * Servers that ignore the range header get a single plain download.
+ */
+public class ResourceDownloader implements Closeable {
+
+    private static final long DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private OHTAPI api;
+    private long partSize;
+    private ExecutorService executor;
+
+    /**
+     * @param api         API instance to download with
+     * @param parallelism maximum number of parts downloaded at a time
+     */
+    public ResourceDownloader(OHTAPI api, int parallelism) {
+        this(api, parallelism, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * @param api         API instance to download with
+     * @param parallelism maximum number of parts downloaded at a time
+     * @param partSize    size of a part in bytes (defaults to 8 MB)
+     */
+    public ResourceDownloader(OHTAPI api, int parallelism, long partSize) {
+        if (parallelism < 1 || partSize < 1)
+            throw new IllegalArgumentException("parallelism and partSize must be positive");
+
+        this.api = api;
+        this.partSize = partSize;
+        this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oht-resource-downloader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID, resuming an earlier failed download of the same target
+     *
+     * @param resourceUuid UUID of resource
+     * @param projectId    (optional) project ID, needed when requesting a resource that was uploaded by another user
+     * @param target       file to save the resource to
+     * @throws OHTException
+     */
+    public void download(String resourceUuid, Integer projectId, File target) throws OHTException {
+        download(resourceUuid, projectId, target, null);
+    }
+
+    /**
+     * Downloads resource by specified Resource UUID, resuming an earlier failed download of the same target
+     *
+     * @param resourceUuid UUID of resource
+     * @param projectId    (optional) project ID, needed when requesting a resource that was uploaded by another user
+     * @param target       file to save the resource to
+     * @param listener     (optional) progress of the whole resource, called from the download threads
+     * @throws OHTException
+     */
+    public void download(String resourceUuid, Integer projectId, File target, ProgressListener listener) throws OHTException {
+        Resource resource = api.getResource(resourceUuid, projectId, null);
+        long length = resource.getLength();
+        if (length <= 0) {
+            api.downloadResource(resourceUuid, projectId, target.getPath());
+            return;
+        }
+
+        File partFile = new File(target.getPath() + ".part");
+        File stateFile = new File(target.getPath() + ".part.state");
+        int parts = (int) ((length + partSize - 1) / partSize);
+
+        BitSet done = partFile.isFile() ? readState(stateFile, length) : null;
+        if (null == done) {
+            done = new BitSet(parts);
+            stateFile.delete();
+        }
+
+        try {
+            RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+            Writer state = null;
+            try {
+                file.setLength(length);
+                state = new OutputStreamWriter(new FileOutputStream(stateFile, true), StandardCharsets.UTF_8);
+                if (0 == stateFile.length()) {
+                    state.write(length + " " + partSize + "\n");
+                    state.flush();
+                }
+
+                Download download = new Download(resourceUuid, projectId, file.getChannel(), length, state, listener);
+                for (int part = done.nextSetBit(0); part >= 0; part = done.nextSetBit(part + 1)) {
+                    download.transferred.addAndGet(last(part, length) - first(part) + 1);
+                    download.received.addAndGet(last(part, length) - first(part) + 1);
+                }
+
+                download.run(done, parts);
+                file.getChannel().force(false);
+
+                // the file was preallocated, so its length says nothing about the parts that actually arrived
+                if (download.received.get() != length)
+                    throw new OHTException(-1, "Downloaded " + download.received.get() + " bytes, expected " + length, null);
+            } finally {
+                if (null != state)
+                    state.close();
+                file.close();
+            }
+
+            Files.move(partFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            stateFile.delete();
+        } catch (IOException ex) {
+            throw new OHTException(ex);
+        }
+    }
+
+    /**
+     * Stops the download threads
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    private long first(int part) {
+        return part * partSize;
+    }
+
+    private long last(int part, long length) {
+        return Math.min(length, (part + 1) * partSize) - 1;
+    }
+
+    // parts recorded by an earlier attempt, or null if there is none for this length and part size
+    private BitSet readState(File stateFile, long length) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(stateFile), StandardCharsets.UTF_8));
+            try {
+                if (!(length + " " + partSize).equals(reader.readLine()))
+                    return null;
+
+                BitSet result = new BitSet();
+                String line;
+                while (null != (line = reader.readLine())) {
+                    try {
+                        result.set(Integer.parseInt(line));
+                    } catch (NumberFormatException ex) {
+                        // torn last line, the part is fetched again
+                    }
+                }
+
+                return result;
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // a single download in progress
+    private class Download {
+        final String resourceUuid;
+        final Integer projectId;
+        final FileChannel channel;
+        final long length;
+        final Writer state;
+        final ProgressListener listener;
+        final AtomicLong transferred = new AtomicLong();
+        final AtomicLong received = new AtomicLong(); // bytes of the finished parts, resumed ones included
+
+        Download(String resourceUuid, Integer projectId, FileChannel channel, long length, Writer state, ProgressListener listener) {
+            this.resourceUuid = resourceUuid;
+            this.projectId = projectId;
+            this.channel = channel;
+            this.length = length;
+            this.state = state;
+            this.listener = listener;
+        }
+
+        void run(BitSet done, int parts) throws OHTException {
+            // the first part tells whether the server honours ranges, fetch it before fanning out
+            if (!done.get(0)) {
+                if (!fetch(0))
+                    return;
+                done.set(0);
+            }
+
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int part = done.nextClearBit(1); part < parts; part = done.nextClearBit(part + 1)) {
+                final int index = part;
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws OHTException {
+                        return fetch(index);
+                    }
+                }));
+            }
+
+            OHTException error = null;
+            for (Future<Boolean> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    if (null == error)
+                        error = ex.getCause() instanceof OHTException ? (OHTException) ex.getCause() : new OHTException(ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new OHTException(ex);
+                }
+            }
+
+            if (null != error)
+                throw error;
+        }
+
+        // fetches a part, resuming after connection errors; returns false if the whole resource was sent instead
+        boolean fetch(int part) throws OHTException {
+            long first = first(part);
+            long last = last(part, length);
+            long position = first;
+            long partWritten = 0;
+
+            for (int attempt = 1; ; attempt++) {
+                final long[] written = {0};
+                try {
+                    boolean partial = api.downloadRequest(resourceUuid, projectId)
+                            .downloadRange(channel, position, last, new ProgressListener() {
+                                public void onProgress(long bytes, long total) {
+                                    long delta = bytes - written[0];
+                                    written[0] = bytes;
+                                    long sum = transferred.addAndGet(delta);
+                                    if (null != listener)
+                                        listener.onProgress(sum, length);
+                                }
+                            });
+
+                    if (!partial) {
+                        if (written[0] != length)
+                            throw new OHTException(-1, "Downloaded " + written[0] + " bytes, expected " + length, null);
+                        received.set(written[0]);
+                        return false;
+                    }
+
+                    position += written[0];
+                    partWritten += written[0];
+                    if (position != last + 1)
+                        throw new OHTException(-1, "Part " + part + " ended at byte " + position + ", expected " + (last + 1), null);
+
+                    complete(part);
+                    received.addAndGet(partWritten);
+                    return true;
+                } catch (OHTException ex) {
+                    if (!(ex.getCause() instanceof IOException) || attempt >= MAX_ATTEMPTS)
+                        throw ex;
+
+                    position += written[0];
+                    partWritten += written[0];
+                }
+            }
+        }
+
+        void complete(int part) throws OHTException {
+            synchronized (state) {
+                try {
+                    state.write(part + "\n");
+                    state.flush();
+                } catch (IOException ex) {
+                    throw new OHTException(ex);
+                }
+            }
+        }
+    }
+}
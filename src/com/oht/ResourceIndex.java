@@ -0,0 +1,191 @@
+package com.oht;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Size-bounded map of content hash to resource UUID, used by {@link ResourceUploader ResourceUploader}
+ * to skip uploads of content the service already holds.
+ * The least recently used entries are dropped once {@code maxEntries} is reached.
+ * <p>
+ * With a file, every change is appended to it as one line and the index is restored from it on construction;
+ * the file is compacted when it grows to twice the number of live entries. Every line ends with a CRC-32 of the
+ * record, and lines that fail it, e.g. one torn by a crash, are dropped on restore.
+ */
+public class ResourceIndex implements Closeable {
+
+    private static final String REMOVED = "-";
+
+    private final int maxEntries;
+    private final File file;
+    private final LinkedHashMap<String, String> entries;
+    private Writer log = null;
+    private int logLines = 0;
+
+    /**
+     * Constructs in-memory index
+     *
+     * @param maxEntries maximum number of entries
+     */
+    public ResourceIndex(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Constructs persistent index
+     *
+     * @param maxEntries maximum number of entries
+     * @param file       file to persist to, created if missing
+     */
+    public ResourceIndex(final int maxEntries, File file) {
+        this.maxEntries = maxEntries;
+        this.file = file;
+        this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        if (null != file && file.isFile())
+            read();
+    }
+
+    /**
+     * Resource UUID stored for the content hash, or {@code null}
+     */
+    public synchronized String get(String hash) {
+        return entries.get(hash);
+    }
+
+    public synchronized void put(String hash, String uuid) {
+        entries.put(hash, uuid);
+        append(hash, uuid);
+    }
+
+    /**
+     * Forgets the content hash, e.g. when its resource is no longer available
+     */
+    public synchronized void remove(String hash) {
+        if (null != entries.remove(hash))
+            append(hash, REMOVED);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Flushes and closes the index file
+     */
+    public synchronized void close() throws IOException {
+        if (null != log) {
+            log.close();
+            log = null;
+        }
+    }
+
+    private void read() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            try {
+                String line;
+                while (null != (line = reader.readLine())) {
+                    int space = line.indexOf(' ');
+                    int last = line.lastIndexOf(' ');
+                    if (space <= 0 || last <= space + 1 || !line.substring(last + 1).equals(checksum(line.substring(0, last))))
+                        continue; // torn or corrupted line
+
+                    String hash = line.substring(0, space);
+                    String uuid = line.substring(space + 1, last);
+                    if (uuid.equals(REMOVED))
+                        entries.remove(hash);
+                    else
+                        entries.put(hash, uuid);
+                    logLines++;
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException ex) {
+            // start with whatever could be read, the index is only an optimization
+        }
+    }
+
+    private void append(String hash, String uuid) {
+        if (null == file)
+            return;
+
+        try {
+            if (logLines >= 2 * Math.max(entries.size(), maxEntries / 2))
+                compact();
+
+            if (null == log) {
+                boolean torn = !endsWithLine(file);
+                log = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+                if (torn)
+                    log.write('\n'); // so that the next record does not continue a torn line
+            }
+
+            write(log, hash, uuid);
+            log.flush();
+            logLines++;
+        } catch (IOException ex) {
+            // keep serving from memory, the index is only an optimization
+        }
+    }
+
+    private void compact() throws IOException {
+        close();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8));
+        try {
+            for (Map.Entry<String, String> e : entries.entrySet())
+                write(writer, e.getKey(), e.getValue());
+        } finally {
+            writer.close();
+        }
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logLines = entries.size();
+    }
+
+    // "<hash> <uuid> <checksum>"
+    private static void write(Writer writer, String hash, String uuid) throws IOException {
+        String record = hash + ' ' + uuid;
+        writer.write(record);
+        writer.write(' ');
+        writer.write(checksum(record));
+        writer.write('\n');
+    }
+
+    // whether the file is empty or its last line is complete
+    private static boolean endsWithLine(File file) throws IOException {
+        if (!file.isFile() || 0 == file.length())
+            return true;
+
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            input.seek(input.length() - 1);
+            return input.read() == '\n';
+        } finally {
+            input.close();
+        }
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,260 @@
+package com.oht;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Uploads resources in parallel, skipping content the service already holds.
+ * Content is hashed with SHA-256 and looked up in a {@link ResourceIndex ResourceIndex}; only unknown content is
+ * uploaded, and the new resource UUID is added to the index. Identical content submitted concurrently is
+ * uploaded once.
+ * <p>
+ * Deduplication is by content only: a file reused from the index keeps the file name it was first uploaded with.
+ */
+public class ResourceUploader implements Closeable {
+
+    private OHTAPI api;
+    private ResourceIndex index;
+    private ExecutorService executor;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+
+    /**
+     * @param api         API instance to upload with
+     * @param index       index of already uploaded content
+     * @param parallelism maximum number of concurrent uploads
+     */
+    public ResourceUploader(OHTAPI api, ResourceIndex index, int parallelism) {
+        this.api = api;
+        this.index = index;
+        this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "oht-resource-uploader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Uploads a file unless its content was uploaded before
+     *
+     * @return future of resource UUID
+     */
+    public CompletableFuture<String> uploadFileAsync(final File file) {
+        return upload(new Callable<String>() {
+            public String call() throws Exception {
+                return "file:" + hash(file);
+            }
+        }, new Callable<String>() {
+            public String call() throws Exception {
+                return api.uploadFileResource(file.getName(), null, file.getPath(), null);
+            }
+        });
+    }
+
+    /**
+     * Uploads a text resource unless the same text was uploaded before
+     *
+     * @return future of resource UUID
+     */
+    public CompletableFuture<String> uploadTextAsync(final String text) {
+        return upload(new Callable<String>() {
+            public String call() throws Exception {
+                return "text:" + hash(text.getBytes(StandardCharsets.UTF_8));
+            }
+        }, new Callable<String>() {
+            public String call() throws Exception {
+                return api.uploadTextResource(text);
+            }
+        });
+    }
+
+    /**
+     * Uploads a file unless its content was uploaded before
+     *
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadFile(File file) throws OHTException {
+        return await(uploadFileAsync(file));
+    }
+
+    /**
+     * Uploads a text resource unless the same text was uploaded before
+     *
+     * @return resource UUID
+     * @throws OHTException
+     */
+    public String uploadText(String text) throws OHTException {
+        return await(uploadTextAsync(text));
+    }
+
+    /**
+     * Uploads files in parallel, skipping content uploaded before
+     *
+     * @return resource UUIDs in the order of {@code files}
+     * @throws OHTException first failure, after all uploads have finished
+     */
+    public List<String> uploadFiles(List<File> files) throws OHTException {
+        List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>(files.size());
+        for (File file : files)
+            futures.add(uploadFileAsync(file));
+
+        return awaitAll(futures);
+    }
+
+    /**
+     * Uploads text resources in parallel, skipping texts uploaded before
+     *
+     * @return resource UUIDs in the order of {@code texts}
+     * @throws OHTException first failure, after all uploads have finished
+     */
+    public List<String> uploadTexts(List<String> texts) throws OHTException {
+        List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>(texts.size());
+        for (String text : texts)
+            futures.add(uploadTextAsync(text));
+
+        return awaitAll(futures);
+    }
+
+    /**
+     * Stops the upload threads. The index is left open
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+    private CompletableFuture<String> upload(final Callable<String> key, final Callable<String> upload) {
+        final CompletableFuture<String> result = new CompletableFuture<String>();
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    String hash = null;
+                    CompletableFuture<String> owned = null;
+                    try {
+                        hash = key.call();
+
+                        String uuid = index.get(hash);
+                        if (null != uuid) {
+                            result.complete(uuid);
+                            return;
+                        }
+
+                        owned = new CompletableFuture<String>();
+                        CompletableFuture<String> other = inFlight.putIfAbsent(hash, owned);
+                        if (null != other) {
+                            owned = null;
+                            forward(other, result);
+                            return;
+                        }
+
+                        // an upload of the same content may have finished since the first lookup
+                        uuid = index.get(hash);
+                        if (null == uuid) {
+                            uuid = upload.call();
+                            index.put(hash, uuid);
+                        }
+                        owned.complete(uuid);
+                        result.complete(uuid);
+                    } catch (Exception ex) {
+                        OHTException error = ex instanceof OHTException ? (OHTException) ex : new OHTException(ex);
+                        if (null != owned)
+                            owned.completeExceptionally(error);
+                        result.completeExceptionally(error);
+                    } finally {
+                        if (null != owned)
+                            inFlight.remove(hash, owned);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            result.completeExceptionally(new OHTException(ex));
+        }
+
+        return result;
+    }
+
+    private static void forward(CompletableFuture<String> from, final CompletableFuture<String> to) {
+        from.whenComplete(new BiConsumer<String, Throwable>() {
+            public void accept(String uuid, Throwable error) {
+                if (null != error)
+                    to.completeExceptionally(error);
+                else
+                    to.complete(uuid);
+            }
+        });
+    }
+
+    private static String await(CompletableFuture<String> future) throws OHTException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof OHTException)
+                throw (OHTException) ex.getCause();
+            throw new OHTException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OHTException(ex);
+        }
+    }
+
+    private static List<String> awaitAll(List<CompletableFuture<String>> futures) throws OHTException {
+        List<String> results = new ArrayList<String>(futures.size());
+        OHTException error = null;
+        for (CompletableFuture<String> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (OHTException ex) {
+                if (null == error)
+                    error = ex;
+            }
+        }
+
+        if (null != error)
+            throw error;
+
+        return results;
+    }
+
+    //<editor-fold desc="HASHING">
+
+    static String hash(File file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        } finally {
+            input.close();
+        }
+
+        return hex(digest.digest());
+    }
+
+    static String hash(byte[] content) throws NoSuchAlgorithmException {
+        return hex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static String hex(byte[] bytes) {
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            result[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+
+        return new String(result);
+    }
+
+    //</editor-fold>
+}
@@ -0,0 +1,13 @@
+package com.oht;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Decodes the {@code results} member of an API response straight from the token stream
+ */
+interface ResultReader<T> {
+
+    T read(JsonReader reader) throws IOException;
+}
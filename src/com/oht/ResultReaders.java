@@ -0,0 +1,162 @@
+package com.oht;
+
+import com.google.gson.stream.JsonReader;
+import com.oht.entities.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link ResultReader ResultReader} of every API response type
+ */
+final class ResultReaders {
+
+    private ResultReaders() {
+    }
+
+    static final ResultReader<Void> NOTHING = new ResultReader<Void>() {
+        public Void read(JsonReader reader) throws IOException {
+            reader.skipValue();
+            return null;
+        }
+    };
+
+    // resource uploads return an array holding the new resource UUID
+    static final ResultReader<String> FIRST_STRING = new ResultReader<String>() {
+        public String read(JsonReader reader) throws IOException {
+            String result = null;
+            reader.beginArray();
+            if (reader.hasNext())
+                result = reader.nextString();
+            while (reader.hasNext())
+                reader.skipValue();
+            reader.endArray();
+
+            return result;
+        }
+    };
+
+    static final ResultReader<String> TRANSLATED_TEXT = member("TranslatedText");
+
+    static final ResultReader<String> DETECTED_LANGUAGE = member("language");
+
+    static final ResultReader<AccountDetails> ACCOUNT_DETAILS = new ResultReader<AccountDetails>() {
+        public AccountDetails read(JsonReader reader) throws IOException {
+            return new AccountDetails(reader);
+        }
+    };
+
+    static final ResultReader<Resource> RESOURCE = new ResultReader<Resource>() {
+        public Resource read(JsonReader reader) throws IOException {
+            return new Resource(reader);
+        }
+    };
+
+    static final ResultReader<Quote> QUOTE = new ResultReader<Quote>() {
+        public Quote read(JsonReader reader) throws IOException {
+            return new Quote(reader);
+        }
+    };
+
+    static final ResultReader<WordCount> WORD_COUNT = new ResultReader<WordCount>() {
+        public WordCount read(JsonReader reader) throws IOException {
+            return new WordCount(reader);
+        }
+    };
+
+    static final ResultReader<Project> PROJECT = new ResultReader<Project>() {
+        public Project read(JsonReader reader) throws IOException {
+            return new Project(reader);
+        }
+    };
+
+    static final ResultReader<ProjectDetails> PROJECT_DETAILS = new ResultReader<ProjectDetails>() {
+        public ProjectDetails read(JsonReader reader) throws IOException {
+            return new ProjectDetails(reader);
+        }
+    };
+
+    static final ResultReader<Tags> TAGS = new ResultReader<Tags>() {
+        public Tags read(JsonReader reader) throws IOException {
+            return new Tags(reader);
+        }
+    };
+
+    static final ResultReader<Collection<Comment>> COMMENTS = sorted(new ResultReader<Comment>() {
+        public Comment read(JsonReader reader) throws IOException {
+            return new Comment(reader);
+        }
+    });
+
+    static final ResultReader<Collection<Rating>> RATINGS = sorted(new ResultReader<Rating>() {
+        public Rating read(JsonReader reader) throws IOException {
+            return new Rating(reader);
+        }
+    });
+
+    static final ResultReader<Collection<Language>> LANGUAGES = list(new ResultReader<Language>() {
+        public Language read(JsonReader reader) throws IOException {
+            return new Language(reader);
+        }
+    });
+
+    static final ResultReader<Collection<LanguagePair>> LANGUAGE_PAIRS = list(new ResultReader<LanguagePair>() {
+        public LanguagePair read(JsonReader reader) throws IOException {
+            return new LanguagePair(reader);
+        }
+    });
+
+    static final ResultReader<Collection<Expertise>> EXPERTISES = list(new ResultReader<Expertise>() {
+        public Expertise read(JsonReader reader) throws IOException {
+            return new Expertise(reader);
+        }
+    });
+
+    static <T> ResultReader<Collection<T>> list(final ResultReader<T> element) {
+        return new ResultReader<Collection<T>>() {
+            public Collection<T> read(JsonReader reader) throws IOException {
+                List<T> results = new ArrayList<T>();
+                reader.beginArray();
+                while (reader.hasNext())
+                    results.add(element.read(reader));
+                reader.endArray();
+
+                return results;
+            }
+        };
+    }
+
+    static <T extends Comparable<? super T>> ResultReader<Collection<T>> sorted(final ResultReader<T> element) {
+        final ResultReader<Collection<T>> list = list(element);
+        return new ResultReader<Collection<T>>() {
+            public Collection<T> read(JsonReader reader) throws IOException {
+                List<T> results = (List<T>) list.read(reader);
+                Collections.sort(results);
+
+                return results;
+            }
+        };
+    }
+
+    // reads a single string member of an object, skipping the rest
+    static ResultReader<String> member(final String name) {
+        return new ResultReader<String>() {
+            public String read(JsonReader reader) throws IOException {
+                String result = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals(name))
+                        result = reader.nextString();
+                    else
+                        reader.skipValue();
+                }
+                reader.endObject();
+
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package com.oht;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Decides which failed calls are transient and how often and when idempotent (GET) calls are retried.
+ * <p>
+ * A failure is transient when the request did not get a response (I/O error or timeout), when the server
+ * answered with HTTP 5xx or 429, or when the API returned one of the configured {@code retryableStatusCodes}.
+ * Transient failures of GET requests are retried after an exponentially growing, jittered delay.
+ * Other requests are never retried, as they may already have taken effect.
+ * <p>
+ * Set it with {@link OHTAPI#setRetryPolicy(RetryPolicy)}.
+ */
+public class RetryPolicy {
+
+    /**
+     * No retries, transient failures are only classified (e.g. for a {@link CircuitBreaker CircuitBreaker})
+     */
+    public static final RetryPolicy NONE = custom().setMaxAttempts(1).build();
+
+    private static ScheduledExecutorService scheduler = null;
+
+    private int maxAttempts;
+    private long initialBackoffMillis;
+    private long maxBackoffMillis;
+    private double multiplier;
+    private double jitter;
+    private Set<Integer> retryableStatusCodes;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.retryableStatusCodes = new HashSet<Integer>(builder.retryableStatusCodes);
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Whether the failure is likely to go away when the call is repeated
+     */
+    public boolean isTransient(OHTException error) {
+        int httpStatus = error.getHttpStatus();
+        if (httpStatus >= 500 || httpStatus == 429)
+            return true;
+
+        Throwable cause = error.getCause();
+        if (null != cause)
+            return cause instanceof IOException && !(cause instanceof MalformedJsonException);
+
+        return retryableStatusCodes.contains(error.getStatusCode());
+    }
+
+    /**
+     * Delay before the given retry (1 for the first one), in milliseconds
+     */
+    long backoffMillis(int retry) {
+        double delay = Math.min(maxBackoffMillis, initialBackoffMillis * Math.pow(multiplier, retry - 1));
+        return (long) (delay * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    // shared timer for delayed async attempts: retries and rate limit waits
+    static synchronized ScheduledExecutorService scheduler() {
+        if (null == scheduler) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "oht-timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return scheduler;
+    }
+
+    /**
+     * Builder of {@link RetryPolicy RetryPolicy}
+     */
+    public static class Builder {
+
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 200;
+        private long maxBackoffMillis = 5000;
+        private double multiplier = 2;
+        private double jitter = 0.5;
+        private Set<Integer> retryableStatusCodes = new HashSet<Integer>();
+
+        private Builder() {
+        }
+
+        /**
+         * Total number of attempts of an idempotent call, including the first one (defaults to 3)
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Delay before the first retry, in milliseconds (defaults to 200)
+         */
+        public Builder setInitialBackoffMillis(long initialBackoffMillis) {
+            this.initialBackoffMillis = initialBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Longest delay between retries, in milliseconds (defaults to 5000)
+         */
+        public Builder setMaxBackoffMillis(long maxBackoffMillis) {
+            this.maxBackoffMillis = maxBackoffMillis;
+            return this;
+        }
+
+        /**
+         * Factor the delay grows by with every retry (defaults to 2)
+         */
+        public Builder setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * Fraction of every delay that is randomized away, so that clients do not retry in step (defaults to 0.5)
+         */
+        public Builder setJitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * API status codes ({@link OHTException#getStatusCode()}) that are treated as transient (defaults to none)
+         */
+        public Builder setRetryableStatusCodes(int... statusCodes) {
+            this.retryableStatusCodes = new HashSet<Integer>();
+            for (int statusCode : statusCodes)
+                retryableStatusCodes.add(statusCode);
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (maxAttempts < 1)
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            if (jitter < 0 || jitter > 1)
+                throw new IllegalArgumentException("jitter must be between 0 and 1");
+
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.oht;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.util.SharedOutputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a request body that can only be written, not read, e.g. a multipart upload, through the async client.
+ * Once the reactor asks for content, a writer thread writes the entity into a bounded buffer that the reactor
+ * drains as the connection accepts it, so at most {@value #BUFFER_SIZE} bytes of the body are held in memory.
+ * <p>
+ * Every upload in progress occupies a writer thread until its body is written. The writers are shared by all
+ * transports and bounded by the largest {@link OHTClientConfig#getMaxConnections() connection pool} that sent an
+ * upload, as every upload also holds a connection; an upload that finds all writers busy waits for one with its
+ * output suspended. Idle writers exit after a minute.
+ * A producer can be sent once.
+ */
+class StreamingRequestProducer implements HttpAsyncRequestProducer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadPoolExecutor writers = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "oht-upload-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        writers.allowCoreThreadTimeOut(true);
+    }
+
+    private final HttpHost target;
+    private final HttpEntityEnclosingRequest request;
+    private final SharedOutputBuffer buffer = new SharedOutputBuffer(BUFFER_SIZE);
+    private boolean started = false; // only touched by the reactor
+    private volatile IOControl ioControl = null;
+    private volatile Exception failure = null; // of the writer
+
+    /**
+     * @param maxConnections size of the connection pool the request is sent through
+     */
+    StreamingRequestProducer(HttpUriRequest request, int maxConnections) {
+        this.target = URIUtils.extractHost(request.getURI());
+        this.request = (HttpEntityEnclosingRequest) request;
+        reserveWriters(maxConnections);
+    }
+
+    // one writer per connection, so that no upload waits for a writer while its transport has connections to spare
+    private static void reserveWriters(int maxConnections) {
+        if (maxConnections <= writers.getMaximumPoolSize())
+            return;
+
+        synchronized (writers) {
+            if (maxConnections > writers.getMaximumPoolSize()) {
+                writers.setMaximumPoolSize(maxConnections);
+                writers.setCorePoolSize(maxConnections);
+            }
+        }
+    }
+
+    public HttpRequest generateRequest() {
+        return request;
+    }
+
+    public HttpHost getTarget() {
+        return target;
+    }
+
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        this.ioControl = ioControl;
+        if (!started) {
+            started = true;
+            try {
+                writers.execute(new Runnable() {
+                    public void run() {
+                        write();
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        Exception failure = this.failure;
+        if (null != failure)
+            throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+
+        buffer.produceContent(encoder, ioControl);
+    }
+
+    private void write() {
+        HttpEntity entity = request.getEntity();
+        try {
+            OutputStream output = new ContentOutputStream(buffer);
+            entity.writeTo(output);
+            output.close(); // marks the end of the body
+        } catch (Exception ex) {
+            // the content could not be read, or the exchange was aborted and the buffer shut down
+            failure = ex;
+            IOControl ioControl = this.ioControl;
+            if (null != ioControl)
+                ioControl.requestOutput(); // so that the reactor fails the exchange
+        }
+    }
+
+    public void requestCompleted(HttpContext context) {
+    }
+
+    public void failed(Exception ex) {
+        buffer.shutdown();
+    }
+
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    public void resetRequest() {
+    }
+
+    public void close() {
+        // releases a writer still waiting for room in the buffer
+        buffer.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+package com.oht;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit on the requests one tenant of an {@link OHTClientFactory OHTClientFactory} has in flight.
+ * Blocking and async callers queue in one FIFO line, and a released permit is handed straight to
+ * the oldest waiter, so a tenant never holds more than its share of the shared connection pool.
+ */
+class TenantQuota {
+
+    private final String tenant;
+    private final int limit;
+    private int inUse = 0;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<Runnable>();
+
+    TenantQuota(String tenant, int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("limit must be at least 1");
+
+        this.tenant = tenant;
+        this.limit = limit;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Takes a permit, waiting up to {@code timeoutMillis} for one. Like the connection request timeout of HttpClient,
+     * zero or a negative timeout waits as long as it takes
+     */
+    void acquire(long timeoutMillis) throws OHTException {
+        synchronized (this) {
+            if (inUse < limit && waiting.isEmpty()) {
+                inUse++;
+                return;
+            }
+
+            Waiter waiter = new Waiter();
+            waiting.add(waiter);
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            try {
+                while (!waiter.granted) {
+                    if (timeoutMillis <= 0) {
+                        wait();
+                        continue;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        waiting.remove(waiter);
+                        throw new OHTException(-1, "Concurrency quota of tenant " + tenant + " exhausted, "
+                                + limit + " requests in flight", null);
+                    }
+
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+
+                return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (!waiter.granted) {
+                    waiting.remove(waiter);
+                    throw new OHTException(ex);
+                }
+            }
+        }
+
+        // interrupted right after the permit was handed over
+        release();
+        throw new OHTException(new InterruptedException());
+    }
+
+    /**
+     * Runs {@code task} once a permit is available, right away on the calling thread if there is one,
+     * otherwise on the timer thread of the library once one is released. The task must {@link #release() release} it when done
+     */
+    void acquire(Runnable task) {
+        synchronized (this) {
+            if (inUse >= limit || !waiting.isEmpty()) {
+                waiting.add(task);
+                return;
+            }
+
+            inUse++;
+        }
+
+        task.run();
+    }
+
+    /**
+     * Returns a permit, handing it to the oldest waiter if there is one
+     */
+    void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (null == next) {
+                inUse--;
+                return;
+            }
+
+            if (next instanceof Waiter) {
+                next.run();
+                return;
+            }
+        }
+
+        // not on the releasing thread, so that a line of tasks failing right away does not recurse
+        try {
+            RetryPolicy.scheduler().execute(next);
+        } catch (RejectedExecutionException ex) {
+            next.run();
+        }
+    }
+
+    // blocked caller, granted its permit while the lock is held
+    private class Waiter implements Runnable {
+        private boolean granted = false;
+
+        public void run() {
+            granted = true;
+            TenantQuota.this.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.oht;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent store of machine translations, so content translated once is never sent to the MT endpoint again,
+ * also after a restart.
+ * <ul>
+ * <li>translations are keyed by source language, target language and the source text, normalized to NFC with
+ * surrounding whitespace trimmed and inner runs of spaces and tabs collapsed; line breaks are kept, so texts that
+ * differ in their lines are different keys;</li>
+ * <li>the file is append-only and memory-mapped; a hash index of it is kept in memory and built when it is opened;</li>
+ * <li>one process on the host opens it for writing, any number of others can open it {@link Builder#setReadOnly(boolean)
+ * read-only} and see new translations as they are appended;</li>
+ * <li>once the file grows past {@code maxBytes} it is rewritten with only the latest translation of every key,
+ * dropping the oldest ones if needed, down to half of {@code maxBytes}.</li>
+ * </ul>
+ * Use it with {@link OHTAPI#setTranslationMemory(TranslationMemory)} or
+ * {@link BatchTranslator.Builder#setTranslationMemory(TranslationMemory)}.
+ * <p>
+ * Create it with {@code TranslationMemory.custom(path).setMaxBytes(...).build()}.
+ */
+public class TranslationMemory implements Closeable {
+
+    /*
+     * Layout: a header of {int magic, int version, long end of the committed records, 16 reserved bytes},
+     * followed by records of {int length of the rest, int key hash, int key length, key, int text length, text},
+     * where the key is "<source>\0<target>\0<normalized text>" and all strings are UTF-8.
+     * A record is written before the end in the header is moved past it, so readers never see partial records.
+     */
+    private static final int MAGIC = 0x4F48544D;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int END_OFFSET = 8;
+    private static final long REOPEN_CHECK_MILLIS = 1000;
+    private static final Pattern LINE_BREAK = Pattern.compile("\\h*\\R\\h*");
+    private static final Pattern HORIZONTAL_WHITESPACE = Pattern.compile("\\h+");
+
+    private final Path file;
+    private final boolean readOnly;
+    private final long maxBytes;
+
+    private FileChannel channel = null;
+    private FileChannel lockChannel = null;
+    private FileLock lock = null;
+    private MappedByteBuffer map = null;
+    private Object fileKey = null; // identity of the open file, changes when a writer compacts it
+    private long checked = 0;
+    private boolean closed = false;
+
+    private final Map<Integer, int[]> index = new HashMap<Integer, int[]>(); // key hash -> record offsets, oldest first
+    private long indexed = HEADER_SIZE; // records before this offset are in the index
+    private int records = 0;
+
+    private TranslationMemory(Builder builder) throws IOException {
+        this.file = builder.file;
+        this.readOnly = builder.readOnly;
+        this.maxBytes = builder.maxBytes;
+
+        if (!readOnly) {
+            lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException ex) {
+                // held by this JVM
+                lock = null;
+            }
+
+            if (null == lock) {
+                lockChannel.close();
+                throw new IOException(file + " is already open for writing");
+            }
+        }
+
+        try {
+            open();
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     *
+     * @param file file to keep the translations in, created if missing unless read-only
+     */
+    public static Builder custom(Path file) {
+        return new Builder(file);
+    }
+
+    /**
+     * Translation of a text, or {@code null} if it is not in the store
+     *
+     * @throws IOException if the store is closed
+     */
+    public synchronized String get(String sourceLanguage, String targetLanguage, String text) throws IOException {
+        refresh();
+        if (null == map)
+            return null;
+
+        byte[] key = key(sourceLanguage, targetLanguage, text);
+        int[] offsets = index.get(hash(key));
+        if (null == offsets)
+            return null;
+
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            String translation = read(offsets[i], key);
+            if (null != translation)
+                return translation;
+        }
+
+        return null;
+    }
+
+    /**
+     * Stores the translation of a text, replacing an earlier one
+     *
+     * @throws IllegalStateException if the store is read-only
+     */
+    public synchronized void put(String sourceLanguage, String targetLanguage, String text, String translation) throws IOException {
+        if (readOnly)
+            throw new IllegalStateException("translation memory is read-only");
+        if (null == channel)
+            throw new IOException("translation memory is closed");
+
+        byte[] key = key(sourceLanguage, targetLanguage, text);
+        byte[] value = translation.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        int length = 12 + key.length + value.length;
+        long offset = indexed;
+        if (offset + 4 + length > Integer.MAX_VALUE)
+            throw new IOException("translation memory is full");
+
+        ByteBuffer record = ByteBuffer.allocate(4 + length);
+        record.putInt(length).putInt(hash).putInt(key.length).put(key).putInt(value.length).put(value);
+        record.flip();
+        write(channel, record, offset);
+        commit(channel, offset + record.capacity());
+
+        add(hash, (int) offset);
+        indexed = offset + record.capacity();
+
+        if (indexed > maxBytes)
+            compact();
+    }
+
+    /*
+     * Lookups and stores of callers that translate anyway, for which the store is an optimization only:
+     * a failing lookup counts as a miss, and a translation that cannot be stored is returned all the same.
+     */
+
+    String lookup(String sourceLanguage, String targetLanguage, String text) {
+        try {
+            return get(sourceLanguage, targetLanguage, text);
+        } catch (IOException ex) {
+            // a miss, see above
+            return null;
+        }
+    }
+
+    void offer(String sourceLanguage, String targetLanguage, String text, String translation) {
+        if (readOnly)
+            return;
+
+        try {
+            put(sourceLanguage, targetLanguage, text, translation);
+        } catch (IOException ex) {
+            // not stored, see above
+        }
+    }
+
+    /**
+     * Number of records in the store, replaced translations included until the next compaction
+     */
+    public synchronized int size() throws IOException {
+        refresh();
+        return records;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Rewrites the file with only the latest translation of every key, dropping the oldest translations
+     * until it is no larger than half of {@code maxBytes}
+     *
+     * @throws IllegalStateException if the store is read-only
+     */
+    public synchronized void compact() throws IOException {
+        if (readOnly)
+            throw new IllegalStateException("translation memory is read-only");
+        if (null == channel)
+            throw new IOException("translation memory is closed");
+
+        scan(); // maps the records appended since the file was last mapped
+
+        // latest record of every key
+        List<Integer> live = new ArrayList<Integer>();
+        for (int[] offsets : index.values()) {
+            List<byte[]> seen = new ArrayList<byte[]>();
+            for (int i = offsets.length - 1; i >= 0; i--) {
+                byte[] key = readKey(offsets[i]);
+                boolean replaced = false;
+                for (byte[] other : seen)
+                    replaced |= Arrays.equals(key, other);
+
+                if (!replaced) {
+                    seen.add(key);
+                    live.add(offsets[i]);
+                }
+            }
+        }
+        Collections.sort(live);
+
+        long size = HEADER_SIZE;
+        for (int offset : live)
+            size += 4 + map.getInt(offset);
+
+        int first = 0;
+        while (first < live.size() && size > maxBytes / 2)
+            size -= 4 + map.getInt(live.get(first++));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel target = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            writeHeader(target);
+            long position = HEADER_SIZE;
+            for (int i = first; i < live.size(); i++) {
+                int offset = live.get(i);
+                ByteBuffer record = map.duplicate();
+                record.limit(offset + 4 + map.getInt(offset)).position(offset);
+                position += write(target, record, position);
+            }
+            commit(target, position);
+            target.force(true);
+        } finally {
+            target.close();
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        open();
+    }
+
+    /**
+     * Closes the file. Translations are written as they are put, so nothing is lost
+     */
+    public synchronized void close() throws IOException {
+        closed = true;
+        map = null;
+        try {
+            if (null != channel)
+                channel.close();
+        } finally {
+            channel = null;
+            if (null != lock) {
+                lock.release();
+                lockChannel.close();
+                lock = null;
+            }
+        }
+    }
+
+    /**
+     * Normalized form of a source text, as it is keyed in the store
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).trim();
+        normalized = LINE_BREAK.matcher(normalized).replaceAll("\n");
+        return HORIZONTAL_WHITESPACE.matcher(normalized).replaceAll(" ");
+    }
+
+    //<editor-fold desc="FILE">
+
+    // opens the file and indexes it, or leaves the store empty if a read-only file does not exist yet
+    private void open() throws IOException {
+        map = null;
+        channel = null;
+        index.clear();
+        indexed = HEADER_SIZE;
+        records = 0;
+        checked = System.currentTimeMillis();
+
+        if (readOnly) {
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (NoSuchFileException ex) {
+                fileKey = null;
+                return;
+            }
+
+            if (channel.size() < HEADER_SIZE) {
+                // still being created by the writer
+                channel.close();
+                channel = null;
+                fileKey = null;
+                return;
+            }
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader(channel);
+                commit(channel, HEADER_SIZE);
+            }
+        }
+
+        fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        map();
+        if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION)
+            throw new IOException(file + " is not a translation memory file");
+
+        scan();
+    }
+
+    // picks up records appended and files replaced by the writing process
+    private void refresh() throws IOException {
+        if (closed)
+            throw new IOException("translation memory is closed");
+
+        if (readOnly && System.currentTimeMillis() - checked >= REOPEN_CHECK_MILLIS) {
+            checked = System.currentTimeMillis();
+            Object current;
+            try {
+                current = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            } catch (NoSuchFileException ex) {
+                current = null;
+            }
+
+            if (null == current ? null != fileKey : !current.equals(fileKey)) {
+                if (null != channel)
+                    channel.close();
+                open();
+            }
+        }
+
+        if (null != map)
+            scan();
+    }
+
+    // indexes the records committed since the last scan
+    private void scan() throws IOException {
+        long end = map.getLong(END_OFFSET);
+        if (end > map.capacity())
+            map();
+
+        while (indexed < end) {
+            int offset = (int) indexed;
+            add(map.getInt(offset + 4), offset);
+            indexed += 4 + map.getInt(offset);
+        }
+    }
+
+    private void map() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException(file + " is too large");
+
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private void add(int hash, int offset) {
+        int[] offsets = index.get(hash);
+        if (null == offsets) {
+            offsets = new int[]{offset};
+        } else {
+            offsets = Arrays.copyOf(offsets, offsets.length + 1);
+            offsets[offsets.length - 1] = offset;
+        }
+
+        index.put(hash, offsets);
+        records++;
+    }
+
+    // translation of the record at offset if it has this key, otherwise null
+    private String read(int offset, byte[] key) {
+        if (map.getInt(offset + 8) != key.length)
+            return null;
+
+        for (int i = 0; i < key.length; i++) {
+            if (map.get(offset + 12 + i) != key[i])
+                return null;
+        }
+
+        int position = offset + 12 + key.length;
+        byte[] value = new byte[map.getInt(position)];
+        ByteBuffer source = map.duplicate();
+        source.position(position + 4);
+        source.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readKey(int offset) {
+        byte[] key = new byte[map.getInt(offset + 8)];
+        ByteBuffer source = map.duplicate();
+        source.position(offset + 12);
+        source.get(key);
+        return key;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(HEADER_SIZE);
+        header.clear();
+        write(channel, header, 0);
+    }
+
+    private static void commit(FileChannel channel, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(end).flip();
+        write(channel, buffer, END_OFFSET);
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer, position + written);
+        return written;
+    }
+
+    private static byte[] key(String sourceLanguage, String targetLanguage, String text) {
+        return (sourceLanguage + '\0' + targetLanguage + '\0' + normalize(text)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] key) {
+        return Arrays.hashCode(key);
+    }
+
+    //</editor-fold>
+
+    /**
+     * Builder of {@link TranslationMemory TranslationMemory}
+     */
+    public static class Builder {
+
+        private Path file;
+        private boolean readOnly = false;
+        private long maxBytes = 256L * 1024 * 1024;
+
+        private Builder(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Opens the file for reading only, e.g. in all processes but one (defaults to {@code false}).
+         * Only one process at a time can open a file for writing
+         */
+        public Builder setReadOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+            return this;
+        }
+
+        /**
+         * File size past which it is compacted, in bytes (defaults to 256 MB, at most 1 GB)
+         */
+        public Builder setMaxBytes(long maxBytes) {
+            if (maxBytes < HEADER_SIZE * 2 || maxBytes > 1024L * 1024 * 1024)
+                throw new IllegalArgumentException("maxBytes must be between " + HEADER_SIZE * 2 + " and 1 GB");
+
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Opens the store and indexes the translations in it
+         */
+        public TranslationMemory build() throws IOException {
+            return new TranslationMemory(this);
+        }
+    }
+}
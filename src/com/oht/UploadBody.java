@@ -0,0 +1,134 @@
+package com.oht;
+
+import org.apache.http.ParseException;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Multipart file part read straight from a stream, channel, buffer or path, without a temporary file.
+ * Content is copied in 64 KB chunks and every chunk is reported to the optional {@link ProgressListener ProgressListener}.
+ * Stream and channel content can be sent only once.
+ */
+class UploadBody extends AbstractContentBody {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String fileName;
+    private final InputStream stream;
+    private final ByteBuffer buffer;
+    private final Path path;
+    private final long length;
+    private final ProgressListener listener;
+
+    private UploadBody(String fileName, String fileMime, InputStream stream, ByteBuffer buffer, Path path, long length, ProgressListener listener)
+            throws OHTException {
+        super(contentType(fileMime));
+        this.fileName = fileName;
+        this.stream = stream;
+        this.buffer = buffer;
+        this.path = path;
+        this.length = length;
+        this.listener = listener;
+    }
+
+    static UploadBody of(String fileName, String fileMime, InputStream content, ProgressListener listener) throws OHTException {
+        return new UploadBody(fileName, fileMime, content, null, null, -1, listener);
+    }
+
+    static UploadBody of(String fileName, String fileMime, ReadableByteChannel content, ProgressListener listener) throws OHTException {
+        return new UploadBody(fileName, fileMime, Channels.newInputStream(content), null, null, -1, listener);
+    }
+
+    static UploadBody of(String fileName, String fileMime, ByteBuffer content, ProgressListener listener) throws OHTException {
+        ByteBuffer buffer = content.duplicate();
+        return new UploadBody(fileName, fileMime, null, buffer, null, buffer.remaining(), listener);
+    }
+
+    static UploadBody of(String fileName, String fileMime, Path content, ProgressListener listener) throws IOException, OHTException {
+        return new UploadBody(null != fileName ? fileName : content.getFileName().toString(), fileMime,
+                null, null, content, Files.size(content), listener);
+    }
+
+    // mime type as given by the caller, parameters such as the charset included
+    private static ContentType contentType(String fileMime) throws OHTException {
+        if (null == fileMime)
+            return ContentType.DEFAULT_BINARY;
+
+        try {
+            return ContentType.parse(fileMime);
+        } catch (ParseException | IllegalArgumentException ex) {
+            throw new OHTException(-1, "Invalid file mime type " + fileMime, null);
+        }
+    }
+
+    public String getFilename() {
+        return fileName;
+    }
+
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    public long getContentLength() {
+        return length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        if (null != buffer) {
+            write(buffer.duplicate(), out);
+        } else if (null != path) {
+            InputStream input = Files.newInputStream(path);
+            try {
+                write(input, out);
+            } finally {
+                input.close();
+            }
+        } else {
+            write(stream, out);
+        }
+    }
+
+    private void write(ByteBuffer content, OutputStream out) throws IOException {
+        byte[] chunk = content.hasArray() ? null : new byte[Math.min(CHUNK_SIZE, content.remaining())];
+        long transferred = 0;
+        while (content.hasRemaining()) {
+            int count = Math.min(CHUNK_SIZE, content.remaining());
+            if (null == chunk) {
+                out.write(content.array(), content.arrayOffset() + content.position(), count);
+                content.position(content.position() + count);
+            } else {
+                content.get(chunk, 0, count);
+                out.write(chunk, 0, count);
+            }
+
+            transferred += count;
+            progress(transferred);
+        }
+    }
+
+    private void write(InputStream content, OutputStream out) throws IOException {
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long transferred = 0;
+        int read;
+        while ((read = content.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+            transferred += read;
+            progress(transferred);
+        }
+    }
+
+    private void progress(long transferred) {
+        if (null != listener)
+            listener.onProgress(transferred, length);
+    }
+}
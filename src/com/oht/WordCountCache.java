@@ -0,0 +1,267 @@
+package com.oht;
+
+import com.oht.entities.WordCount;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache of word counts by resource UUID. Resource contents do not change once uploaded, so counts never expire;
+ * the least recently used ones are dropped beyond {@code maxEntries}.
+ * <ul>
+ * <li>a word count of several resources asks the service only for the ones not cached yet, in a single call;</li>
+ * <li>concurrent misses of the same resource cost a single count.</li>
+ * </ul>
+ * One cache may be shared by several {@link OHTAPI OHTAPI} instances, see {@link OHTAPI#setWordCountCache(WordCountCache)}.
+ */
+public class WordCountCache {
+
+    interface Loader {
+        WordCount load(String[] resources) throws OHTException;
+    }
+
+    interface AsyncLoader {
+        CompletableFuture<WordCount> load(String[] resources);
+    }
+
+    private final Map<String, Integer> counts;
+    private final ConcurrentMap<String, CompletableFuture<Integer>> loading = new ConcurrentHashMap<String, CompletableFuture<Integer>>();
+
+    private WordCountCache(Builder builder) {
+        final int maxEntries = builder.maxEntries;
+        this.counts = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Creates a builder initialized with the default settings
+     */
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Drops all cached counts
+     */
+    public void invalidate() {
+        synchronized (counts) {
+            counts.clear();
+        }
+    }
+
+    /**
+     * Number of cached counts
+     */
+    public int size() {
+        synchronized (counts) {
+            return counts.size();
+        }
+    }
+
+    WordCount wordCount(String[] resources, Loader loader) throws OHTException {
+        Map<String, Integer> result = new HashMap<String, Integer>();
+        Set<String> missing = new LinkedHashSet<String>();
+        synchronized (counts) {
+            for (String resource : resources) {
+                Integer count = counts.get(resource);
+                if (null != count)
+                    result.put(resource, count);
+                else
+                    missing.add(resource);
+            }
+        }
+
+        if (!missing.isEmpty())
+            load(missing, loader, result);
+
+        return total(resources, result);
+    }
+
+    CompletableFuture<WordCount> wordCountAsync(final String[] resources, AsyncLoader loader) {
+        final Map<String, Integer> result = new HashMap<String, Integer>();
+        Set<String> missing = new LinkedHashSet<String>();
+        synchronized (counts) {
+            for (String resource : resources) {
+                Integer count = counts.get(resource);
+                if (null != count)
+                    result.put(resource, count);
+                else
+                    missing.add(resource);
+            }
+        }
+
+        if (missing.isEmpty())
+            return CompletableFuture.completedFuture(total(resources, result));
+
+        // the missing counts, fetched by this call or by the ones that were already fetching them
+        final Map<String, CompletableFuture<Integer>> pending = new HashMap<String, CompletableFuture<Integer>>();
+        Map<String, CompletableFuture<Integer>> owned = new LinkedHashMap<String, CompletableFuture<Integer>>();
+        for (String resource : missing) {
+            CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+            CompletableFuture<Integer> inFlight = loading.putIfAbsent(resource, future);
+            if (null != inFlight) {
+                pending.put(resource, inFlight);
+            } else {
+                pending.put(resource, future);
+                owned.put(resource, future);
+            }
+        }
+
+        if (!owned.isEmpty())
+            fetch(owned, loader);
+
+        final CompletableFuture<WordCount> wordCount = new CompletableFuture<WordCount>();
+        CompletableFuture.allOf(pending.values().toArray(new CompletableFuture<?>[pending.size()]))
+                .whenComplete(new BiConsumer<Void, Throwable>() {
+                    public void accept(Void nothing, Throwable error) {
+                        if (null != error) {
+                            wordCount.completeExceptionally(OHTException.of(error));
+                            return;
+                        }
+
+                        for (Map.Entry<String, CompletableFuture<Integer>> entry : pending.entrySet())
+                            result.put(entry.getKey(), entry.getValue().join());
+                        wordCount.complete(total(resources, result));
+                    }
+                });
+
+        return wordCount;
+    }
+
+    private static WordCount total(String[] resources, Map<String, Integer> result) {
+        int total = 0;
+        for (String resource : resources)
+            total += result.get(resource);
+
+        return new WordCount(total, result);
+    }
+
+    // counts the missing resources, fetching the ones nobody else is fetching in one call
+    private void load(Set<String> missing, Loader loader, Map<String, Integer> result) throws OHTException {
+        Map<String, CompletableFuture<Integer>> owned = new LinkedHashMap<String, CompletableFuture<Integer>>();
+        Map<String, CompletableFuture<Integer>> awaited = new HashMap<String, CompletableFuture<Integer>>();
+        for (String resource : missing) {
+            CompletableFuture<Integer> future = new CompletableFuture<Integer>();
+            CompletableFuture<Integer> inFlight = loading.putIfAbsent(resource, future);
+            if (null != inFlight)
+                awaited.put(resource, inFlight);
+            else
+                owned.put(resource, future);
+        }
+
+        if (!owned.isEmpty())
+            fetch(owned, loader, result);
+
+        for (Map.Entry<String, CompletableFuture<Integer>> entry : awaited.entrySet())
+            result.put(entry.getKey(), await(entry.getValue()));
+    }
+
+    private void fetch(Map<String, CompletableFuture<Integer>> owned, Loader loader, Map<String, Integer> result) throws OHTException {
+        try {
+            result.putAll(store(owned, loader.load(owned.keySet().toArray(new String[owned.size()]))));
+        } catch (OHTException | RuntimeException ex) {
+            fail(owned, ex);
+            throw ex;
+        }
+    }
+
+    // starts the count of the owned resources without waiting for it
+    private void fetch(final Map<String, CompletableFuture<Integer>> owned, AsyncLoader loader) {
+        CompletableFuture<WordCount> fetched;
+        try {
+            fetched = loader.load(owned.keySet().toArray(new String[owned.size()]));
+        } catch (RuntimeException ex) {
+            fail(owned, ex);
+            return;
+        }
+
+        fetched.whenComplete(new BiConsumer<WordCount, Throwable>() {
+            public void accept(WordCount wordCount, Throwable error) {
+                if (null != error) {
+                    fail(owned, OHTException.of(error));
+                    return;
+                }
+
+                try {
+                    store(owned, wordCount);
+                } catch (OHTException | RuntimeException ex) {
+                    fail(owned, ex);
+                }
+            }
+        });
+    }
+
+    // caches the fetched counts and completes the owned futures with them
+    private Map<String, Integer> store(Map<String, CompletableFuture<Integer>> owned, WordCount fetched) throws OHTException {
+        Map<String, Integer> fetchedCounts = null != fetched ? fetched.getResources() : null;
+        Map<String, Integer> result = new HashMap<String, Integer>();
+        for (String resource : owned.keySet()) {
+            Integer count = null != fetchedCounts ? fetchedCounts.get(resource) : null;
+            if (null == count)
+                throw new OHTException(-1, "Word count response has no count of resource " + resource, null);
+            result.put(resource, count);
+        }
+
+        synchronized (counts) {
+            counts.putAll(result);
+        }
+
+        for (Map.Entry<String, CompletableFuture<Integer>> entry : owned.entrySet()) {
+            loading.remove(entry.getKey(), entry.getValue());
+            entry.getValue().complete(result.get(entry.getKey()));
+        }
+
+        return result;
+    }
+
+    private void fail(Map<String, CompletableFuture<Integer>> owned, Exception error) {
+        for (Map.Entry<String, CompletableFuture<Integer>> entry : owned.entrySet()) {
+            loading.remove(entry.getKey(), entry.getValue());
+            entry.getValue().completeExceptionally(error);
+        }
+    }
+
+    private static Integer await(CompletableFuture<Integer> future) throws OHTException {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof OHTException)
+                throw (OHTException) ex.getCause();
+            throw new OHTException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OHTException(ex);
+        }
+    }
+
+    /**
+     * Builder of {@link WordCountCache WordCountCache}
+     */
+    public static class Builder {
+
+        private int maxEntries = 100000;
+
+        private Builder() {
+        }
+
+        /**
+         * Number of resources whose counts are kept (defaults to 100000)
+         */
+        public Builder setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public WordCountCache build() {
+            return new WordCountCache(this);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
 
 /**
  * Basic account details and credits balance.
@@ -28,6 +31,28 @@ public class AccountDetails {
         this.uuid = object.get("uuid").getAsString();
     }
 
+    public AccountDetails(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("account_id"))
+                this.accountId = reader.nextInt();
+            else if (name.equals("account_username"))
+                this.accountUsername = reader.nextString();
+            else if (name.equals("credits"))
+                this.credits = (float) reader.nextDouble();
+            else if (name.equals("role"))
+                this.role = reader.nextString();
+            else if (name.equals("uuid"))
+                this.uuid = reader.nextString();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * Unique account id in OHT
      */
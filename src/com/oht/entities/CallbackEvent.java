@@ -0,0 +1,81 @@
+package com.oht.entities;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Notification sent by One Hour Translation to a project's callback URL
+ */
+public class CallbackEvent {
+
+    private String event;
+    private int projectId;
+    private String statusCode;
+    private String resourceUuid;
+    private Map<String, String> params;
+
+    public CallbackEvent() {
+    }
+
+    /**
+     * @param params callback parameters, as posted to the callback URL
+     */
+    public CallbackEvent(Map<String, String> params) {
+        this();
+
+        this.params = Collections.unmodifiableMap(new LinkedHashMap<String, String>(params));
+        this.event = params.get("event");
+        this.statusCode = params.get("project_status_code");
+        this.resourceUuid = params.get("resource_uuid");
+
+        String projectId = params.get("project_id");
+        try {
+            this.projectId = null != projectId ? Integer.parseInt(projectId.trim()) : 0;
+        } catch (NumberFormatException e) {
+            this.projectId = 0;
+        }
+    }
+
+    /**
+     * Event name, e.g. <b>project.status.update</b> or <b>project.resources.new</b>
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * Project ID, or 0 if the callback did not carry one
+     */
+    public int getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * Project status code (see {@link ProjectDetails#getStatusCode()}), if the callback carried one
+     */
+    public String getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * UUID of the resource the event refers to, if any
+     */
+    public String getResourceUuid() {
+        return resourceUuid;
+    }
+
+    /**
+     * All callback parameters, including custom fields
+     */
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * Single callback parameter, or {@code null}
+     */
+    public String getParam(String name) {
+        return params.get(name);
+    }
+}
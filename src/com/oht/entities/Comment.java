@@ -1,10 +1,12 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import com.oht.OHTException;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
@@ -18,8 +20,6 @@ public class Comment implements Comparable<Comment> {
     private String commenterRole;
     private String content;
 
-    private static SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
     public Comment() {
     }
 
@@ -32,12 +32,39 @@ public class Comment implements Comparable<Comment> {
         this.content = json.get("comment_content").getAsString();
 
         try {
-            this.date = formatter.parse(json.get("date").getAsString());
-        } catch (ParseException e) {
+            this.date = Dates.parse(json.get("date").getAsString());
+        } catch (DateTimeParseException e) {
             throw new OHTException(e);
         }
     }
 
+    public Comment(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("id")) {
+                this.id = reader.nextInt();
+            } else if (name.equals("commenter_name")) {
+                this.commenterName = reader.nextString();
+            } else if (name.equals("commenter_role")) {
+                this.commenterRole = reader.nextString();
+            } else if (name.equals("comment_content")) {
+                this.content = reader.nextString();
+            } else if (name.equals("date")) {
+                try {
+                    this.date = Dates.parse(reader.nextString());
+                } catch (DateTimeParseException e) {
+                    throw new JsonSyntaxException(e);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Unique id of the comment
      */
@@ -0,0 +1,26 @@
+package com.oht.entities;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/**
+ * Parses the timestamps of API responses. Unlike a shared {@link java.text.SimpleDateFormat SimpleDateFormat}
+ * the formatter is immutable, so entities can be decoded on any number of threads at once.
+ */
+final class Dates {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Dates() {
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd HH:mm:ss} in the default time zone, as the API sends it
+     */
+    static Date parse(String value) throws DateTimeParseException {
+        return Date.from(LocalDateTime.parse(value, FORMAT).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -1,6 +1,9 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
 
 /**
  * Represents OHT expertise
@@ -24,6 +27,24 @@ public class Expertise {
         this.expertiseId = json.get("expertise_id").getAsInt();
     }
 
+    public Expertise(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("name"))
+                this.name = reader.nextString();
+            else if (name.equals("code"))
+                this.code = reader.nextString();
+            else if (name.equals("expertise_id"))
+                this.expertiseId = reader.nextInt();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * Expertise Id
      */
@@ -44,4 +65,20 @@ public class Expertise {
     public String getCode() {
         return code;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Expertise))
+            return false;
+
+        Expertise other = (Expertise) o;
+        return null == code ? null == other.code : code.equals(other.code);
+    }
+
+    @Override
+    public int hashCode() {
+        return null == code ? 0 : code.hashCode();
+    }
 }
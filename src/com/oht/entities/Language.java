@@ -1,6 +1,9 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
 
 /**
  * Represents OHT language.
@@ -22,6 +25,29 @@ public class Language {
         this.code = json.get("code").getAsString();
     }
 
+    Language(String name, String code) {
+        this();
+
+        this.name = name;
+        this.code = code;
+    }
+
+    public Language(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("name"))
+                this.name = reader.nextString();
+            else if (name.equals("code"))
+                this.code = reader.nextString();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * Language name
      * @return
@@ -37,4 +63,20 @@ public class Language {
     public String getCode() {
         return code;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Language))
+            return false;
+
+        Language other = (Language) o;
+        return null == code ? null == other.code : code.equals(other.code);
+    }
+
+    @Override
+    public int hashCode() {
+        return null == code ? 0 : code.hashCode();
+    }
 }
@@ -3,7 +3,9 @@ package com.oht.entities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -35,6 +37,46 @@ public class LanguagePair {
         }
     }
 
+    public LanguagePair(JsonReader reader) throws IOException {
+        this();
+
+        this.targets = new HashMap<Language, String>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("source")) {
+                this.source = new Language(reader);
+            } else if (name.equals("targets")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String code = null;
+                    String languageName = null;
+                    String value = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String targetName = reader.nextName();
+                        if (targetName.equals("name"))
+                            languageName = reader.nextString();
+                        else if (targetName.equals("code"))
+                            code = reader.nextString();
+                        else if (targetName.equals("availability"))
+                            value = reader.nextString();
+                        else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+
+                    this.targets.put(new Language(languageName, code), value);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Source Language
      */
@@ -1,6 +1,9 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
 
 /**
  * Short representation of the project
@@ -22,6 +25,24 @@ public class Project {
         this.credits = json.get("credits").getAsFloat();
     }
 
+    public Project(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("project_id"))
+                this.projectId = reader.nextInt();
+            else if (name.equals("wordcount"))
+                this.wordCount = reader.nextInt();
+            else if (name.equals("credits"))
+                this.credits = (float) reader.nextDouble();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * Unique id of the newly created project
      */
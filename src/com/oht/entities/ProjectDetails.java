@@ -3,7 +3,11 @@ package com.oht.entities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -126,6 +130,77 @@ public class ProjectDetails {
         }
     }
 
+    public ProjectDetails(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+            } else if (name.equals("project_id")) {
+                this.projectId = reader.nextInt();
+            } else if (name.equals("project_type")) {
+                this.type = reader.nextString();
+            } else if (name.equals("project_status")) {
+                this.projectStatus = reader.nextString();
+            } else if (name.equals("project_status_code")) {
+                this.statusCode = reader.nextString();
+            } else if (name.equals("source_language")) {
+                this.sourceLanguage = reader.nextString();
+            } else if (name.equals("target_language")) {
+                this.targetLanguage = reader.nextString();
+            } else if (name.equals("resources") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String resourceName = reader.nextName();
+                    if (reader.peek() != JsonToken.BEGIN_ARRAY)
+                        reader.skipValue();
+                    else if (resourceName.equals("sources"))
+                        this.sources = readStrings(reader);
+                    else if (resourceName.equals("translations"))
+                        this.translations = readStrings(reader);
+                    else if (resourceName.equals("proofs"))
+                        this.proofs = readStrings(reader);
+                    else if (resourceName.equals("transcriptions"))
+                        this.transcriptions = readStrings(reader);
+                    else if (resourceName.equals("results"))
+                        this.results = readStrings(reader);
+                    else if (resourceName.equals("reference"))
+                        this.reference = readStrings(reader);
+                    else
+                        reader.skipValue();
+                }
+                reader.endObject();
+            } else if (name.equals("tags") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                this.tags = readStrings(reader);
+            } else if (name.equals("wordcount")) {
+                this.wordCount = reader.nextInt();
+            } else if (name.equals("length")) {
+                this.length = reader.nextInt();
+            } else if (name.equals("custom") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                this.custom = new JsonParser().parse(reader).getAsJsonObject();
+            } else if (name.equals("resource_binding") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                this.resourceBinding = new JsonParser().parse(reader).getAsJsonObject();
+            } else if (name.equals("linguist_uuid")) {
+                this.linguistUuid = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static Collection<String> readStrings(JsonReader reader) throws IOException {
+        Collection<String> result = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext())
+            result.add(reader.nextString());
+        reader.endArray();
+
+        return result;
+    }
+
     /**
      * The unique id of the requested project
      */
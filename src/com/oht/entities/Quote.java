@@ -3,7 +3,10 @@ package com.oht.entities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -46,6 +49,46 @@ public class Quote {
         }
     }
 
+    public Quote(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("currency")) {
+                this.currency = reader.nextString();
+            } else if (name.equals("total")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String totalName = reader.nextName();
+                    if (totalName.equals("wordcount"))
+                        this.totalWordCount = reader.nextInt();
+                    else if (totalName.equals("credits"))
+                        this.totalCredits = (float) reader.nextDouble();
+                    else if (totalName.equals("net_price"))
+                        this.netPrice = (float) reader.nextDouble();
+                    else if (totalName.equals("transaction_fee"))
+                        this.transactionFee = (float) reader.nextDouble();
+                    else if (totalName.equals("price"))
+                        this.totalPrice = (float) reader.nextDouble();
+                    else
+                        reader.skipValue();
+                }
+                reader.endObject();
+            } else if (name.equals("resources") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                List<ResourceQuote> resources = new ArrayList<ResourceQuote>();
+                reader.beginArray();
+                while (reader.hasNext())
+                    resources.add(new ResourceQuote(reader));
+                reader.endArray();
+                this.resources = resources;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Currency selected by user (or default)
      */
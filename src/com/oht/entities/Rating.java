@@ -1,10 +1,12 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import com.oht.OHTException;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 
 /**
@@ -12,8 +14,6 @@ import java.util.Date;
  */
 public class Rating implements Comparable<Rating> {
 
-    private static SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
     public Rating() {
     }
 
@@ -25,12 +25,37 @@ public class Rating implements Comparable<Rating> {
         this.remarks = json.get("remarks").getAsString();
 
         try {
-            this.date = formatter.parse(json.get("date").getAsString());
-        } catch (ParseException e) {
+            this.date = Dates.parse(json.get("date").getAsString());
+        } catch (DateTimeParseException e) {
             throw new OHTException(-1, "error parsing date string", null);
         }
     }
 
+    public Rating(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("type")) {
+                this.type = reader.nextString();
+            } else if (name.equals("rate")) {
+                this.rate = reader.nextInt();
+            } else if (name.equals("remarks")) {
+                this.remarks = reader.nextString();
+            } else if (name.equals("date")) {
+                try {
+                    this.date = Dates.parse(reader.nextString());
+                } catch (DateTimeParseException e) {
+                    throw new JsonSyntaxException("error parsing date string", e);
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Type (Customer or Service)
      */
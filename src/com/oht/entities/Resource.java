@@ -1,6 +1,10 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
 
 /**
  * Represents OHT resource
@@ -37,6 +41,32 @@ public class Resource {
             this.content = json.get("content").getAsString();
     }
 
+    public Resource(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL)
+                reader.skipValue();
+            else if (name.equals("type"))
+                this.type = reader.nextString();
+            else if (name.equals("length"))
+                this.length = reader.nextInt();
+            else if (name.equals("file_name"))
+                this.fileName = reader.nextString();
+            else if (name.equals("file_mime"))
+                this.fileMime = reader.nextString();
+            else if (name.equals("download_url"))
+                this.downloadUrl = reader.nextString();
+            else if (name.equals("content"))
+                this.content = reader.nextString();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * Type of resource
      * (text or file)
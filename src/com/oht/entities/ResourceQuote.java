@@ -1,6 +1,9 @@
 package com.oht.entities;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
 
 /**
  * Order summary for specific resource
@@ -24,6 +27,26 @@ public class ResourceQuote {
         this.price = json.get("price").getAsFloat();
     }
 
+    public ResourceQuote(JsonReader reader) throws IOException {
+        this();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("resource"))
+                this.uuid = reader.nextString();
+            else if (name.equals("wordcount"))
+                this.wordCount = reader.nextInt();
+            else if (name.equals("credits"))
+                this.credits = (float) reader.nextDouble();
+            else if (name.equals("price"))
+                this.price = (float) reader.nextDouble();
+            else
+                reader.skipValue();
+        }
+        reader.endObject();
+    }
+
     /**
      * UUID of the resource
      */
@@ -3,8 +3,12 @@ package com.oht.entities;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -23,6 +27,28 @@ public class Tags {
         this.tags = gson.fromJson(json, type);
     }
 
+    public Tags(JsonReader reader) throws IOException {
+        this.tags = new LinkedHashMap<Integer, String>();
+
+        // an empty tag list comes back as an empty array
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Integer key = Integer.valueOf(reader.nextName());
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                this.tags.put(key, null);
+            } else {
+                this.tags.put(key, reader.nextString());
+            }
+        }
+        reader.endObject();
+    }
+
     public Map<Integer, String> getTags(){
         return tags;
     }
@@ -3,7 +3,10 @@ package com.oht.entities;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +22,11 @@ public class WordCount {
     public WordCount() {
     }
 
+    public WordCount(int totalWordCount, Map<String, Integer> resources) {
+        this.totalWordCount = totalWordCount;
+        this.resources = resources;
+    }
+
     public WordCount(JsonObject json) {
         JsonObject total = json.get("total").getAsJsonObject();
         this.totalWordCount = total.get("wordcount").getAsInt();
@@ -35,6 +43,46 @@ public class WordCount {
         }
     }
 
+    public WordCount(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("total")) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("wordcount"))
+                        this.totalWordCount = reader.nextInt();
+                    else
+                        reader.skipValue();
+                }
+                reader.endObject();
+            } else if (name.equals("resources") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                this.resources = new HashMap<String, Integer>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String key = null;
+                    int value = 0;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String resourceName = reader.nextName();
+                        if (resourceName.equals("resource"))
+                            key = reader.nextString();
+                        else if (resourceName.equals("wordcount"))
+                            value = reader.nextInt();
+                        else
+                            reader.skipValue();
+                    }
+                    reader.endObject();
+                    this.resources.put(key, value);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Total words count
      */
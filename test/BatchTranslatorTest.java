@@ -0,0 +1,223 @@
+import com.google.gson.JsonObject;
+import com.oht.BatchTranslator;
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.TranslationMemory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Translates batches with {@link BatchTranslator BatchTranslator} through an {@link OHTSimulator OHTSimulator},
+ * whose machine translation prefixes the text with the target language: a pack {@code "a\nb"} comes back as
+ * {@code "[fr-fr] a\nb"}, so the first segment of every request carries the prefix
+ */
+public class BatchTranslatorTest extends SimulatorFixture {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRepeatedSegmentsAreTranslatedOnce() throws Exception {
+        BatchTranslator translator = BatchTranslator.custom(api).build();
+        long requests = simulator.getRequestCount();
+
+        List<String> result = translator.translate("en-us", "fr-fr", Arrays.asList("Save", "Open", "Save", "", "Save", null));
+        Assert.assertEquals(Arrays.asList("[fr-fr] Save", "Open", "[fr-fr] Save", "", "[fr-fr] Save", null), result);
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        // served from the cache
+        Assert.assertEquals(Arrays.asList("Open", "[fr-fr] Save"), translator.translate("en-us", "fr-fr", Arrays.asList("Open", "Save")));
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        // cached by language pair
+        translator.translate("en-us", "de-de", Arrays.asList("Open", "Save"));
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testPackingBoundary() throws Exception {
+        List<String> segments = Arrays.asList("aaaa", "bbbb", "cccc");
+
+        // "aaaa\nbbbb" is exactly 9 characters, "cccc" does not fit anymore
+        long requests = simulator.getRequestCount();
+        List<String> result = BatchTranslator.custom(api).setMaxChars(9).build().translate("en-us", "fr-fr", segments);
+        Assert.assertEquals(Arrays.asList("[fr-fr] aaaa", "bbbb", "[fr-fr] cccc"), result);
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+
+        // one character less and every segment goes on its own
+        requests = simulator.getRequestCount();
+        result = BatchTranslator.custom(api).setMaxChars(8).build().translate("en-us", "fr-fr", segments);
+        Assert.assertEquals(Arrays.asList("[fr-fr] aaaa", "[fr-fr] bbbb", "[fr-fr] cccc"), result);
+        Assert.assertEquals(requests + 3, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testMultiLineSegmentsAreSentAlone() throws Exception {
+        long requests = simulator.getRequestCount();
+        List<String> result = BatchTranslator.custom(api).build()
+                .translate("en-us", "fr-fr", Arrays.asList("one", "two\nlines", "three"));
+
+        Assert.assertEquals(Arrays.asList("[fr-fr] one", "[fr-fr] two\nlines", "three"), result);
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testFallbackPerSegmentWithinParallelism() throws Exception {
+        MergingServer merging = new MergingServer();
+        OHTAPI mergingApi = api(merging.getBaseUrl(), "public");
+        try {
+            List<String> segments = new ArrayList<String>();
+            for (int i = 0; i < 12; i++)
+                segments.add("segment " + i);
+
+            // packs of three segments, whose lines come back merged
+            List<String> result = BatchTranslator.custom(mergingApi).setMaxChars(30).setParallelism(3).build()
+                    .translate("en-us", "fr-fr", segments);
+
+            for (int i = 0; i < segments.size(); i++)
+                Assert.assertEquals("[fr-fr] segment " + i, result.get(i));
+            Assert.assertEquals(4 + 12, merging.calls.get());
+            Assert.assertTrue("max in flight " + merging.maxInFlight.get(), merging.maxInFlight.get() <= 3);
+        } finally {
+            merging.close();
+        }
+    }
+
+    @Test
+    public void testPacksBypassTranslationMemoryOfApi() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(folder.getRoot().toPath().resolve("memory.bin")).build();
+        try {
+            api.setTranslationMemory(memory);
+            List<String> result = BatchTranslator.custom(api).build().translate("en-us", "fr-fr", Arrays.asList("a", "b"));
+            Assert.assertEquals(Arrays.asList("[fr-fr] a", "b"), result);
+
+            // stored segment by segment, never as the joined pack
+            Assert.assertEquals(2, memory.size());
+            Assert.assertEquals("[fr-fr] a", memory.get("en-us", "fr-fr", "a"));
+            Assert.assertEquals("b", memory.get("en-us", "fr-fr", "b"));
+            Assert.assertNull(memory.get("en-us", "fr-fr", "a\nb"));
+            Assert.assertEquals("[fr-fr] a b", new OHTAsyncAPI(api).machineTranslation("en-us", "fr-fr", "a b").get());
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void testFailureIsThrownAfterAllRequests() throws Exception {
+        BatchTranslator translator = BatchTranslator.custom(api).setMaxChars(5).build();
+        try {
+            translator.translate("en-us", "xx-xx", Arrays.asList("one", "two"));
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertTrue(0 != ex.getStatusCode());
+        }
+    }
+
+    /*
+     * Machine translation endpoint that prefixes the text with the target language like the simulator, but joins
+     * its lines and answers after a delay, so that packs never match up and requests overlap
+     */
+    private static class MergingServer implements Closeable {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+        private final HttpServer server;
+
+        MergingServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/", new HttpHandler() {
+                public void handle(HttpExchange exchange) throws IOException {
+                    calls.incrementAndGet();
+                    int current = inFlight.incrementAndGet();
+                    while (true) {
+                        int max = maxInFlight.get();
+                        if (current <= max || maxInFlight.compareAndSet(max, current))
+                            break;
+                    }
+
+                    try {
+                        Map<String, String> params = params(exchange);
+                        Thread.sleep(20);
+
+                        JsonObject status = new JsonObject();
+                        status.addProperty("code", 0);
+                        status.addProperty("msg", "ok");
+                        JsonObject results = new JsonObject();
+                        results.addProperty("TranslatedText",
+                                "[" + params.get("target_language") + "] " + params.get("source_content").replace('\n', ' '));
+                        JsonObject envelope = new JsonObject();
+                        envelope.add("status", status);
+                        envelope.add("results", results);
+                        byte[] body = envelope.toString().getBytes(StandardCharsets.UTF_8);
+
+                        // done before the client hears back, so that its next request is not counted with this one
+                        inFlight.decrementAndGet();
+                        exchange.getResponseHeaders().set("Content-Type", "application/json");
+                        exchange.sendResponseHeaders(200, body.length);
+                        OutputStream output = exchange.getResponseBody();
+                        output.write(body);
+                        output.close();
+                    } catch (InterruptedException ex) {
+                        inFlight.decrementAndGet();
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        exchange.close();
+                    }
+                }
+            });
+            server.setExecutor(executor);
+            server.start();
+        }
+
+        String getBaseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        public void close() {
+            server.stop(0);
+            executor.shutdown();
+        }
+
+        // parameters of the query string and the form body
+        private static Map<String, String> params(HttpExchange exchange) throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            InputStream input = exchange.getRequestBody();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1)
+                body.write(buffer, 0, read);
+
+            Map<String, String> params = new HashMap<String, String>();
+            String query = exchange.getRequestURI().getRawQuery();
+            for (String form : new String[]{query, new String(body.toByteArray(), StandardCharsets.UTF_8)}) {
+                if (null == form || form.isEmpty())
+                    continue;
+
+                for (String pair : form.split("&")) {
+                    int separator = pair.indexOf('=');
+                    if (separator > 0)
+                        params.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                                URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            }
+
+            return params;
+        }
+    }
+}
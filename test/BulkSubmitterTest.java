@@ -0,0 +1,85 @@
+import com.oht.BulkSubmitter;
+import com.oht.OHTSimulator;
+import com.oht.ProjectSpec;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Submits batches of projects with {@link BulkSubmitter BulkSubmitter} to an {@link OHTSimulator OHTSimulator}
+ * answering every request after a fixed delay
+ */
+public class BulkSubmitterTest extends SimulatorFixture {
+
+    private static final long LATENCY_MILLIS = 200;
+
+    private String[] resources;
+
+    @Override
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder.setLatency(OHTSimulator.Latency.fixed(LATENCY_MILLIS));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        resources = new String[]{api.uploadTextResource("one two three")};
+    }
+
+    @Test
+    public void testResultsInSpecOrder() throws Exception {
+        String[] targetLanguages = {"fr-fr", "de-de", "es-es", "it-it", "ja-jp", "pl-pl"};
+        List<ProjectSpec> specs = new ArrayList<ProjectSpec>();
+        for (String targetLanguage : targetLanguages)
+            specs.add(ProjectSpec.translation("en-us", targetLanguage, resources));
+
+        final AtomicInteger notified = new AtomicInteger();
+        List<BulkSubmitter.Result> results = new BulkSubmitter(api, 3).submit(specs, new BulkSubmitter.Listener() {
+            public void onResult(BulkSubmitter.Result result) {
+                notified.incrementAndGet();
+            }
+        });
+
+        Assert.assertEquals(6, results.size());
+        Assert.assertEquals(6, notified.get());
+        for (int i = 0; i < results.size(); i++) {
+            Assert.assertEquals(i, results.get(i).getIndex());
+            Assert.assertSame(specs.get(i), results.get(i).getSpec());
+            Assert.assertTrue(results.get(i).isSuccess());
+            Assert.assertEquals(targetLanguages[i], api.getProjectDetails(results.get(i).getProject().getProjectId()).getTargetLanguage());
+        }
+    }
+
+    @Test
+    public void testParallelismIsBounded() throws Exception {
+        List<ProjectSpec> specs = Collections.nCopies(9, ProjectSpec.translation("en-us", "fr-fr", resources));
+
+        // three rounds of three requests
+        long start = System.nanoTime();
+        new BulkSubmitter(api, 3).submit(specs);
+        long millis = (System.nanoTime() - start) / 1000000;
+        Assert.assertTrue("took " + millis + " ms", millis >= 3 * LATENCY_MILLIS - 50);
+    }
+
+    @Test
+    public void testFailureDoesNotFailBatch() throws Exception {
+        List<ProjectSpec> specs = new ArrayList<ProjectSpec>();
+        specs.add(ProjectSpec.translation("en-us", "fr-fr", resources));
+        specs.add(ProjectSpec.translation("en-us", "xx-xx", resources));
+        specs.add(ProjectSpec.translation("en-us", "de-de", resources));
+
+        List<BulkSubmitter.Result> results = new BulkSubmitter(api, 2).submit(specs, new BulkSubmitter.Listener() {
+            public void onResult(BulkSubmitter.Result result) {
+                throw new IllegalStateException("broken listener");
+            }
+        });
+
+        Assert.assertTrue(results.get(0).isSuccess());
+        Assert.assertFalse(results.get(1).isSuccess());
+        Assert.assertNull(results.get(1).getProject());
+        Assert.assertNotNull(results.get(1).getError());
+        Assert.assertTrue(results.get(2).isSuccess());
+    }
+}
@@ -0,0 +1,206 @@
+import com.oht.CallbackReceiver;
+import com.oht.entities.CallbackEvent;
+import org.junit.*;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts callbacks to a {@link CallbackReceiver CallbackReceiver} listening on a free loopback port
+ */
+public class CallbackReceiverTest {
+
+    private static final String FORM = "application/x-www-form-urlencoded";
+
+    private final BlockingQueue<CallbackEvent> events = new LinkedBlockingQueue<CallbackEvent>();
+    private final List<CallbackReceiver> receivers = new ArrayList<CallbackReceiver>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (CallbackReceiver receiver : receivers)
+            receiver.close();
+    }
+
+    @Test
+    public void testFormAndJsonCallbacks() throws Exception {
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom(), collecting());
+
+        Assert.assertEquals(200, post(receiver.getCallbackUrl(), FORM,
+                "event=project.status.update&project_id=12&project_status_code=completed&custom=a%20b"));
+        CallbackEvent event = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertEquals("project.status.update", event.getEvent());
+        Assert.assertEquals(12, event.getProjectId());
+        Assert.assertEquals("completed", event.getStatusCode());
+        Assert.assertEquals("a b", event.getParam("custom"));
+
+        Assert.assertEquals(200, post(receiver.getCallbackUrl(), "application/json; charset=utf-8",
+                "{\"event\":\"project.resources.new\",\"project_id\":13,\"resource_uuid\":\"rsc-1\",\"extra\":null}"));
+        event = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertEquals("project.resources.new", event.getEvent());
+        Assert.assertEquals(13, event.getProjectId());
+        Assert.assertEquals("rsc-1", event.getResourceUuid());
+        Assert.assertFalse(event.getParams().containsKey("extra"));
+    }
+
+    @Test
+    public void testCallbackUrl() throws Exception {
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom().setPath("/hooks/oht"), collecting());
+        Assert.assertEquals("http://127.0.0.1:" + receiver.getPort() + "/hooks/oht", receiver.getCallbackUrl());
+
+        receiver = receiver(CallbackReceiver.custom().setPublicUrl("https://example.com/").setSecret("s&t"), collecting());
+        Assert.assertEquals("https://example.com/oht/callback?token=s%26t", receiver.getCallbackUrl());
+    }
+
+    @Test
+    public void testToken() throws Exception {
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom().setSecret("secret"), collecting());
+        String url = "http://127.0.0.1:" + receiver.getPort() + "/oht/callback";
+
+        Assert.assertEquals(403, post(url, FORM, "event=a&project_id=1"));
+        Assert.assertEquals(403, post(url + "?token=wrong", FORM, "event=a&project_id=1"));
+        Assert.assertEquals(403, post(url, FORM, "event=a&project_id=1&token=secret"));
+        Assert.assertEquals(200, post(receiver.getCallbackUrl(), FORM, "event=a&project_id=1"));
+
+        CallbackEvent event = events.poll(5, TimeUnit.SECONDS);
+        Assert.assertEquals("a", event.getEvent());
+        Assert.assertFalse(event.getParams().containsKey("token"));
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testRejectedRequests() throws Exception {
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom(), collecting());
+        String url = receiver.getCallbackUrl();
+
+        HttpURLConnection get = (HttpURLConnection) new URL(url).openConnection();
+        Assert.assertEquals(405, get.getResponseCode());
+        get.disconnect();
+
+        char[] large = new char[64 * 1024 + 1];
+        Arrays.fill(large, 'a');
+        Assert.assertEquals(413, post(url, FORM, "event=" + new String(large)));
+
+        Assert.assertEquals(400, post(url + "?a=%zz", FORM, "event=a"));
+        Assert.assertEquals(400, post(url, FORM, "event=%zz"));
+        Assert.assertEquals(400, post(url, "application/json", "{\"event\":"));
+        Assert.assertEquals(400, post(url, "application/json", "[1, 2]"));
+
+        Assert.assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testEventsOfProjectArriveInOrder() throws Exception {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(100);
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom().setThreads(4), new CallbackReceiver.Listener() {
+            public void onEvent(CallbackEvent event) {
+                received.add(event.getProjectId() + ":" + event.getParam("seq"));
+                done.countDown();
+            }
+        });
+
+        for (int seq = 0; seq < 50; seq++) {
+            for (int project = 1; project <= 2; project++)
+                Assert.assertEquals(200, post(receiver.getCallbackUrl(), FORM, "event=a&project_id=" + project + "&seq=" + seq));
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        for (int project = 1; project <= 2; project++) {
+            List<String> ofProject = new ArrayList<String>();
+            for (String event : received) {
+                if (event.startsWith(project + ":"))
+                    ofProject.add(event);
+            }
+
+            Assert.assertEquals(50, ofProject.size());
+            for (int seq = 0; seq < 50; seq++)
+                Assert.assertEquals(project + ":" + seq, ofProject.get(seq));
+        }
+    }
+
+    @Test
+    public void testFullQueueAnswers503() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom().setThreads(1).setQueueCapacity(1), new CallbackReceiver.Listener() {
+            public void onEvent(CallbackEvent event) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                events.add(event);
+            }
+        });
+        String url = receiver.getCallbackUrl();
+
+        // the first event blocks the only dispatch thread, the second fills its queue
+        Assert.assertEquals(200, post(url, FORM, "event=a&project_id=1"));
+        Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(200, post(url, FORM, "event=b&project_id=1"));
+        Assert.assertEquals(503, post(url, FORM, "event=c&project_id=1"));
+
+        release.countDown();
+        Assert.assertEquals("a", events.poll(5, TimeUnit.SECONDS).getEvent());
+        Assert.assertEquals("b", events.poll(5, TimeUnit.SECONDS).getEvent());
+
+        // delivered again once there is room
+        Assert.assertEquals(200, post(url, FORM, "event=c&project_id=1"));
+        Assert.assertEquals("c", events.poll(5, TimeUnit.SECONDS).getEvent());
+    }
+
+    @Test
+    public void testThrowingListenerKeepsDispatching() throws Exception {
+        CallbackReceiver receiver = receiver(CallbackReceiver.custom().setThreads(1), new CallbackReceiver.Listener() {
+            public void onEvent(CallbackEvent event) {
+                if (event.getEvent().equals("fail"))
+                    throw new IllegalStateException("listener failure");
+                events.add(event);
+            }
+        });
+
+        Assert.assertEquals(200, post(receiver.getCallbackUrl(), FORM, "event=fail&project_id=1"));
+        Assert.assertEquals(200, post(receiver.getCallbackUrl(), FORM, "event=next&project_id=1"));
+        Assert.assertEquals("next", events.poll(5, TimeUnit.SECONDS).getEvent());
+    }
+
+    private CallbackReceiver receiver(CallbackReceiver.Builder builder, CallbackReceiver.Listener listener) throws Exception {
+        CallbackReceiver receiver = builder.setPort(0).setListener(listener).build();
+        receivers.add(receiver);
+        return receiver;
+    }
+
+    private CallbackReceiver.Listener collecting() {
+        return new CallbackReceiver.Listener() {
+            public void onEvent(CallbackEvent event) {
+                events.add(event);
+            }
+        };
+    }
+
+    private static int post(String url, String contentType, String body) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            OutputStream output = connection.getOutputStream();
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+            output.close();
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import com.oht.CircuitBreaker;
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import org.junit.*;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shares one {@link CircuitBreaker CircuitBreaker} between an API talking to an {@link OHTSimulator OHTSimulator}
+ * that fails every request with HTTP 500 and one talking to a healthy simulator, so the breaker can be opened
+ * and closed again
+ */
+public class CircuitBreakerTest extends SimulatorFixture {
+
+    private static final long OPEN_MILLIS = 200;
+
+    private OHTSimulator failing;
+    private OHTAPI failingApi;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        breaker = CircuitBreaker.custom().setFailureThreshold(2).setOpenMillis(OPEN_MILLIS).build();
+        api.setCircuitBreaker(breaker);
+
+        failing = simulator(OHTSimulator.custom().setErrorRate(1));
+        failingApi = api(failing);
+        failingApi.setCircuitBreaker(breaker);
+    }
+
+    @Test
+    public void testOpensAndFailsFast() throws Exception {
+        open();
+
+        long requests = failing.getRequestCount() + simulator.getRequestCount();
+        assertFailsFast(failingApi);
+        assertFailsFast(api);
+        try {
+            new OHTAsyncAPI(api).getSupportedLanguages().get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertEquals(-1, ((OHTException) ex.getCause()).getStatusCode());
+        }
+        Assert.assertEquals(requests, failing.getRequestCount() + simulator.getRequestCount());
+    }
+
+    @Test
+    public void testSuccessfulTrialCloses() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        api.getSupportedLanguages();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedTrialReopens() throws Exception {
+        open();
+        Thread.sleep(OPEN_MILLIS + 50);
+
+        try {
+            failingApi.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(500, ex.getHttpStatus());
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFailsFast(api);
+    }
+
+    @Test
+    public void testApiErrorsCountAsSuccess() throws Exception {
+        fail();
+        try {
+            api.getResource("unknown", null, null);
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(404, ex.getStatusCode());
+        }
+        fail();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void open() {
+        fail();
+        fail();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void fail() {
+        try {
+            failingApi.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(500, ex.getHttpStatus());
+        }
+    }
+
+    private static void assertFailsFast(OHTAPI api) {
+        try {
+            api.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+    }
+}
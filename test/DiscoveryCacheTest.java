@@ -0,0 +1,157 @@
+import com.oht.DiscoveryCache;
+import com.oht.OHTAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.entities.Language;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs an {@link OHTAPI OHTAPI} with a {@link DiscoveryCache DiscoveryCache} against an
+ * {@link OHTSimulator OHTSimulator}, counting the discovery calls that reach it
+ */
+public class DiscoveryCacheTest extends SimulatorFixture {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshotFile;
+
+    @Override
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder.setLatency(OHTSimulator.Latency.fixed(50));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        snapshotFile = new File(folder.getRoot(), "discovery.json");
+    }
+
+    @Test
+    public void testTtl() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().setTtlMillis(300).setRefreshAhead(1).build());
+
+        long requests = simulator.getRequestCount();
+        Collection<Language> languages = api.getSupportedLanguages();
+        Assert.assertSame(languages, api.getSupportedLanguages());
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        Thread.sleep(400);
+        Assert.assertNotSame(languages, api.getSupportedLanguages());
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+
+        // entries are cached per key
+        api.getSupportedExpertises("en-us", "fr-fr");
+        api.getSupportedExpertises("en-us", "fr-fr");
+        api.getSupportedExpertises("en-us", "de-de");
+        Assert.assertEquals(requests + 4, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().setTtlMillis(2000).setRefreshAhead(0.1).build());
+
+        long requests = simulator.getRequestCount();
+        Collection<Language> languages = api.getSupportedLanguages();
+        Thread.sleep(300);
+
+        // served from the cache right away, while it is reloaded in the background
+        Assert.assertSame(languages, api.getSupportedLanguages());
+        Collection<Language> refreshed = awaitChange(languages);
+        Assert.assertEquals(new ArrayList<Language>(languages), new ArrayList<Language>(refreshed));
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneCall() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().build());
+
+        long requests = simulator.getRequestCount();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Collection<Language>>> futures = new ArrayList<Future<Collection<Language>>>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(new Callable<Collection<Language>>() {
+                    public Collection<Language> call() throws Exception {
+                        return api.getSupportedLanguages();
+                    }
+                }));
+            }
+
+            Collection<Language> languages = futures.get(0).get();
+            for (Future<Collection<Language>> future : futures)
+                Assert.assertSame(languages, future.get());
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testSnapshotRestore() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().setSnapshotFile(snapshotFile).build());
+        Collection<Language> languages = api.getSupportedLanguages();
+        awaitSnapshot();
+
+        // restored entries are served without a call, even while the service fails
+        OHTAPI failingApi = api(simulator(OHTSimulator.custom().setErrorRate(1)));
+        failingApi.setDiscoveryCache(DiscoveryCache.custom().setSnapshotFile(snapshotFile).build());
+        Assert.assertEquals(new ArrayList<Language>(languages), new ArrayList<Language>(failingApi.getSupportedLanguages()));
+        Assert.assertEquals(new ArrayList<Language>(languages), new ArrayList<Language>(failingApi.getSupportedLanguages()));
+
+        // and refreshed in the background
+        OHTSimulator other = simulator(OHTSimulator.custom());
+        OHTAPI otherApi = api(other);
+        otherApi.setDiscoveryCache(DiscoveryCache.custom().setSnapshotFile(snapshotFile).build());
+        Assert.assertEquals(new ArrayList<Language>(languages), new ArrayList<Language>(otherApi.getSupportedLanguages()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (0 == other.getRequestCount() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertEquals(1, other.getRequestCount());
+    }
+
+    @Test
+    public void testRestoredEntriesExpire() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().setSnapshotFile(snapshotFile).build());
+        api.getSupportedLanguages();
+        awaitSnapshot();
+        Thread.sleep(400);
+
+        OHTAPI failingApi = api(simulator(OHTSimulator.custom().setErrorRate(1)));
+        failingApi.setDiscoveryCache(DiscoveryCache.custom().setTtlMillis(100).setMaxStaleMillis(300)
+                .setSnapshotFile(snapshotFile).build());
+        try {
+            failingApi.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(500, ex.getHttpStatus());
+        }
+    }
+
+    private Collection<Language> awaitChange(Collection<Language> languages) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        Collection<Language> current = api.getSupportedLanguages();
+        while (current == languages && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            current = api.getSupportedLanguages();
+        }
+        Assert.assertNotSame(languages, current);
+        return current;
+    }
+
+    private void awaitSnapshot() throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!snapshotFile.isFile() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(snapshotFile.isFile());
+    }
+}
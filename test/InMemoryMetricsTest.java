@@ -0,0 +1,126 @@
+import com.oht.InMemoryMetrics;
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTClientConfig;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import org.junit.*;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds {@link InMemoryMetrics InMemoryMetrics} known measurements, and records the calls of an
+ * {@link OHTAPI OHTAPI} talking to an {@link OHTSimulator OHTSimulator}
+ */
+public class InMemoryMetricsTest {
+
+    private static final String ENDPOINT = "/projects/{id}";
+
+    @Test
+    public void testCountsErrorsAndBytes() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.onRequest("GET", ENDPOINT, millis(10), -1, -1, 100, null);
+        metrics.onRequest("GET", ENDPOINT, millis(20), -1, 0, 50, new OHTException(404, "not found", null));
+        metrics.onRequest("GET", ENDPOINT, millis(30), -1, 0, 50, new OHTException(404, "not found", null));
+        metrics.onRequest("POST", ENDPOINT, millis(40), -1, 300, 10, new OHTException(-1, "failed", null));
+
+        SortedMap<String, InMemoryMetrics.Snapshot> snapshot = metrics.snapshot();
+        Assert.assertEquals(2, snapshot.size());
+
+        InMemoryMetrics.Snapshot get = snapshot.get("GET " + ENDPOINT);
+        Assert.assertEquals(3, get.getCount());
+        Assert.assertEquals(2, get.getErrorCount());
+        Assert.assertEquals(Long.valueOf(2), get.getErrors().get(404));
+        Assert.assertEquals(0, get.getRequestBytes());
+        Assert.assertEquals(200, get.getResponseBytes());
+
+        InMemoryMetrics.Snapshot post = snapshot.get("POST " + ENDPOINT);
+        Assert.assertEquals(1, post.getCount());
+        Assert.assertEquals(Long.valueOf(1), post.getErrors().get(-1));
+        Assert.assertEquals(300, post.getRequestBytes());
+    }
+
+    @Test
+    public void testLatencyPercentiles() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        for (int i = 1; i <= 100; i++)
+            metrics.onRequest("GET", ENDPOINT, millis(i), -1, -1, 0, null);
+
+        InMemoryMetrics.Snapshot snapshot = metrics.snapshot().get("GET " + ENDPOINT);
+        assertWithin(50, snapshot.getLatencyMillis(50));
+        assertWithin(90, snapshot.getLatencyMillis(90));
+        assertWithin(99, snapshot.getLatencyMillis(99));
+        Assert.assertEquals(100, snapshot.getLatencyMillis(100), 0.001);
+        Assert.assertEquals(100, snapshot.getMaxLatencyMillis(), 0.001);
+        Assert.assertEquals(50.5, snapshot.getMeanLatencyMillis(), 0.001);
+        Assert.assertTrue(snapshot.getLatencyMillis(50) <= snapshot.getLatencyMillis(99));
+    }
+
+    @Test
+    public void testLeaseWaitOnlyWhereMeasured() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.onRequest("GET", ENDPOINT, millis(5), -1, -1, 0, null);
+        metrics.onRequest("GET", ENDPOINT, millis(5), -1, -1, 0, null);
+        Assert.assertEquals(0, metrics.snapshot().get("GET " + ENDPOINT).getLeaseWaitMillis(99), 0);
+
+        metrics.onRequest("GET", ENDPOINT, millis(5), millis(8), -1, 0, null);
+        assertWithin(8, metrics.snapshot().get("GET " + ENDPOINT).getLeaseWaitMillis(50));
+    }
+
+    @Test
+    public void testSnapshotIsDetachedAndResetClears() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.onRequest("GET", ENDPOINT, millis(1), -1, -1, 0, null);
+        InMemoryMetrics.Snapshot before = metrics.snapshot().get("GET " + ENDPOINT);
+
+        metrics.onRequest("GET", ENDPOINT, millis(1000), -1, -1, 0, null);
+        Assert.assertEquals(1, before.getCount());
+        Assert.assertEquals(1, before.getMaxLatencyMillis(), 0.001);
+
+        metrics.reset();
+        Assert.assertTrue(metrics.snapshot().isEmpty());
+    }
+
+    @Test
+    public void testRecordsApiCalls() throws Exception {
+        OHTSimulator simulator = OHTSimulator.custom().build();
+        OHTAPI api = new OHTAPI("secret", "public", false, OHTClientConfig.custom().setBaseUrl(simulator.getBaseUrl()).build());
+        try {
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            api.setMetricsListener(metrics);
+
+            String resource = api.uploadTextResource("one two");
+            api.getResource(resource, null, null);
+            new OHTAsyncAPI(api).getResource(resource, null, null).get();
+            try {
+                api.getResource("unknown", null, null);
+                Assert.fail("expected an OHTException");
+            } catch (OHTException ex) {
+                Assert.assertEquals(404, ex.getStatusCode());
+            }
+
+            SortedMap<String, InMemoryMetrics.Snapshot> snapshot = metrics.snapshot();
+            Assert.assertEquals(1, snapshot.get("POST /resources/text").getCount());
+            Assert.assertTrue(snapshot.get("POST /resources/text").getRequestBytes() > 0);
+
+            InMemoryMetrics.Snapshot get = snapshot.get("GET /resources/{uuid}");
+            Assert.assertEquals(3, get.getCount());
+            Assert.assertEquals(Long.valueOf(1), get.getErrors().get(404));
+            Assert.assertTrue(get.getResponseBytes() > 0);
+        } finally {
+            api.close();
+            simulator.close();
+        }
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    // histogram buckets are accurate to about 20%
+    private static void assertWithin(double expected, double actual) {
+        Assert.assertTrue("expected about " + expected + ", got " + actual,
+                actual >= expected * 0.8 && actual <= expected * 1.25);
+    }
+}
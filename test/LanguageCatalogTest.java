@@ -0,0 +1,122 @@
+import com.google.gson.JsonObject;
+import com.oht.LanguageCatalog;
+import com.oht.OHTException;
+import com.oht.entities.Expertise;
+import com.oht.entities.Language;
+import org.junit.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads a {@link LanguageCatalog LanguageCatalog} from an {@link com.oht.OHTSimulator OHTSimulator}, which supports
+ * English to and from eight languages and the same four expertises for every pair
+ */
+public class LanguageCatalogTest extends SimulatorFixture {
+
+    @Test
+    public void testLanguages() throws Exception {
+        LanguageCatalog catalog = LanguageCatalog.load(api);
+
+        Assert.assertEquals(8, catalog.getLanguages().size());
+        Assert.assertTrue(catalog.isSupportedLanguage("fr-fr"));
+        Assert.assertFalse(catalog.isSupportedLanguage("xx-xx"));
+        Assert.assertEquals("fr-fr", catalog.getLanguage("fr-fr").getCode());
+        Assert.assertEquals("French (France)", catalog.getLanguage("fr-fr").getName());
+        Assert.assertNull(catalog.getLanguage("xx-xx"));
+    }
+
+    @Test
+    public void testPairs() throws Exception {
+        LanguageCatalog catalog = LanguageCatalog.load(api);
+
+        Assert.assertTrue(catalog.isSupportedPair("en-us", "fr-fr"));
+        Assert.assertTrue(catalog.isSupportedPair("fr-fr", "en-us"));
+        Assert.assertFalse(catalog.isSupportedPair("fr-fr", "de-de"));
+        Assert.assertFalse(catalog.isSupportedPair("xx-xx", "en-us"));
+        Assert.assertEquals("high", catalog.getAvailability("en-us", "fr-fr"));
+        Assert.assertNull(catalog.getAvailability("fr-fr", "de-de"));
+
+        catalog.validate("en-us", "fr-fr", null);
+        catalog.validate("fr-fr", null, null);
+        catalog.validate(null, "xx-xx", null);
+        assertRejected(catalog, "xx-xx", null, null);
+        assertRejected(catalog, "fr-fr", "de-de", null);
+    }
+
+    @Test
+    public void testExpertises() throws Exception {
+        LanguageCatalog catalog = LanguageCatalog.load(api);
+        Assert.assertFalse(catalog.hasExpertises());
+        Assert.assertTrue(catalog.isSupportedExpertise("en-us", "fr-fr", "unknown"));
+
+        catalog = LanguageCatalog.load(api, true);
+        Assert.assertTrue(catalog.hasExpertises());
+        Assert.assertTrue(catalog.isSupportedExpertise("en-us", "fr-fr", "legal-patent"));
+        Assert.assertFalse(catalog.isSupportedExpertise("en-us", "fr-fr", "unknown"));
+        Assert.assertFalse(catalog.isSupportedExpertise("fr-fr", "de-de", "legal-patent"));
+
+        catalog.validate("en-us", "fr-fr", "legal-patent");
+        catalog.validate("en-us", "fr-fr", "");
+        assertRejected(catalog, "en-us", "fr-fr", "unknown");
+    }
+
+    @Test
+    public void testRequestsAreValidatedLocally() throws Exception {
+        api.setLanguageCatalog(LanguageCatalog.load(api));
+        String resource = api.uploadTextResource("one two three");
+
+        long requests = simulator.getRequestCount();
+        try {
+            api.getQuote(new String[]{resource}, 0, "fr-fr", "de-de", null, null, null, null);
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+        Assert.assertEquals(requests, simulator.getRequestCount());
+
+        Assert.assertEquals(3, api.getQuote(new String[]{resource}, 0, "en-us", "fr-fr", null, null, null, null).getTotalWordCount());
+    }
+
+    @Test
+    public void testEqualityByCode() throws Exception {
+        Language french = new Language(json("code", "fr-fr", "name", "French"));
+        Language renamed = new Language(json("code", "fr-fr", "name", "Fran\u00e7ais"));
+        Assert.assertEquals(french, renamed);
+        Assert.assertEquals(french.hashCode(), renamed.hashCode());
+        Assert.assertFalse(french.equals(new Language(json("code", "de-de", "name", "French"))));
+        Assert.assertEquals(new Language(), new Language());
+
+        Set<Language> languages = new HashSet<Language>(api.getSupportedLanguages());
+        Assert.assertTrue(languages.contains(renamed));
+        Assert.assertEquals(languages.size(), new HashSet<Language>(api.getSupportedLanguages()).size());
+
+        JsonObject patent = json("code", "legal-patent", "name", "Legal: Patent");
+        patent.addProperty("expertise_id", 7);
+        JsonObject renamedPatent = json("code", "legal-patent", "name", "Patents");
+        renamedPatent.addProperty("expertise_id", 8);
+        Expertise expertise = new Expertise(patent);
+        Assert.assertEquals(expertise, new Expertise(renamedPatent));
+        Assert.assertEquals(expertise.hashCode(), new Expertise(renamedPatent).hashCode());
+        Assert.assertTrue(new HashSet<Expertise>(api.getSupportedExpertises("en-us", "fr-fr")).contains(expertise));
+
+        patent.addProperty("code", "it-technical");
+        Assert.assertFalse(expertise.equals(new Expertise(patent)));
+    }
+
+    private static void assertRejected(LanguageCatalog catalog, String source, String target, String expertise) {
+        try {
+            catalog.validate(source, target, expertise);
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+    }
+
+    private static JsonObject json(String... properties) {
+        JsonObject json = new JsonObject();
+        for (int i = 0; i < properties.length; i += 2)
+            json.addProperty(properties[i], properties[i + 1]);
+        return json;
+    }
+}
@@ -0,0 +1,217 @@
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTClientConfig;
+import com.oht.entities.Comment;
+import com.oht.entities.ProjectDetails;
+import com.oht.entities.Rating;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares one {@link OHTAPI OHTAPI} between many threads against a local stub server and checks that
+ * every response is decoded intact, arrives at the caller that asked for it and returns its connection
+ */
+public class OHTAPIConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int CALLS_PER_THREAD = 150;
+    private static final int ASYNC_CALLS = 1000;
+    private static final int COMMENTS = 20;
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2015, 1, 1, 0, 0, 0);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private PoolingHttpClientConnectionManager manager;
+    private PoolingNHttpClientConnectionManager asyncManager;
+    private CloseableHttpAsyncClient asyncClient;
+    private OHTAPI api;
+
+    @Before
+    public void setUp() throws Exception {
+        serverExecutor = Executors.newFixedThreadPool(THREADS);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/2/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream input = exchange.getRequestBody();
+                while (input.read() != -1) {
+                }
+
+                byte[] body = respond(exchange.getRequestURI().getPath()).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream output = exchange.getResponseBody();
+                output.write(body);
+                output.close();
+            }
+        });
+        server.start();
+
+        manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(THREADS);
+        manager.setDefaultMaxPerRoute(THREADS);
+        asyncManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+        asyncManager.setMaxTotal(THREADS);
+        asyncManager.setDefaultMaxPerRoute(THREADS);
+        asyncClient = HttpAsyncClients.custom().setConnectionManager(asyncManager).build();
+
+        api = new OHTAPI("secret", "public", false, OHTClientConfig.custom()
+                .setBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/api/2")
+                .setHttpClient(HttpClients.custom().setConnectionManager(manager).build())
+                .setAsyncClient(asyncClient)
+                .build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        api.close();
+        asyncClient.close();
+        manager.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test(timeout = 120000)
+    public void testSharedInstance() throws Exception {
+        final AtomicInteger completed = new AtomicInteger();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                            int projectId = thread * CALLS_PER_THREAD + i;
+                            switch (i % 3) {
+                                case 0:
+                                    checkComments(projectId, api.getProjectComments(projectId));
+                                    break;
+                                case 1:
+                                    checkRatings(projectId, api.retrieveProjectRatings(projectId));
+                                    break;
+                                default:
+                                    Assert.assertEquals(projectId, api.getProjectDetails(projectId).getProjectId());
+                            }
+                            completed.incrementAndGet();
+                        }
+                    } catch (Throwable ex) {
+                        failures.add(ex);
+                    }
+                }
+            });
+            worker.start();
+            threads.add(worker);
+        }
+
+        for (Thread worker : threads)
+            worker.join();
+
+        if (!failures.isEmpty())
+            throw new AssertionError("failed calls: " + failures.size() + ", first: " + failures.get(0), failures.get(0));
+        Assert.assertEquals(THREADS * CALLS_PER_THREAD, completed.get());
+        Assert.assertEquals(0, manager.getTotalStats().getLeased());
+    }
+
+    @Test(timeout = 120000)
+    public void testSharedAsyncInstance() throws Exception {
+        OHTAsyncAPI async = new OHTAsyncAPI(api);
+        List<CompletableFuture<Collection<Comment>>> comments = new ArrayList<CompletableFuture<Collection<Comment>>>();
+        List<CompletableFuture<ProjectDetails>> details = new ArrayList<CompletableFuture<ProjectDetails>>();
+        for (int projectId = 0; projectId < ASYNC_CALLS; projectId++) {
+            comments.add(async.getProjectComments(projectId));
+            details.add(async.getProjectDetails(projectId));
+        }
+
+        for (int projectId = 0; projectId < ASYNC_CALLS; projectId++) {
+            checkComments(projectId, comments.get(projectId).get(60, TimeUnit.SECONDS));
+            Assert.assertEquals(projectId, details.get(projectId).get(60, TimeUnit.SECONDS).getProjectId());
+        }
+
+        // the connection goes back to the pool right after the future completes
+        long deadline = System.currentTimeMillis() + 5000;
+        while (asyncManager.getTotalStats().getLeased() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertEquals(0, asyncManager.getTotalStats().getLeased());
+    }
+
+    private static void checkComments(int projectId, Collection<Comment> comments) {
+        Assert.assertEquals(COMMENTS, comments.size());
+        for (Comment comment : comments) {
+            int index = comment.getId() - projectId * COMMENTS;
+            Assert.assertEquals("comment " + comment.getId(), "comment " + index + " of " + projectId, comment.getContent());
+            Assert.assertEquals("comment " + comment.getId(), expectedDate(projectId, index), comment.getDate());
+        }
+    }
+
+    private static void checkRatings(int projectId, Collection<Rating> ratings) {
+        Assert.assertEquals(COMMENTS, ratings.size());
+        for (Rating rating : ratings) {
+            int index = Integer.parseInt(rating.getRemarks());
+            Assert.assertEquals("rating " + index + " of " + projectId, expectedDate(projectId, index), rating.getDate());
+        }
+    }
+
+    // a different timestamp for every element, spread over years so that every field has to be right
+    private static LocalDateTime timestamp(int projectId, int index) {
+        return EPOCH.plusSeconds(projectId * 7919L + index * 86413L);
+    }
+
+    private static Date expectedDate(int projectId, int index) {
+        return Date.from(timestamp(projectId, index).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static String respond(String path) {
+        String[] segments = path.substring("/api/2/".length()).split("/");
+        int projectId = Integer.parseInt(segments[1]);
+        StringBuilder results = new StringBuilder();
+
+        if (segments.length == 2) {
+            results.append("{\"project_id\":").append(projectId).append(",\"project_status_code\":\"pending\"}");
+        } else {
+            boolean comments = segments[2].equals("comments");
+            results.append('[');
+            for (int i = 0; i < COMMENTS; i++) {
+                if (i > 0)
+                    results.append(',');
+                String date = timestamp(projectId, i).format(FORMAT);
+                if (comments)
+                    results.append("{\"id\":").append(projectId * COMMENTS + i)
+                            .append(",\"commenter_name\":\"user\",\"commenter_role\":\"admin\",\"comment_content\":\"comment ")
+                            .append(i).append(" of ").append(projectId).append("\",\"date\":\"").append(date).append("\"}");
+                else
+                    results.append("{\"type\":\"customer\",\"rate\":").append(1 + i % 10)
+                            .append(",\"remarks\":\"").append(i).append("\",\"date\":\"").append(date).append("\"}");
+            }
+            results.append(']');
+        }
+
+        return "{\"status\":{\"code\":0,\"msg\":\"ok\"},\"errors\":[],\"results\":" + results + "}";
+    }
+}
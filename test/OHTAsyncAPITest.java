@@ -0,0 +1,222 @@
+import com.oht.DiscoveryCache;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.ProgressListener;
+import com.oht.TranslationMemory;
+import com.oht.WordCountCache;
+import com.oht.entities.Language;
+import com.oht.entities.Project;
+import com.oht.entities.ProjectDetails;
+import com.oht.entities.Quote;
+import com.oht.entities.WordCount;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link OHTAsyncAPI OHTAsyncAPI} against {@link OHTSimulator OHTSimulator}s: one that answers like the service,
+ * to check that async calls send the same requests as their sync counterparts, and one that fails every request
+ * with HTTP 500, to check that error pages are reported as failures instead of being saved as resources
+ */
+public class OHTAsyncAPITest extends SimulatorFixture {
+
+    private static final String PREVIOUS = "previous content";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OHTAsyncAPI asyncApi;
+    private OHTAsyncAPI failingAsyncApi;
+
+    @Before
+    public void setUp() throws Exception {
+        asyncApi = new OHTAsyncAPI(api);
+        failingAsyncApi = new OHTAsyncAPI(api(simulator(OHTSimulator.custom().setErrorRate(1))));
+    }
+
+    @Test
+    public void testAsyncMatchesSync() throws Exception {
+        String resource = asyncApi.uploadTextResource("one two three four").get();
+        String file = api.uploadFileResource("doc.txt", "text/plain", null, "five six seven");
+
+        Assert.assertEquals(7, asyncApi.getWordCount(new String[]{resource, file}).get().getTotalWordCount());
+
+        Quote quote = api.getQuote(new String[]{resource}, 0, "en-us", "fr-fr", null, null, null, "EUR");
+        Quote asyncQuote = asyncApi.getQuote(new String[]{resource}, 0, "en-us", "fr-fr", null, null, null, "EUR").get();
+        Assert.assertEquals(quote.getTotalWordCount(), asyncQuote.getTotalWordCount());
+        Assert.assertEquals(quote.getTotalPrice(), asyncQuote.getTotalPrice(), 0);
+        Assert.assertEquals("EUR", asyncQuote.getCurrency());
+
+        Project project = asyncApi.createTranslationProject("en-us", "fr-fr", new String[]{resource, file}, null,
+                "notes", null, null, "async", null, null).get();
+        ProjectDetails details = api.getProjectDetails(project.getProjectId());
+        Assert.assertEquals("en-us", details.getSourceLanguage());
+        Assert.assertEquals("fr-fr", details.getTargetLanguage());
+        Assert.assertEquals(2, details.getSources().size());
+        Assert.assertEquals(7, asyncApi.getProjectDetails(project.getProjectId()).get().getWordCount());
+
+        asyncApi.postProjectComment(project.getProjectId(), "comment").get();
+        Assert.assertEquals(1, api.getProjectComments(project.getProjectId()).size());
+
+        try {
+            asyncApi.getQuote(new String[]{resource}, 0, "en-us", "xx-xx", null, null, null, null).get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof OHTException);
+        }
+    }
+
+    @Test
+    public void testStreamUpload() throws Exception {
+        // larger than the buffer of the async producer, so the body has to be streamed in several rounds
+        byte[] content = new byte[1024 * 1024 + 17];
+        for (int i = 0; i < content.length; i++)
+            content[i] = (byte) ('a' + i % 26);
+
+        final AtomicLong transferred = new AtomicLong();
+        String resource = asyncApi.uploadFileResource("big.txt", "text/plain; charset=utf-8", new ByteArrayInputStream(content),
+                new ProgressListener() {
+                    public void onProgress(long bytes, long total) {
+                        transferred.set(bytes);
+                    }
+                }).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(content.length, transferred.get());
+
+        ByteArrayOutputStream downloaded = new ByteArrayOutputStream();
+        api.downloadResource(resource, null, downloaded);
+        Assert.assertArrayEquals(content, downloaded.toByteArray());
+
+        try {
+            asyncApi.uploadFileResource("big.txt", "text/plain; charset=no-such-charset", new ByteArrayInputStream(content), null).get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof OHTException);
+        }
+    }
+
+    @Test
+    public void testDiscoveryIsCached() throws Exception {
+        api.setDiscoveryCache(DiscoveryCache.custom().build());
+        long requests = simulator.getRequestCount();
+
+        List<CompletableFuture<Collection<Language>>> concurrent = new ArrayList<CompletableFuture<Collection<Language>>>();
+        for (int i = 0; i < 10; i++)
+            concurrent.add(asyncApi.getSupportedLanguages());
+        for (CompletableFuture<Collection<Language>> languages : concurrent)
+            Assert.assertFalse(languages.get().isEmpty());
+
+        Assert.assertEquals(api.getSupportedLanguages().size(), asyncApi.getSupportedLanguages().get().size());
+        asyncApi.getSupportedLanguagePairs().get();
+        api.getSupportedLanguagePairs();
+        asyncApi.getSupportedExpertises("en-us", "fr-fr").get();
+        api.getSupportedExpertises("en-us", "fr-fr");
+
+        Assert.assertEquals(requests + 3, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testWordCountIsCached() throws Exception {
+        api.setWordCountCache(WordCountCache.custom().build());
+        String one = api.uploadTextResource("one");
+        String two = api.uploadTextResource("one two");
+        String three = api.uploadTextResource("one two three");
+        long requests = simulator.getRequestCount();
+
+        Assert.assertEquals(3, asyncApi.getWordCount(new String[]{one, two}).get().getTotalWordCount());
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        // only the resource not counted yet is asked for, and sync calls share the counts
+        WordCount wordCount = asyncApi.getWordCount(new String[]{one, two, three}).get();
+        Assert.assertEquals(6, wordCount.getTotalWordCount());
+        Assert.assertEquals(Integer.valueOf(3), wordCount.getResources().get(three));
+        Assert.assertEquals(4, api.getWordCount(new String[]{one, three}).getTotalWordCount());
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+
+        String four = api.uploadTextResource("one two three four");
+        requests = simulator.getRequestCount();
+        List<CompletableFuture<WordCount>> concurrent = new ArrayList<CompletableFuture<WordCount>>();
+        for (int i = 0; i < 10; i++)
+            concurrent.add(asyncApi.getWordCount(new String[]{four}));
+        for (CompletableFuture<WordCount> count : concurrent)
+            Assert.assertEquals(4, count.get().getTotalWordCount());
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        try {
+            asyncApi.getWordCount(new String[]{one, "unknown"}).get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof OHTException);
+        }
+    }
+
+    @Test
+    public void testMachineTranslationUsesTranslationMemory() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(folder.getRoot().toPath().resolve("memory.bin")).build();
+        try {
+            api.setTranslationMemory(memory);
+            memory.put("en-us", "fr-fr", "hello", "bonjour");
+            long requests = simulator.getRequestCount();
+
+            Assert.assertEquals("bonjour", asyncApi.machineTranslation("en-us", "fr-fr", "hello").get());
+            Assert.assertEquals(requests, simulator.getRequestCount());
+
+            // new translations are stored for sync and async calls alike
+            String translated = asyncApi.machineTranslation("en-us", "de-de", "hello").get();
+            Assert.assertEquals(requests + 1, simulator.getRequestCount());
+            Assert.assertEquals(translated, memory.get("en-us", "de-de", "hello"));
+            Assert.assertEquals(translated, api.machineTranslation("en-us", "de-de", "hello"));
+            Assert.assertEquals(requests + 1, simulator.getRequestCount());
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void testFileDownloadFailsOnErrorStatus() throws Exception {
+        File file = folder.newFile("resource.txt");
+        Files.write(file.toPath(), PREVIOUS.getBytes(StandardCharsets.UTF_8));
+
+        assertHttpStatus(500, failingAsyncApi.downloadResource("unknown", null, file.getPath()));
+        Assert.assertEquals(PREVIOUS, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testStreamDownloadFailsOnErrorStatus() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        assertHttpStatus(500, failingAsyncApi.downloadResource("unknown", null, target));
+        Assert.assertEquals(0, target.size());
+    }
+
+    @Test
+    public void testChannelDownloadFailsOnErrorStatus() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        assertHttpStatus(500, failingAsyncApi.downloadResource("unknown", null, Channels.newChannel(target)));
+        Assert.assertEquals(0, target.size());
+    }
+
+    private static void assertHttpStatus(int httpStatus, CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(String.valueOf(ex.getCause()), ex.getCause() instanceof OHTException);
+            Assert.assertEquals(httpStatus, ((OHTException) ex.getCause()).getHttpStatus());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import com.oht.CircuitBreaker;
+import com.oht.InMemoryMetrics;
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTClientConfig;
+import com.oht.OHTClientFactory;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.RetryPolicy;
+import com.oht.entities.Language;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves several tenants from one {@link OHTClientFactory OHTClientFactory} against an {@link OHTSimulator OHTSimulator}
+ * answering every request after a fixed delay, so that requests in flight overlap
+ */
+public class OHTClientFactoryTest extends SimulatorFixture {
+
+    private static final long LATENCY_MILLIS = 200;
+
+    private OHTClientFactory factory;
+
+    @Override
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder.setLatency(OHTSimulator.Latency.fixed(LATENCY_MILLIS));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        factory = OHTClientFactory.custom()
+                .setClientConfig(OHTClientConfig.custom().setBaseUrl(simulator.getBaseUrl())
+                        .setMaxConnections(20).setMaxConnectionsPerRoute(20).setConnectionRequestTimeout(100).build())
+                .setMaxConcurrentRequests(2)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        factory.close();
+    }
+
+    @Test
+    public void testInstancesPerTenant() throws Exception {
+        OHTAPI first = factory.getAPI("secret", "first");
+        Assert.assertSame(first, factory.getAPI("secret", "first"));
+        Assert.assertNotSame(first, factory.getAPI("secret", "second"));
+        Assert.assertEquals(Arrays.asList("first", "second"), new ArrayList<String>(factory.getTenants()));
+
+        // a new quota replaces the instance but keeps the tenant's metrics
+        InMemoryMetrics metrics = factory.getMetrics("first");
+        first.getSupportedLanguages();
+        OHTAPI replaced = factory.getAPI("secret", "first", 4);
+        Assert.assertNotSame(first, replaced);
+        Assert.assertSame(metrics, factory.getMetrics("first"));
+        Assert.assertEquals(1, metrics.snapshot().get("GET /discover/languages").getCount());
+        Assert.assertTrue(factory.getMetrics("second").snapshot().isEmpty());
+
+        factory.remove("second");
+        Assert.assertNull(factory.getMetrics("second"));
+    }
+
+    @Test
+    public void testAsyncCallsQueueOnQuota() throws Exception {
+        OHTAsyncAPI busy = new OHTAsyncAPI(factory.getAPI("secret", "busy"));
+        OHTAsyncAPI quiet = new OHTAsyncAPI(factory.getAPI("secret", "quiet"));
+        quiet.getSupportedLanguagePairs().get(10, TimeUnit.SECONDS); // starts the shared client
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Collection<Language>>> futures = new ArrayList<CompletableFuture<Collection<Language>>>();
+        for (int i = 0; i < 6; i++)
+            futures.add(busy.getSupportedLanguages());
+
+        // another tenant is not queued behind the busy one
+        quiet.getSupportedLanguages().get(10, TimeUnit.SECONDS);
+        long quietMillis = (System.nanoTime() - start) / 1000000;
+
+        for (CompletableFuture<Collection<Language>> future : futures)
+            future.get(10, TimeUnit.SECONDS);
+        long busyMillis = (System.nanoTime() - start) / 1000000;
+
+        // three rounds of two requests
+        Assert.assertTrue("took " + busyMillis + " ms", busyMillis >= 3 * LATENCY_MILLIS - 50);
+        Assert.assertTrue("quiet took " + quietMillis + " ms", quietMillis < 2 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void testBlockingCallFailsWhenQuotaExhausted() throws Exception {
+        OHTAPI api = factory.getAPI("secret", "tenant", 1);
+        CompletableFuture<Collection<Language>> inFlight = new OHTAsyncAPI(api).getSupportedLanguages();
+
+        try {
+            api.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+
+        inFlight.get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(api.getSupportedLanguages().isEmpty());
+    }
+
+    @Test
+    public void testQuotaShortageIsNotRecordedByBreaker() throws Exception {
+        OHTAPI api = factory.getAPI("secret", "tenant", 1);
+        CompletableFuture<Collection<Language>> inFlight = new OHTAsyncAPI(api).getSupportedLanguages();
+
+        CircuitBreaker breaker = CircuitBreaker.custom().setFailureThreshold(2).setOpenMillis(60000).build();
+        api.setCircuitBreaker(breaker);
+        OHTAPI failingApi = api(simulator(OHTSimulator.custom().setErrorRate(1)));
+        failingApi.setRetryPolicy(RetryPolicy.NONE);
+        failingApi.setCircuitBreaker(breaker);
+        assertFails(failingApi);
+
+        // the quota runs out before the request is sent, which does not reset the failure count
+        assertFails(api);
+        assertFails(failingApi);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        inFlight.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBlockingCallWaitsWithoutTimeout() throws Exception {
+        // zero means no timeout, as for the connection request timeout of HttpClient
+        OHTClientFactory untimed = OHTClientFactory.custom()
+                .setClientConfig(OHTClientConfig.custom().setBaseUrl(simulator.getBaseUrl()).setConnectionRequestTimeout(0).build())
+                .setMaxConcurrentRequests(1)
+                .build();
+        try {
+            OHTAPI api = untimed.getAPI("secret", "tenant");
+            api.getSupportedLanguagePairs(); // starts the shared client
+            CompletableFuture<Collection<Language>> inFlight = new OHTAsyncAPI(api).getSupportedLanguages();
+
+            long start = System.nanoTime();
+            Assert.assertFalse(api.getSupportedLanguages().isEmpty());
+            long millis = (System.nanoTime() - start) / 1000000;
+
+            Assert.assertTrue(inFlight.isDone());
+            Assert.assertTrue("took " + millis + " ms", millis >= 2 * LATENCY_MILLIS - 50);
+        } finally {
+            untimed.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedFactory() throws Exception {
+        factory.close();
+        factory.getAPI("secret", "late");
+    }
+
+    private static void assertFails(OHTAPI api) {
+        try {
+            api.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.ProjectWatcher;
+import com.oht.entities.ProjectDetails;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches projects of an {@link OHTSimulator OHTSimulator} that moves them to the next status every
+ * {@link #STAGE_MILLIS} milliseconds, with a {@link ProjectWatcher ProjectWatcher} polling several times a stage
+ */
+public class ProjectWatcherTest extends SimulatorFixture {
+
+    private static final long STAGE_MILLIS = 300;
+
+    private final List<ProjectWatcher> watchers = new ArrayList<ProjectWatcher>();
+
+    @Override
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder.setStageMillis(STAGE_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (ProjectWatcher watcher : watchers)
+            watcher.close();
+    }
+
+    @Test
+    public void testStatusChanges() throws Exception {
+        final BlockingQueue<String> changes = new LinkedBlockingQueue<String>();
+        ProjectWatcher watcher = watcher(ProjectWatcher.custom(api).setMaxRequestsPerSecond(100), new ProjectWatcher.Listener() {
+            public void onStatusChange(ProjectDetails details, String previousStatus) {
+                changes.add(previousStatus + ">" + details.getStatusCode());
+            }
+
+            public void onError(int projectId, OHTException error) {
+                changes.add("error");
+            }
+        });
+
+        watcher.watch(createProject());
+        watcher.watch(createProject());
+        Assert.assertEquals(2, watcher.size());
+
+        List<String> received = new ArrayList<String>();
+        for (int i = 0; i < 8; i++)
+            received.add(changes.poll(5, TimeUnit.SECONDS));
+        Collections.sort(received);
+        Assert.assertEquals(Arrays.asList("in_progress>submitted", "in_progress>submitted", "null>pending", "null>pending",
+                "pending>in_progress", "pending>in_progress", "submitted>completed", "submitted>completed"), received);
+
+        // completed projects are dropped, and polls without a change are not reported
+        Assert.assertEquals(0, watcher.size());
+        Assert.assertNull(changes.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPollsAreLimitedAcrossProjects() throws Exception {
+        ProjectWatcher watcher = watcher(ProjectWatcher.custom(api).setMaxRequestsPerSecond(10), new ProjectWatcher.Listener() {
+            public void onStatusChange(ProjectDetails details, String previousStatus) {
+            }
+
+            public void onError(int projectId, OHTException error) {
+            }
+        });
+
+        // every project is due every 10 ms, far more than 10 polls a second
+        long requests = simulator.getRequestCount();
+        for (int projectId = 1; projectId <= 20; projectId++)
+            watcher.watch(projectId);
+        Thread.sleep(1000);
+
+        // 10 polls a second, plus the budget of two ticks that may be spent at once
+        long polls = simulator.getRequestCount() - requests;
+        Assert.assertTrue("polls: " + polls, polls >= 5 && polls <= 13);
+        Assert.assertEquals(20, watcher.size());
+    }
+
+    @Test
+    public void testThrowingListenerKeepsPolling() throws Exception {
+        final BlockingQueue<String> statuses = new LinkedBlockingQueue<String>();
+        final CountDownLatch errors = new CountDownLatch(3);
+        ProjectWatcher watcher = watcher(ProjectWatcher.custom(api).setMaxRequestsPerSecond(100), new ProjectWatcher.Listener() {
+            public void onStatusChange(ProjectDetails details, String previousStatus) {
+                statuses.add(details.getStatusCode());
+                throw new IllegalStateException("listener failure");
+            }
+
+            public void onError(int projectId, OHTException error) {
+                errors.countDown();
+                throw new IllegalStateException("listener failure");
+            }
+        });
+
+        // an unknown project fails every poll
+        watcher.watch(Integer.MAX_VALUE);
+        watcher.watch(createProject());
+
+        Assert.assertEquals("pending", statuses.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals("in_progress", statuses.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals("submitted", statuses.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals("completed", statuses.poll(5, TimeUnit.SECONDS));
+        Assert.assertTrue(errors.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, watcher.size());
+    }
+
+    private ProjectWatcher watcher(ProjectWatcher.Builder builder, ProjectWatcher.Listener listener) {
+        ProjectWatcher watcher = builder.setMinIntervalMillis(10).setMaxIntervalMillis(40).setJitter(0)
+                .setListener(listener).build();
+        watchers.add(watcher);
+        return watcher;
+    }
+
+    private int createProject() throws Exception {
+        String resource = api.uploadTextResource("one two three");
+        return api.createTranslationProject("en-us", "fr-fr", new String[]{resource}, null, null, null, null, null,
+                null, null).getProjectId();
+    }
+}
@@ -0,0 +1,112 @@
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTSimulator;
+import com.oht.QuoteMatrix;
+import com.oht.entities.Quote;
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prices tables with {@link QuoteMatrix QuoteMatrix} against an {@link OHTSimulator OHTSimulator}
+ */
+public class QuoteMatrixTest extends SimulatorFixture {
+
+    private static final List<String> TARGETS = Arrays.asList("fr-fr", "de-de", "xx-xx");
+    private static final List<String> CURRENCIES = Arrays.asList("EUR", "USD");
+
+    private String[] resources;
+
+    @Before
+    public void setUp() throws Exception {
+        resources = new String[]{api.uploadTextResource("one two three four five")};
+    }
+
+    @Test
+    public void testTableMatchesSingleQuotes() throws Exception {
+        QuoteMatrix.Table table = QuoteMatrix.custom(api).setParallelism(2).build()
+                .price(resources, 0, "en-us", TARGETS, null, null, null, CURRENCIES);
+
+        Assert.assertEquals(TARGETS, table.getTargetLanguages());
+        Assert.assertEquals(Collections.singletonList(null), table.getServices());
+        Assert.assertEquals(2, table.getErrorCount());
+
+        for (String currency : CURRENCIES) {
+            for (String target : Arrays.asList("fr-fr", "de-de")) {
+                Quote expected = api.getQuote(resources, 0, "en-us", target, null, null, null, currency);
+                Quote quote = table.get(target, null, null, currency);
+                Assert.assertNotNull(target + " " + currency, quote);
+                Assert.assertNull(table.getError(target, null, null, currency));
+                Assert.assertEquals(currency, quote.getCurrency());
+                Assert.assertEquals(expected.getTotalWordCount(), quote.getTotalWordCount());
+                Assert.assertEquals(expected.getTotalPrice(), quote.getTotalPrice(), 0);
+            }
+
+            // a failed cell does not fail the table
+            Assert.assertNull(table.get("xx-xx", null, null, currency));
+            Assert.assertNotNull(table.getError("xx-xx", null, null, currency));
+        }
+
+        Assert.assertNull(table.get("it-it", null, null, "EUR"));
+        Assert.assertNull(table.getError("it-it", null, null, "EUR"));
+    }
+
+    @Test
+    public void testQuotesAreMemoized() throws Exception {
+        QuoteMatrix matrix = QuoteMatrix.custom(api).build();
+        List<String> targets = Arrays.asList("fr-fr", "de-de");
+
+        matrix.price(resources, 0, "en-us", targets, null, null, null, CURRENCIES);
+        long requests = simulator.getRequestCount();
+        matrix.price(resources, 0, "en-us", targets, null, null, null, CURRENCIES);
+        Assert.assertEquals(requests, simulator.getRequestCount());
+
+        // another cell is requested, the known ones are not
+        matrix.price(resources, 0, "en-us", Arrays.asList("fr-fr", "de-de", "it-it"), null, null, null, CURRENCIES);
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+
+        matrix.invalidate();
+        matrix.price(resources, 0, "en-us", targets, null, null, null, CURRENCIES);
+        Assert.assertEquals(requests + 2 + 4, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testExpiredAndFailedQuotesAreRequestedAgain() throws Exception {
+        OHTAsyncAPI asyncApi = new OHTAsyncAPI(api);
+        asyncApi.getSupportedLanguages().get(); // starts the client, so that the first table is not near expiry
+        QuoteMatrix matrix = QuoteMatrix.custom(asyncApi).setTtlMillis(500).build();
+        List<String> targets = Arrays.asList("fr-fr", "xx-xx");
+        List<String> currencies = Collections.singletonList("EUR");
+
+        matrix.price(resources, 0, "en-us", targets, null, null, null, currencies);
+        long requests = simulator.getRequestCount();
+
+        // the failed cell is not memoized
+        matrix.price(resources, 0, "en-us", targets, null, null, null, currencies);
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+        Thread.sleep(600);
+        matrix.price(resources, 0, "en-us", targets, null, null, null, currencies);
+        Assert.assertEquals(requests + 1 + 2, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedQuotesAreDropped() throws Exception {
+        QuoteMatrix matrix = QuoteMatrix.custom(api).setMaxEntries(2).build();
+        List<String> currencies = Collections.singletonList("EUR");
+
+        long requests = simulator.getRequestCount();
+        matrix.price(resources, 0, "en-us", Arrays.asList("fr-fr", "de-de"), null, null, null, currencies);
+        matrix.price(resources, 0, "en-us", Collections.singletonList("fr-fr"), null, null, null, currencies);
+        Assert.assertEquals(requests + 2, simulator.getRequestCount());
+
+        // drops de-de, which was used last before fr-fr
+        matrix.price(resources, 0, "en-us", Collections.singletonList("it-it"), null, null, null, currencies);
+        matrix.price(resources, 0, "en-us", Collections.singletonList("fr-fr"), null, null, null, currencies);
+        Assert.assertEquals(requests + 3, simulator.getRequestCount());
+
+        matrix.price(resources, 0, "en-us", Collections.singletonList("de-de"), null, null, null, currencies);
+        Assert.assertEquals(requests + 4, simulator.getRequestCount());
+    }
+}
@@ -0,0 +1,116 @@
+import com.oht.CircuitBreaker;
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.RateLimiter;
+import com.oht.RetryPolicy;
+import org.junit.*;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs calls throttled by a {@link RateLimiter RateLimiter} against an {@link OHTSimulator OHTSimulator}.
+ * Buckets refill at one permit per 1000 seconds, so only the burst is available during a test
+ * and the outcome does not depend on timing
+ */
+public class RateLimiterTest extends SimulatorFixture {
+
+    private static final double NO_REFILL = 0.001;
+
+    @Test
+    public void testBurstThenReject() throws Exception {
+        OHTAPI api = api("public", RateLimiter.custom().setLimit(RateLimiter.Group.DISCOVER, NO_REFILL, 3).setMaxWaitMillis(0).build());
+
+        for (int i = 0; i < 3; i++)
+            api.getSupportedLanguages();
+
+        long requests = simulator.getRequestCount();
+        assertRejected(api);
+        try {
+            new OHTAsyncAPI(api).getSupportedLanguages().get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertEquals(-1, ((OHTException) ex.getCause()).getStatusCode());
+        }
+        Assert.assertEquals(requests, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testGroupsAreIndependent() throws Exception {
+        OHTAPI api = api("public", RateLimiter.custom().setLimit(RateLimiter.Group.DISCOVER, NO_REFILL, 1).setMaxWaitMillis(0).build());
+
+        api.getSupportedLanguages();
+        assertRejected(api);
+
+        // resources have no limit
+        for (int i = 0; i < 5; i++)
+            api.uploadTextResource("text " + i);
+    }
+
+    @Test
+    public void testBudgetIsPerPublicKey() throws Exception {
+        RateLimiter limiter = RateLimiter.custom().setLimit(RateLimiter.Group.DISCOVER, NO_REFILL, 2).setMaxWaitMillis(0).build();
+        OHTAPI first = api("public", limiter);
+        OHTAPI second = api("public", limiter);
+        OHTAPI other = api("other", limiter);
+
+        first.getSupportedLanguages();
+        second.getSupportedLanguages();
+        assertRejected(first);
+        assertRejected(second);
+
+        other.getSupportedLanguages();
+    }
+
+    @Test
+    public void testWaitsForPermit() throws Exception {
+        // 10 permits a second: the second request waits about 100 ms
+        OHTAPI api = api("public", RateLimiter.custom().setLimit(RateLimiter.Group.DISCOVER, 10, 1).setMaxWaitMillis(1000).build());
+
+        api.getSupportedLanguages();
+        long start = System.nanoTime();
+        api.getSupportedLanguages();
+        Assert.assertTrue((System.nanoTime() - start) / 1000000 >= 50);
+    }
+
+    @Test
+    public void testOpenBreakerSpendsNoPermit() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.custom().setFailureThreshold(1).setOpenMillis(300).build();
+        OHTAPI failingApi = api(simulator(OHTSimulator.custom().setErrorRate(1)));
+        failingApi.setRetryPolicy(RetryPolicy.NONE);
+        failingApi.setCircuitBreaker(breaker);
+        try {
+            failingApi.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+
+        OHTAPI api = api("public", RateLimiter.custom().setLimit(RateLimiter.Group.DISCOVER, NO_REFILL, 1).setMaxWaitMillis(0).build());
+        api.setCircuitBreaker(breaker);
+        for (int i = 0; i < 3; i++)
+            assertRejected(api);
+
+        // the only permit is still there for the trial call once the breaker lets one through
+        Thread.sleep(400);
+        api.getSupportedLanguages();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertRejected(api);
+    }
+
+    private OHTAPI api(String publicKey, RateLimiter limiter) {
+        OHTAPI api = api(simulator.getBaseUrl(), publicKey);
+        api.setRateLimiter(limiter);
+        return api;
+    }
+
+    private static void assertRejected(OHTAPI api) {
+        try {
+            api.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import com.oht.CircuitBreaker;
+import com.oht.OHTAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.ProgressListener;
+import com.oht.RateLimiter;
+import com.oht.ResourceDownloader;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Runs {@link ResourceDownloader ResourceDownloader} against an {@link OHTSimulator OHTSimulator}, which honours
+ * single byte ranges
+ */
+public class ResourceDownloaderTest extends SimulatorFixture {
+
+    private static final int PART_SIZE = 7000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ResourceDownloader downloader;
+    private byte[] content;
+    private String resource;
+
+    @Before
+    public void setUp() throws Exception {
+        downloader = new ResourceDownloader(api, 4, PART_SIZE);
+
+        // five full parts and a short last one
+        content = new byte[5 * PART_SIZE + 123];
+        for (int i = 0; i < content.length; i++)
+            content[i] = (byte) (i * 31);
+        resource = api.uploadFileResource("data.bin", null, ByteBuffer.wrap(content), null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        downloader.close();
+    }
+
+    @Test
+    public void testDownloadInParts() throws Exception {
+        File target = new File(folder.getRoot(), "data.bin");
+        final AtomicLong progress = new AtomicLong();
+        long requests = simulator.getRequestCount();
+
+        downloader.download(resource, null, target, new ProgressListener() {
+            public void onProgress(long transferred, long total) {
+                progress.accumulateAndGet(transferred, new LongBinaryOperator() {
+                    public long applyAsLong(long left, long right) {
+                        return Math.max(left, right);
+                    }
+                });
+            }
+        });
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        Assert.assertEquals(content.length, progress.get());
+        // the resource length, then one range request per part
+        Assert.assertEquals(requests + 1 + 6, simulator.getRequestCount());
+        Assert.assertFalse(new File(target.getPath() + ".part").exists());
+        Assert.assertFalse(new File(target.getPath() + ".part.state").exists());
+    }
+
+    @Test
+    public void testRangeRequestsAreRateLimited() throws Exception {
+        File target = new File(folder.getRoot(), "data.bin");
+        api.setRateLimiter(RateLimiter.custom().setLimit(RateLimiter.Group.RESOURCES, 0.001, 3).setMaxWaitMillis(0).build());
+        long requests = simulator.getRequestCount();
+
+        try {
+            downloader.download(resource, null, target);
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(-1, ex.getStatusCode());
+        }
+
+        // the resource length and two parts, the other parts were rejected without a request
+        Assert.assertEquals(requests + 3, simulator.getRequestCount());
+        Assert.assertFalse(target.exists());
+    }
+
+    @Test
+    public void testRangeFailuresOpenCircuitBreaker() throws Exception {
+        // the upload and the resource length get through, every range request is answered with HTTP 429
+        OHTSimulator throttling = simulator(OHTSimulator.custom()
+                .setThrottle(RateLimiter.custom().setLimit(RateLimiter.Group.RESOURCES, 0.001, 2).setMaxWaitMillis(0).build()));
+        OHTAPI throttled = api(throttling);
+        ResourceDownloader throttledDownloader = new ResourceDownloader(throttled, 4, PART_SIZE);
+        try {
+            CircuitBreaker breaker = CircuitBreaker.custom().setFailureThreshold(1).setOpenMillis(60000).build();
+            throttled.setCircuitBreaker(breaker);
+            String uuid = throttled.uploadFileResource("data.bin", null, ByteBuffer.wrap(content), null);
+
+            File target = new File(folder.getRoot(), "data.bin");
+            try {
+                throttledDownloader.download(uuid, null, target);
+                Assert.fail("expected an OHTException");
+            } catch (OHTException ex) {
+                Assert.assertEquals(429, ex.getHttpStatus());
+            }
+            Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+            long requests = throttling.getRequestCount();
+            try {
+                throttledDownloader.download(uuid, null, target);
+                Assert.fail("expected an OHTException");
+            } catch (OHTException ex) {
+                Assert.assertEquals(-1, ex.getStatusCode());
+            }
+            Assert.assertEquals(requests, throttling.getRequestCount());
+        } finally {
+            throttledDownloader.close();
+        }
+    }
+
+    @Test
+    public void testResumeSkipsFinishedParts() throws Exception {
+        File target = new File(folder.getRoot(), "data.bin");
+        byte[] partial = new byte[content.length];
+        System.arraycopy(content, PART_SIZE, partial, PART_SIZE, 2 * PART_SIZE);
+        Files.write(new File(target.getPath() + ".part").toPath(), partial);
+        Files.write(new File(target.getPath() + ".part.state").toPath(),
+                (content.length + " " + PART_SIZE + "\n1\n2\n").getBytes(StandardCharsets.UTF_8));
+        long requests = simulator.getRequestCount();
+
+        downloader.download(resource, null, target);
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        Assert.assertEquals(requests + 1 + 4, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testStateOfOtherPartSizeIsIgnored() throws Exception {
+        File target = new File(folder.getRoot(), "data.bin");
+        byte[] garbage = new byte[content.length];
+        Arrays.fill(garbage, (byte) 1);
+        Files.write(new File(target.getPath() + ".part").toPath(), garbage);
+        Files.write(new File(target.getPath() + ".part.state").toPath(),
+                (content.length + " " + (PART_SIZE * 2) + "\n0\n1\n").getBytes(StandardCharsets.UTF_8));
+
+        downloader.download(resource, null, target);
+
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+    }
+}
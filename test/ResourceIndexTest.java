@@ -0,0 +1,125 @@
+import com.oht.ResourceIndex;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Runs {@link ResourceIndex ResourceIndex} in memory and on a file in a temporary folder: eviction, restoring,
+ * compaction, and lines torn or corrupted in the file
+ */
+public class ResourceIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "index");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        ResourceIndex index = new ResourceIndex(2);
+        index.put("file:1", "rsc-1");
+        index.put("file:2", "rsc-2");
+        index.get("file:1");
+        index.put("file:3", "rsc-3");
+
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals("rsc-1", index.get("file:1"));
+        Assert.assertNull(index.get("file:2"));
+        Assert.assertEquals("rsc-3", index.get("file:3"));
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        ResourceIndex index = new ResourceIndex(10, file);
+        index.put("file:1", "rsc-1");
+        index.put("file:2", "rsc-2");
+        index.put("file:1", "rsc-3");
+        index.remove("file:2");
+        index.close();
+
+        index = new ResourceIndex(10, file);
+        try {
+            Assert.assertEquals(1, index.size());
+            Assert.assertEquals("rsc-3", index.get("file:1"));
+            Assert.assertNull(index.get("file:2"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        ResourceIndex index = new ResourceIndex(4, file);
+        for (int i = 0; i < 50; i++)
+            index.put("file:" + i, "rsc-" + i);
+        index.close();
+
+        Assert.assertTrue(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size() <= 2 * 4 + 1);
+        index = new ResourceIndex(4, file);
+        try {
+            Assert.assertEquals(4, index.size());
+            Assert.assertEquals("rsc-49", index.get("file:49"));
+            Assert.assertNull(index.get("file:45"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testTornLineIsDropped() throws Exception {
+        ResourceIndex index = new ResourceIndex(10, file);
+        index.put("file:1", "rsc-1");
+        index.close();
+
+        // torn inside the UUID by a crash, without a checksum or line end
+        append("file:2 1b4e28ba-2fa1");
+        index = new ResourceIndex(10, file);
+        Assert.assertEquals(1, index.size());
+        Assert.assertNull(index.get("file:2"));
+
+        // the next record starts on a line of its own
+        index.put("file:3", "rsc-3");
+        index.close();
+
+        index = new ResourceIndex(10, file);
+        try {
+            Assert.assertEquals(2, index.size());
+            Assert.assertEquals("rsc-1", index.get("file:1"));
+            Assert.assertEquals("rsc-3", index.get("file:3"));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testCorruptedLineIsDropped() throws Exception {
+        ResourceIndex index = new ResourceIndex(10, file);
+        index.put("file:1", "rsc-1");
+        index.close();
+
+        String line = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).get(0);
+        append(line.replace("rsc-1", "rsc-2") + "\n" + "file:3 rsc-3\n");
+
+        index = new ResourceIndex(10, file);
+        try {
+            Assert.assertEquals(1, index.size());
+            Assert.assertEquals("rsc-1", index.get("file:1"));
+            Assert.assertNull(index.get("file:3"));
+        } finally {
+            index.close();
+        }
+    }
+
+    private void append(String text) throws Exception {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
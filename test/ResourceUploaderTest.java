@@ -0,0 +1,106 @@
+import com.oht.OHTSimulator;
+import com.oht.ResourceIndex;
+import com.oht.ResourceUploader;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Uploads through a {@link ResourceUploader ResourceUploader} to an {@link OHTSimulator OHTSimulator} that answers
+ * after a delay, so that uploads of the same content overlap
+ */
+public class ResourceUploaderTest extends SimulatorFixture {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File indexFile;
+
+    @Override
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder.setLatency(OHTSimulator.Latency.fixed(100));
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        indexFile = new File(folder.getRoot(), "index");
+    }
+
+    @Test
+    public void testDeduplicationAcrossRuns() throws Exception {
+        File file = file("doc.txt", "one two three");
+        String fileUuid;
+        String textUuid;
+
+        ResourceIndex index = new ResourceIndex(100, indexFile);
+        ResourceUploader uploader = new ResourceUploader(api, index, 4);
+        try {
+            long requests = simulator.getRequestCount();
+            fileUuid = uploader.uploadFile(file);
+            textUuid = uploader.uploadText("four five");
+            Assert.assertEquals(fileUuid, uploader.uploadFile(file("copy.txt", "one two three")));
+            Assert.assertEquals(textUuid, uploader.uploadText("four five"));
+            Assert.assertEquals(requests + 2, simulator.getRequestCount());
+        } finally {
+            uploader.close();
+            index.close();
+        }
+
+        index = new ResourceIndex(100, indexFile);
+        uploader = new ResourceUploader(api, index, 4);
+        try {
+            long requests = simulator.getRequestCount();
+            Assert.assertEquals(Arrays.asList(fileUuid, textUuid, fileUuid),
+                    Arrays.asList(uploader.uploadFile(file), uploader.uploadText("four five"), uploader.uploadFile(file)));
+            Assert.assertEquals(requests, simulator.getRequestCount());
+
+            // text and file content are told apart, and changed content is uploaded again
+            Assert.assertFalse(fileUuid.equals(uploader.uploadText("one two three")));
+            Files.write(file.toPath(), "one two three four".getBytes(StandardCharsets.UTF_8));
+            Assert.assertFalse(fileUuid.equals(uploader.uploadFile(file)));
+            Assert.assertEquals(requests + 2, simulator.getRequestCount());
+        } finally {
+            uploader.close();
+            index.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentUploadsOfSameFile() throws Exception {
+        File file = file("doc.txt", "one two three");
+        ResourceUploader uploader = new ResourceUploader(api, new ResourceIndex(100), 8);
+        try {
+            long requests = simulator.getRequestCount();
+            List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+            for (int i = 0; i < 8; i++)
+                futures.add(uploader.uploadFileAsync(file));
+
+            String uuid = futures.get(0).get();
+            for (CompletableFuture<String> future : futures)
+                Assert.assertEquals(uuid, future.get());
+            Assert.assertEquals(requests + 1, simulator.getRequestCount());
+
+            // in a batch, too
+            List<String> uuids = uploader.uploadTexts(Arrays.asList("six", "seven", "six", "six"));
+            Assert.assertEquals(uuids.get(0), uuids.get(2));
+            Assert.assertEquals(uuids.get(0), uuids.get(3));
+            Assert.assertFalse(uuids.get(0).equals(uuids.get(1)));
+            Assert.assertEquals(requests + 3, simulator.getRequestCount());
+        } finally {
+            uploader.close();
+        }
+    }
+
+    private File file(String name, String content) throws Exception {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,138 @@
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.oht.OHTAPI;
+import com.oht.OHTClientConfig;
+import com.oht.OHTException;
+import com.oht.entities.Quote;
+import com.oht.entities.ResourceQuote;
+import com.oht.entities.WordCount;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes canned responses the simulator does not produce: results before the status, error pages and
+ * non-UTF-8 charsets. Also checks that the streaming entity constructors read the same as the tree ones
+ */
+public class ResponseDecodingTest {
+
+    private static final String QUOTE = "{\"currency\":\"EUR\",\"total\":{\"wordcount\":7,\"credits\":1.5,\"net_price\":10.5,"
+            + "\"transaction_fee\":0.5,\"price\":11,\"extra\":[1,2]},\"unknown\":{\"a\":null},"
+            + "\"resources\":[{\"resource\":\"rsc-1\",\"wordcount\":4,\"credits\":1,\"price\":6},"
+            + "{\"resource\":\"rsc-2\",\"wordcount\":3,\"credits\":0.5,\"price\":5}]}";
+
+    private HttpServer server;
+    private OHTAPI api;
+    private volatile int httpStatus;
+    private volatile String contentType;
+    private volatile byte[] body;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                exchange.sendResponseHeaders(httpStatus, body.length);
+                OutputStream output = exchange.getResponseBody();
+                output.write(body);
+                output.close();
+            }
+        });
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        api = new OHTAPI("secret", "public", false, OHTClientConfig.custom().setBaseUrl(baseUrl).build());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        api.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testResultsBeforeStatus() throws Exception {
+        respond(200, "application/json", StandardCharsets.UTF_8,
+                "{\"results\":{\"total\":{\"wordcount\":5},\"resources\":[{\"resource\":\"rsc-1\",\"wordcount\":5}]},"
+                        + "\"status\":{\"code\":0,\"msg\":\"ok\"}}");
+
+        WordCount wordCount = api.getWordCount(new String[]{"rsc-1"});
+        Assert.assertEquals(5, wordCount.getTotalWordCount());
+        Assert.assertEquals(Integer.valueOf(5), wordCount.getResources().get("rsc-1"));
+    }
+
+    @Test
+    public void testErrorStatusAfterResults() throws Exception {
+        respond(200, "application/json", StandardCharsets.UTF_8,
+                "{\"results\":{\"total\":{}},\"status\":{\"code\":102,\"msg\":\"Invalid parameters\"},\"errors\":[\"resources\"]}");
+
+        try {
+            api.getWordCount(new String[]{"rsc-1"});
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(102, ex.getStatusCode());
+            Assert.assertEquals(200, ex.getHttpStatus());
+        }
+    }
+
+    @Test
+    public void testErrorPage() throws Exception {
+        respond(502, "text/html", StandardCharsets.UTF_8, "<html><body>Bad Gateway</body></html>");
+
+        try {
+            api.getWordCount(new String[]{"rsc-1"});
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(502, ex.getHttpStatus());
+        }
+    }
+
+    @Test
+    public void testCharsetFromContentType() throws Exception {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        respond(200, "application/json; charset=ISO-8859-1", latin1,
+                "{\"status\":{\"code\":0,\"msg\":\"ok\"},\"results\":{\"TranslatedText\":\"d\u00e9j\u00e0 vu\"}}");
+
+        Assert.assertEquals("d\u00e9j\u00e0 vu", api.machineTranslation("en-us", "fr-fr", "already seen"));
+    }
+
+    @Test
+    public void testStreamingConstructorsMatchTree() throws Exception {
+        Quote tree = new Quote(new JsonParser().parse(QUOTE).getAsJsonObject());
+        Quote streamed = new Quote(new JsonReader(new StringReader(QUOTE)));
+
+        Assert.assertEquals(tree.getCurrency(), streamed.getCurrency());
+        Assert.assertEquals(tree.getTotalWordCount(), streamed.getTotalWordCount());
+        Assert.assertEquals(tree.getTotalCredits(), streamed.getTotalCredits(), 0);
+        Assert.assertEquals(tree.getNetPrice(), streamed.getNetPrice(), 0);
+        Assert.assertEquals(tree.getTransactionFee(), streamed.getTransactionFee(), 0);
+        Assert.assertEquals(tree.getTotalPrice(), streamed.getTotalPrice(), 0);
+
+        List<ResourceQuote> treeResources = new ArrayList<ResourceQuote>(tree.getResources());
+        List<ResourceQuote> streamedResources = new ArrayList<ResourceQuote>(streamed.getResources());
+        Assert.assertEquals(2, streamedResources.size());
+        for (int i = 0; i < treeResources.size(); i++) {
+            Assert.assertEquals(treeResources.get(i).getUuid(), streamedResources.get(i).getUuid());
+            Assert.assertEquals(treeResources.get(i).getWordCount(), streamedResources.get(i).getWordCount());
+            Assert.assertEquals(treeResources.get(i).getCredits(), streamedResources.get(i).getCredits(), 0);
+            Assert.assertEquals(treeResources.get(i).getPrice(), streamedResources.get(i).getPrice(), 0);
+        }
+    }
+
+    private void respond(int httpStatus, String contentType, Charset charset, String body) {
+        this.httpStatus = httpStatus;
+        this.contentType = contentType;
+        this.body = body.getBytes(charset);
+    }
+}
@@ -0,0 +1,76 @@
+import com.oht.OHTAPI;
+import com.oht.OHTAsyncAPI;
+import com.oht.OHTException;
+import com.oht.OHTSimulator;
+import com.oht.RetryPolicy;
+import org.junit.*;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs calls with a {@link RetryPolicy RetryPolicy} against an {@link OHTSimulator OHTSimulator} that fails every
+ * request with HTTP 500, and against a healthy one for API errors
+ */
+public class RetryPolicyTest extends SimulatorFixture {
+
+    private OHTSimulator failing;
+    private OHTAPI failingApi;
+
+    @Before
+    public void setUp() throws Exception {
+        RetryPolicy policy = RetryPolicy.custom().setMaxAttempts(3).setInitialBackoffMillis(1).setMaxBackoffMillis(5).build();
+        api.setRetryPolicy(policy);
+
+        failing = simulator(OHTSimulator.custom().setErrorRate(1));
+        failingApi = api(failing);
+        failingApi.setRetryPolicy(policy);
+    }
+
+    @Test
+    public void testGetIsRetried() throws Exception {
+        long requests = failing.getRequestCount();
+        try {
+            failingApi.getSupportedLanguages();
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(500, ex.getHttpStatus());
+        }
+        Assert.assertEquals(requests + 3, failing.getRequestCount());
+    }
+
+    @Test
+    public void testAsyncGetIsRetried() throws Exception {
+        long requests = failing.getRequestCount();
+        try {
+            new OHTAsyncAPI(failingApi).getSupportedLanguages().get();
+            Assert.fail("expected an OHTException");
+        } catch (ExecutionException ex) {
+            Assert.assertEquals(500, ((OHTException) ex.getCause()).getHttpStatus());
+        }
+        Assert.assertEquals(requests + 3, failing.getRequestCount());
+    }
+
+    @Test
+    public void testPostIsNotRetried() throws Exception {
+        long requests = failing.getRequestCount();
+        try {
+            failingApi.uploadTextResource("text");
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(500, ex.getHttpStatus());
+        }
+        Assert.assertEquals(requests + 1, failing.getRequestCount());
+    }
+
+    @Test
+    public void testApiErrorIsNotRetried() throws Exception {
+        long requests = simulator.getRequestCount();
+        try {
+            api.getResource("unknown", null, null);
+            Assert.fail("expected an OHTException");
+        } catch (OHTException ex) {
+            Assert.assertEquals(404, ex.getStatusCode());
+        }
+        Assert.assertEquals(requests + 1, simulator.getRequestCount());
+    }
+}
@@ -0,0 +1,61 @@
+import com.oht.OHTAPI;
+import com.oht.OHTClientConfig;
+import com.oht.OHTSimulator;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of the tests that run the library against {@link OHTSimulator OHTSimulator}s. Before every test it starts
+ * a simulator, set up by {@link #configure(OHTSimulator.Builder)}, and an {@link OHTAPI OHTAPI} talking to it.
+ * After the test these are closed, together with the simulators and APIs the test started through
+ * {@link #simulator(OHTSimulator.Builder)} and {@link #api(String, String)}
+ */
+public abstract class SimulatorFixture {
+
+    protected OHTSimulator simulator;
+    protected OHTAPI api;
+
+    private final List<Closeable> started = new ArrayList<Closeable>();
+
+    @Before
+    public void startSimulator() throws Exception {
+        simulator = simulator(configure(OHTSimulator.custom()));
+        api = api(simulator);
+    }
+
+    @After
+    public void closeSimulators() throws Exception {
+        // latest first, so that APIs are closed before the simulators they talk to
+        for (int i = started.size() - 1; i >= 0; i--)
+            started.get(i).close();
+        started.clear();
+    }
+
+    /**
+     * Settings of the simulator started before every test, none by default
+     */
+    protected OHTSimulator.Builder configure(OHTSimulator.Builder builder) {
+        return builder;
+    }
+
+    protected OHTSimulator simulator(OHTSimulator.Builder builder) throws IOException {
+        OHTSimulator simulator = builder.build();
+        started.add(simulator);
+        return simulator;
+    }
+
+    protected OHTAPI api(OHTSimulator simulator) {
+        return api(simulator.getBaseUrl(), "public");
+    }
+
+    protected OHTAPI api(String baseUrl, String publicKey) {
+        OHTAPI api = new OHTAPI("secret", publicKey, false, OHTClientConfig.custom().setBaseUrl(baseUrl).build());
+        started.add(api);
+        return api;
+    }
+}
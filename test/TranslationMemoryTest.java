@@ -0,0 +1,193 @@
+import com.oht.TranslationMemory;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs {@link TranslationMemory TranslationMemory} on files in a temporary folder: appending and reopening,
+ * compaction, and read-only instances picking up what the writer appends and the files its compactions replace
+ */
+public class TranslationMemoryTest {
+
+    // longer than the interval at which read-only instances check whether the file was replaced
+    private static final long REOPEN_WAIT_MILLIS = 1200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.getRoot().toPath().resolve("memory.bin");
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(file).build();
+        try {
+            Assert.assertNull(memory.get("en-us", "fr-fr", "hello"));
+
+            memory.put("en-us", "fr-fr", "hello", "bonjour");
+            memory.put("en-us", "de-de", "hello", "hallo");
+            Assert.assertEquals("bonjour", memory.get("en-us", "fr-fr", "hello"));
+            Assert.assertEquals("hallo", memory.get("en-us", "de-de", "hello"));
+            Assert.assertNull(memory.get("fr-fr", "en-us", "hello"));
+
+            // the source text is matched in its normalized form, line breaks included
+            Assert.assertEquals("bonjour", memory.get("en-us", "fr-fr", "  hello\n"));
+            memory.put("en-us", "fr-fr", "two\nlines", "deux\nlignes");
+            Assert.assertEquals("deux\nlignes", memory.get("en-us", "fr-fr", "two \t\r\n lines"));
+            Assert.assertNull(memory.get("en-us", "fr-fr", "two lines"));
+
+            memory.put("en-us", "fr-fr", "hello", "salut");
+            Assert.assertEquals("salut", memory.get("en-us", "fr-fr", "hello"));
+            Assert.assertEquals(4, memory.size());
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(file).build();
+        memory.put("en-us", "fr-fr", "hello", "bonjour");
+        memory.put("en-us", "fr-fr", "d\u00e9j\u00e0 vu", "d\u00e9j\u00e0 vu");
+        memory.close();
+
+        memory = TranslationMemory.custom(file).build();
+        try {
+            Assert.assertEquals(2, memory.size());
+            Assert.assertEquals("bonjour", memory.get("en-us", "fr-fr", "hello"));
+            Assert.assertEquals("d\u00e9j\u00e0 vu", memory.get("en-us", "fr-fr", "d\u00e9j\u00e0 vu"));
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void testSingleWriter() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(file).build();
+        try {
+            TranslationMemory.custom(file).build();
+            Assert.fail("expected an IOException");
+        } catch (IOException ex) {
+            // already open for writing
+        } finally {
+            memory.close();
+        }
+
+        TranslationMemory.custom(file).build().close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        TranslationMemory memory = TranslationMemory.custom(file).setMaxBytes(1024).build();
+        try {
+            // replaced translations are dropped first
+            for (int i = 0; i < 50; i++)
+                memory.put("en-us", "fr-fr", "hello", "bonjour " + i);
+            Assert.assertEquals("bonjour 49", memory.get("en-us", "fr-fr", "hello"));
+            Assert.assertTrue(memory.size() < 50);
+            Assert.assertTrue(Files.size(file) <= 1024);
+
+            // then the oldest ones
+            for (int i = 0; i < 50; i++)
+                memory.put("en-us", "fr-fr", "text " + i, "texte " + i);
+            Assert.assertEquals("texte 49", memory.get("en-us", "fr-fr", "text 49"));
+            Assert.assertNull(memory.get("en-us", "fr-fr", "text 0"));
+            Assert.assertNull(memory.get("en-us", "fr-fr", "hello"));
+            Assert.assertTrue(Files.size(file) <= 1024);
+        } finally {
+            memory.close();
+        }
+
+        memory = TranslationMemory.custom(file).setMaxBytes(1024).build();
+        try {
+            Assert.assertEquals("texte 49", memory.get("en-us", "fr-fr", "text 49"));
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void testReaderSeesAppends() throws Exception {
+        TranslationMemory reader = TranslationMemory.custom(file).setReadOnly(true).build();
+        TranslationMemory writer = TranslationMemory.custom(file).build();
+        try {
+            Assert.assertTrue(reader.isReadOnly());
+            try {
+                reader.put("en-us", "fr-fr", "hello", "bonjour");
+                Assert.fail("expected an IllegalStateException");
+            } catch (IllegalStateException ex) {
+                // read-only
+            }
+
+            // the file did not exist when the reader was opened
+            writer.put("en-us", "fr-fr", "hello", "bonjour");
+            Thread.sleep(REOPEN_WAIT_MILLIS);
+            Assert.assertEquals("bonjour", reader.get("en-us", "fr-fr", "hello"));
+
+            // appends to a mapped file are seen right away
+            writer.put("en-us", "de-de", "hello", "hallo");
+            Assert.assertEquals("hallo", reader.get("en-us", "de-de", "hello"));
+            Assert.assertEquals(2, reader.size());
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testReaderSeesReplacedFile() throws Exception {
+        TranslationMemory writer = TranslationMemory.custom(file).build();
+        TranslationMemory reader = TranslationMemory.custom(file).setReadOnly(true).build();
+        try {
+            writer.put("en-us", "fr-fr", "hello", "bonjour");
+            writer.put("en-us", "fr-fr", "hello", "salut");
+            Assert.assertEquals("salut", reader.get("en-us", "fr-fr", "hello"));
+            Assert.assertEquals(2, reader.size());
+
+            writer.compact();
+            writer.put("en-us", "de-de", "hello", "hallo");
+            Thread.sleep(REOPEN_WAIT_MILLIS);
+            Assert.assertEquals("salut", reader.get("en-us", "fr-fr", "hello"));
+            Assert.assertEquals("hallo", reader.get("en-us", "de-de", "hello"));
+            Assert.assertEquals(2, reader.size());
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testClosedStoreIsNotReopened() throws Exception {
+        TranslationMemory writer = TranslationMemory.custom(file).build();
+        TranslationMemory reader = TranslationMemory.custom(file).setReadOnly(true).build();
+        writer.put("en-us", "fr-fr", "hello", "bonjour");
+        reader.close();
+        writer.close();
+
+        Thread.sleep(REOPEN_WAIT_MILLIS);
+        assertClosed(reader);
+        assertClosed(writer);
+        try {
+            writer.put("en-us", "fr-fr", "hello", "salut");
+            Assert.fail("expected an IOException");
+        } catch (IOException ex) {
+            Assert.assertEquals("translation memory is closed", ex.getMessage());
+        }
+    }
+
+    private void assertClosed(TranslationMemory memory) {
+        try {
+            memory.get("en-us", "fr-fr", "hello");
+            Assert.fail("expected an IOException");
+        } catch (IOException ex) {
+            Assert.assertEquals("translation memory is closed", ex.getMessage());
+        }
+    }
+}